@@ -0,0 +1,32 @@
+package ru.webrise.technicaltask;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Отдельный режим запуска, который только применяет миграции Liquibase и завершает процесс.
+ * <p>
+ * Контекст содержит лишь источник данных и Liquibase: без веб-сервера, JPA, сервисов и фоновых задач.
+ * Запускается один раз перед выкладкой ({@code java -jar app.jar migrate}), после чего реплики
+ * приложения стартуют с профилем {@code production} без миграций и проверки схемы.
+ * <p>
+ * Класс не помечен стереотипом Spring, поэтому не попадает в сканирование компонентов основного приложения.
+ */
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, LiquibaseAutoConfiguration.class})
+@PropertySource("classpath:application-liquibase-migration.properties")
+public class MigrationRunner {
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MigrationRunner.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.liquibase.enabled=true")
+                .run(args);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -5,10 +5,19 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class TechnicalTaskApplication {
 
+	/**
+	 * Запускает приложение или, если первый аргумент {@code migrate}, только применяет миграции ({@link MigrationRunner}).
+	 */
 	public static void main(String[] args) {
+		if (args.length > 0 && "migrate".equals(args[0])) {
+			MigrationRunner.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		SpringApplication.run(TechnicalTaskApplication.class, args);
 	}
 
@@ -0,0 +1,163 @@
+package ru.webrise.technicaltask.analytics;
+
+import jakarta.validation.ValidationException;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Выражение над множествами подписчиков провайдеров.
+ * <p>
+ * Операнды - идентификаторы провайдеров, операции - {@code AND}, {@code OR} и {@code ANDNOT}
+ * (без учета регистра), поддерживаются скобки. {@code AND} и {@code ANDNOT} связывают сильнее, чем {@code OR}:
+ * <pre>
+ * expression := term ("OR" term)*
+ * term       := factor (("AND" | "ANDNOT") factor)*
+ * factor     := providerId | "(" expression ")"
+ * </pre>
+ * Например, {@code 2 ANDNOT 3} - подписчики провайдера 2 без подписки на провайдера 3.
+ */
+public final class AudienceExpression {
+
+    private static final Pattern TOKEN = Pattern.compile("\\s*(\\(|\\)|\\d+|[A-Za-z]+)");
+
+    private final Node root;
+
+    private AudienceExpression(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Разбирает выражение.
+     *
+     * @param expression Текст выражения
+     * @return Разобранное выражение
+     * @throws ValidationException если выражение некорректно
+     */
+    public static AudienceExpression parse(String expression) {
+        Parser parser = new Parser(tokenize(expression));
+        Node root = parser.expression();
+        if (parser.hasMore())
+            throw invalid("unexpected token '" + parser.peek() + "'");
+        return new AudienceExpression(root);
+    }
+
+    /**
+     * Вычисляет выражение над снимком индекса.
+     *
+     * @param snapshot Снимок {@link ProviderAudienceIndex}
+     * @return Множество {@code user_id}, удовлетворяющих выражению
+     */
+    public Roaring64Bitmap evaluate(ProviderAudienceIndex.Snapshot snapshot) {
+        return root.evaluate(snapshot);
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(expression);
+        int position = 0;
+        while (position < expression.length() && matcher.find(position) && matcher.start() == position) {
+            tokens.add(matcher.group(1).toUpperCase(Locale.ROOT));
+            position = matcher.end();
+        }
+        if (!expression.substring(position).isBlank())
+            throw invalid("unexpected character at position " + position);
+        if (tokens.isEmpty())
+            throw invalid("expression is empty");
+        return tokens;
+    }
+
+    private static ValidationException invalid(String reason) {
+        return new ValidationException("Invalid audience expression: " + reason);
+    }
+
+    private enum Operation { AND, OR, ANDNOT }
+
+    private sealed interface Node permits ProviderNode, OperationNode {
+        Roaring64Bitmap evaluate(ProviderAudienceIndex.Snapshot snapshot);
+    }
+
+    private record ProviderNode(long providerId) implements Node {
+        @Override
+        public Roaring64Bitmap evaluate(ProviderAudienceIndex.Snapshot snapshot) {
+            return snapshot.subscribers(providerId);
+        }
+    }
+
+    private record OperationNode(Operation operation, Node left, Node right) implements Node {
+        @Override
+        public Roaring64Bitmap evaluate(ProviderAudienceIndex.Snapshot snapshot) {
+            Roaring64Bitmap result = left.evaluate(snapshot);
+            Roaring64Bitmap other = right.evaluate(snapshot);
+            switch (operation) {
+                case AND -> result.and(other);
+                case OR -> result.or(other);
+                case ANDNOT -> result.andNot(other);
+            }
+            return result;
+        }
+    }
+
+    private static final class Parser {
+
+        private final List<String> tokens;
+        private int position;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        Node expression() {
+            Node node = term();
+            while ("OR".equals(peek())) {
+                position++;
+                node = new OperationNode(Operation.OR, node, term());
+            }
+            return node;
+        }
+
+        Node term() {
+            Node node = factor();
+            while ("AND".equals(peek()) || "ANDNOT".equals(peek())) {
+                Operation operation = Operation.valueOf(tokens.get(position++));
+                node = new OperationNode(operation, node, factor());
+            }
+            return node;
+        }
+
+        Node factor() {
+            String token = peek();
+            if (token == null)
+                throw invalid("unexpected end of expression");
+            position++;
+
+            if ("(".equals(token)) {
+                Node node = expression();
+                if (!")".equals(peek()))
+                    throw invalid("missing closing parenthesis");
+                position++;
+                return node;
+            }
+            if (Character.isDigit(token.charAt(0))) {
+                try {
+                    return new ProviderNode(Long.parseLong(token));
+                } catch (NumberFormatException e) {
+                    throw invalid("provider id '" + token + "' is too large");
+                }
+            }
+            throw invalid("expected provider id but found '" + token + "'");
+        }
+
+        boolean hasMore() {
+            return position < tokens.size();
+        }
+
+        String peek() {
+            return hasMore() ? tokens.get(position) : null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.webrise.technicaltask.analytics;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Публикуется после полной перестройки {@link ProviderAudienceIndex} из БД.
+ */
+public class AudienceIndexRebuiltEvent extends ApplicationEvent {
+
+    public AudienceIndexRebuiltEvent(ProviderAudienceIndex index) {
+        super(index);
+    }
+
+    public ProviderAudienceIndex getIndex() {
+        return (ProviderAudienceIndex) getSource();
+    }
+}
@@ -0,0 +1,171 @@
+package ru.webrise.technicaltask.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Инкрементально поддерживаемая матрица совместных подписок провайдер×провайдер.
+ * <p>
+ * Ячейка {@code [A][B]} содержит количество пользователей с активными подписками и на A, и на B,
+ * диагональ {@code [A][A]} - количество подписчиков A. Значения хранятся в плоском массиве {@code long[]},
+ * каждому провайдеру выделяется слот; слоты удаленных провайдеров переиспользуются.
+ * <p>
+ * Изменения получаются от {@link ProviderAudienceIndex} как {@link ProviderAudienceIndex.MembershipListener}:
+ * при добавлении пользователя в аудиторию провайдера увеличиваются ячейки этого провайдера с каждым
+ * из остальных провайдеров пользователя. Их список индекс вычисляет под той же блокировкой записи,
+ * что и само изменение, поэтому параллельные изменения подписок одного пользователя не теряют пересечений.
+ * После каждой перестройки индекса матрица пересчитывается из него целиком.
+ */
+@Component
+@Slf4j
+public class ProviderAffinityMatrix implements SubscriptionChangeListener, ProviderAudienceIndex.MembershipListener {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int capacity = INITIAL_CAPACITY;
+    private int usedSlots;
+    private long[] counts = new long[INITIAL_CAPACITY * INITIAL_CAPACITY];
+
+    public ProviderAffinityMatrix(ProviderAudienceIndex providerAudienceIndex) {
+        providerAudienceIndex.addMembershipListener(this);
+    }
+
+    @Override
+    public synchronized void onMembershipChanged(long userId, long providerId, List<Long> otherProviderIds, int delta) {
+        int slot = slotOf(providerId);
+        counts[slot * capacity + slot] += delta;
+        for (Long otherProviderId : otherProviderIds) {
+            int other = slotOf(otherProviderId);
+            counts[slot * capacity + other] += delta;
+            counts[other * capacity + slot] += delta;
+        }
+    }
+
+    @Override
+    public synchronized void onProviderRemoved(long providerId) {
+        Integer slot = slots.remove(providerId);
+        if (slot == null)
+            return;
+
+        for (int other = 0; other < capacity; other++) {
+            counts[slot * capacity + other] = 0;
+            counts[other * capacity + slot] = 0;
+        }
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Пересчитывает матрицу из перестроенного индекса подписчиков.
+     */
+    @EventListener
+    public void onAudienceIndexRebuilt(AudienceIndexRebuiltEvent event) {
+        long startedAt = System.nanoTime();
+
+        event.getIndex().compute(snapshot -> {
+            List<Long> providerIds = new ArrayList<>(snapshot.providerIds());
+            synchronized (this) {
+                slots.clear();
+                freeSlots.clear();
+                usedSlots = 0;
+                Arrays.fill(counts, 0);
+
+                for (int i = 0; i < providerIds.size(); i++) {
+                    int first = slotOf(providerIds.get(i));
+                    for (int j = i; j < providerIds.size(); j++) {
+                        int second = slotOf(providerIds.get(j));
+                        long overlap = snapshot.overlap(providerIds.get(i), providerIds.get(j));
+                        counts[first * capacity + second] = overlap;
+                        counts[second * capacity + first] = overlap;
+                    }
+                }
+            }
+            return null;
+        });
+
+        log.info("Rebuilt provider affinity matrix in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Возвращает количество пользователей, подписанных на обоих провайдеров.
+     * Для одинаковых провайдеров возвращает количество подписчиков провайдера.
+     */
+    public synchronized long getOverlap(long firstProviderId, long secondProviderId) {
+        Integer first = slots.get(firstProviderId);
+        Integer second = slots.get(secondProviderId);
+        if (first == null || second == null)
+            return 0;
+        return counts[first * capacity + second];
+    }
+
+    public synchronized long getSubscriberCount(long providerId) {
+        return getOverlap(providerId, providerId);
+    }
+
+    /**
+     * Возвращает все пары различных провайдеров с ненулевым пересечением.
+     *
+     * @return Список пар со значениями пересечения и количеством подписчиков каждого провайдера
+     */
+    public synchronized List<Pair> getPairs() {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(slots.entrySet());
+        List<Pair> pairs = new ArrayList<>();
+
+        for (int i = 0; i < entries.size(); i++) {
+            int first = entries.get(i).getValue();
+            for (int j = i + 1; j < entries.size(); j++) {
+                int second = entries.get(j).getValue();
+                long overlap = counts[first * capacity + second];
+                if (overlap > 0)
+                    pairs.add(new Pair(
+                            entries.get(i).getKey(), entries.get(j).getKey(), overlap,
+                            counts[first * capacity + first], counts[second * capacity + second]
+                    ));
+            }
+        }
+        return pairs;
+    }
+
+    private int slotOf(long providerId) {
+        Integer slot = slots.get(providerId);
+        if (slot != null)
+            return slot;
+
+        slot = freeSlots.isEmpty() ? usedSlots++ : freeSlots.pop();
+        if (slot >= capacity)
+            grow();
+        slots.put(providerId, slot);
+        return slot;
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        long[] grown = new long[newCapacity * newCapacity];
+        for (int row = 0; row < capacity; row++)
+            System.arraycopy(counts, row * capacity, grown, row * newCapacity, capacity);
+        counts = grown;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Пара провайдеров со значениями матрицы.
+     */
+    public record Pair(
+            long firstProviderId,
+            long secondProviderId,
+            long overlap,
+            long firstSubscribers,
+            long secondSubscribers
+    ) {}
+}
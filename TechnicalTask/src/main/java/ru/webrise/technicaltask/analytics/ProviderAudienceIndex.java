@@ -0,0 +1,468 @@
+package ru.webrise.technicaltask.analytics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.util.snapshot.CacheSnapshotSection;
+import ru.webrise.technicaltask.util.snapshot.CacheSnapshotStore;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * In-memory индекс активных подписчиков: по одному сжатому битовому множеству (Roaring) на провайдера,
+ * содержащему {@code user_id} пользователей с активной подпиской на него.
+ * <p>
+ * Индекс строится из БД при старте приложения, поддерживается в актуальном состоянии
+ * событиями {@link SubscriptionChangeListener} и периодически перестраивается целиком,
+ * чтобы устранить расхождения (например, после изменений, сделанных другими узлами).
+ * <p>
+ * Операции над множествами выполняются под блокировкой чтения над копиями битовых множеств,
+ * поэтому результаты не зависят от параллельных изменений. После каждой перестройки публикуется
+ * {@link AudienceIndexRebuiltEvent}, о каждом фактическом изменении аудитории сообщается
+ * {@link MembershipListener} под той же блокировкой записи.
+ * <p>
+ * Состояние индекса сохраняется в снимок {@link CacheSnapshotStore}: индекс, восстановленный из снимка,
+ * при старте не строится, а сверяется с БД в фоне.
+ */
+@Component
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ProviderAudienceIndex implements SubscriptionChangeListener, CacheSnapshotSection {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Roaring64Bitmap> bitmaps = new HashMap<>();
+    private volatile boolean built;
+    private volatile boolean restoredFromSnapshot;
+    private final List<MembershipListener> membershipListeners = new CopyOnWriteArrayList<>();
+    private List<Consumer<Map<Long, Roaring64Bitmap>>> changedDuringRebuild;
+
+    public ProviderAudienceIndex(
+            SubscriptionRepository subscriptionRepository,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+
+        Gauge.builder("subscriptions.audience.index.bytes", this, ProviderAudienceIndex::getSizeInBytes)
+                .description("Serialized size of the per-provider active subscriber bitmaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Строит индекс при старте приложения, если он не восстановлен из снимка.
+     * <p>
+     * Для восстановленного индекса здесь публикуется {@link AudienceIndexRebuiltEvent}: снимок читается
+     * при создании бинов, когда методы {@link EventListener} еще не зарегистрированы и событие было бы потеряно.
+     * </p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (restoredFromSnapshot)
+            eventPublisher.publishEvent(new AudienceIndexRebuiltEvent(this));
+        else
+            rebuild();
+    }
+
+    /**
+     * Периодически перестраивает индекс из БД.
+     * <p>
+     * Период задается свойством {@code subscriptions.audience.rebuild-interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${subscriptions.audience.rebuild-interval:PT1H}",
+            initialDelayString = "${subscriptions.audience.rebuild-interval:PT1H}"
+    )
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild provider audience index", e);
+        }
+    }
+
+    /**
+     * Перестраивает индекс, потоково читая все активные подписки.
+     * <p>
+     * Изменения, пришедшие во время чтения, применяются к текущему индексу и запоминаются;
+     * перед подменой они повторяются на перестроенном индексе под блокировкой записи, поэтому не теряются.
+     * </p>
+     */
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Map<Long, Roaring64Bitmap> rebuilt = new HashMap<>();
+        List<Consumer<Map<Long, Roaring64Bitmap>>> changes = new ArrayList<>();
+
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> pairs = subscriptionRepository.streamActiveUserProviderPairs()) {
+                    pairs.forEach(pair -> rebuilt
+                            .computeIfAbsent((Long) pair[1], providerId -> new Roaring64Bitmap())
+                            .addLong((Long) pair[0]));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        rebuilt.values().forEach(Roaring64Bitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            changes.forEach(change -> change.accept(rebuilt));
+            bitmaps = rebuilt;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        built = true;
+
+        log.info("Rebuilt provider audience index for {} providers in {} ms, {} changes replayed",
+                rebuilt.size(), (System.nanoTime() - startedAt) / 1_000_000, changes.size());
+        eventPublisher.publishEvent(new AudienceIndexRebuiltEvent(this));
+    }
+
+    @Override
+    public String snapshotSectionName() {
+        return "provider-audience";
+    }
+
+    @Override
+    public boolean isSnapshotReady() {
+        return built;
+    }
+
+    /**
+     * Записывает битовые множества провайдеров: количество, затем для каждого ID провайдера, размер и множество.
+     */
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(bitmaps.size());
+            for (Map.Entry<Long, Roaring64Bitmap> entry : bitmaps.entrySet()) {
+                ByteBuffer serialized = ByteBuffer.allocate(Math.toIntExact(entry.getValue().serializedSizeInBytes()));
+                entry.getValue().serialize(serialized);
+                out.writeLong(entry.getKey());
+                out.writeInt(serialized.capacity());
+                out.write(serialized.array());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(ByteBuffer in) throws IOException {
+        int count = in.getInt();
+        Map<Long, Roaring64Bitmap> restored = new HashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            long providerId = in.getLong();
+            int size = in.getInt();
+            Roaring64Bitmap bitmap = new Roaring64Bitmap();
+            bitmap.deserialize(in.slice(in.position(), size));
+            in.position(in.position() + size);
+            restored.put(providerId, bitmap);
+        }
+
+        lock.writeLock().lock();
+        try {
+            bitmaps = restored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        built = true;
+        restoredFromSnapshot = true;
+
+        log.info("Restored provider audience index for {} providers from snapshot", restored.size());
+    }
+
+    /**
+     * Перестраивает индекс и возвращает количество пар пользователь - провайдер, которые разошлись с БД.
+     */
+    @Override
+    public long reconcile() {
+        Map<Long, Roaring64Bitmap> before = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            bitmaps.forEach((providerId, bitmap) -> before.put(providerId, bitmap.clone()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        rebuild();
+
+        lock.readLock().lock();
+        try {
+            Set<Long> providerIds = new HashSet<>(before.keySet());
+            providerIds.addAll(bitmaps.keySet());
+            long drift = 0;
+            for (Long providerId : providerIds)
+                drift += Roaring64Bitmap.xor(
+                        before.getOrDefault(providerId, new Roaring64Bitmap()),
+                        bitmaps.getOrDefault(providerId, new Roaring64Bitmap())
+                ).getLongCardinality();
+            return drift;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSubscriptionActivated(long userId, long providerId) {
+        lock.writeLock().lock();
+        try {
+            recordChange(target -> target.computeIfAbsent(providerId, id -> new Roaring64Bitmap()).addLong(userId));
+            Roaring64Bitmap bitmap = bitmaps.computeIfAbsent(providerId, id -> new Roaring64Bitmap());
+            if (bitmap.contains(userId))
+                return;
+            bitmap.addLong(userId);
+            notifyMembershipChanged(userId, providerId, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSubscriptionDeactivated(long userId, long providerId) {
+        lock.writeLock().lock();
+        try {
+            recordChange(target -> {
+                Roaring64Bitmap rebuiltBitmap = target.get(providerId);
+                if (rebuiltBitmap != null)
+                    rebuiltBitmap.removeLong(userId);
+            });
+            Roaring64Bitmap bitmap = bitmaps.get(providerId);
+            if (bitmap == null || !bitmap.contains(userId))
+                return;
+            bitmap.removeLong(userId);
+            notifyMembershipChanged(userId, providerId, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProviderRemoved(long providerId) {
+        lock.writeLock().lock();
+        try {
+            recordChange(target -> target.remove(providerId));
+            bitmaps.remove(providerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет вычисление над снимком индекса.
+     * <p>
+     * Функция получает доступ к копиям битовых множеств через {@link Snapshot},
+     * поэтому может свободно изменять полученные множества.
+     * </p>
+     *
+     * @param computation Вычисление над снимком
+     * @return Результат вычисления
+     */
+    public <T> T compute(Function<Snapshot, T> computation) {
+        lock.readLock().lock();
+        try {
+            return computation.apply(new Snapshot(bitmaps));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество активных подписчиков провайдера.
+     *
+     * @param providerId ID провайдера
+     * @return Количество пользователей с активной подпиской
+     */
+    public long getSubscriberCount(long providerId) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap bitmap = bitmaps.get(providerId);
+            return bitmap == null ? 0 : bitmap.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Регистрирует получателя изменений членства пользователей в аудиториях провайдеров.
+     *
+     * @param listener Получатель, вызываемый под блокировкой записи индекса
+     */
+    public void addMembershipListener(MembershipListener listener) {
+        membershipListeners.add(listener);
+    }
+
+    /**
+     * Возвращает количество пользователей, у которых есть хотя бы одна активная подписка.
+     *
+     * @return Количество пользователей
+     */
+    public long getTotalSubscriberCount() {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap union = new Roaring64Bitmap();
+            bitmaps.values().forEach(union::or);
+            return union.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Запоминает изменение для повтора на перестраиваемом индексе. Вызывается под блокировкой записи.
+     */
+    private void recordChange(Consumer<Map<Long, Roaring64Bitmap>> change) {
+        if (changedDuringRebuild != null)
+            changedDuringRebuild.add(change);
+    }
+
+    /**
+     * Сообщает получателям об изменении, передавая остальных провайдеров пользователя.
+     * Вызывается под блокировкой записи, поэтому список согласован с самим изменением.
+     */
+    private void notifyMembershipChanged(long userId, long providerId, int delta) {
+        if (membershipListeners.isEmpty())
+            return;
+
+        List<Long> otherProviderIds = new ArrayList<>();
+        bitmaps.forEach((otherProviderId, bitmap) -> {
+            if (otherProviderId != providerId && bitmap.contains(userId))
+                otherProviderIds.add(otherProviderId);
+        });
+        for (MembershipListener listener : membershipListeners)
+            listener.onMembershipChanged(userId, providerId, otherProviderIds, delta);
+    }
+
+    private double getSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.values().stream().mapToLong(Roaring64Bitmap::serializedSizeInBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получатель изменений членства, которому нужно состояние индекса на момент самого изменения.
+     */
+    public interface MembershipListener {
+
+        /**
+         * Вызывается, когда пользователь добавлен в аудиторию провайдера или удален из нее.
+         *
+         * @param userId           ID пользователя
+         * @param providerId       ID провайдера
+         * @param otherProviderIds Остальные провайдеры, на которых у пользователя есть активная подписка
+         * @param delta            {@code 1} при добавлении, {@code -1} при удалении
+         */
+        void onMembershipChanged(long userId, long providerId, List<Long> otherProviderIds, int delta);
+    }
+
+    /**
+     * Снимок индекса, доступный внутри {@link #compute(Function)}.
+     */
+    public static final class Snapshot {
+
+        private final Map<Long, Roaring64Bitmap> bitmaps;
+
+        private Snapshot(Map<Long, Roaring64Bitmap> bitmaps) {
+            this.bitmaps = bitmaps;
+        }
+
+        public Set<Long> providerIds() {
+            return Set.copyOf(bitmaps.keySet());
+        }
+
+        /**
+         * Возвращает количество пользователей, подписанных на обоих провайдеров, без копирования множеств.
+         */
+        public long overlap(long firstProviderId, long secondProviderId) {
+            Roaring64Bitmap first = bitmaps.get(firstProviderId);
+            Roaring64Bitmap second = bitmaps.get(secondProviderId);
+            return first == null || second == null ? 0 : Roaring64Bitmap.andCardinality(first, second);
+        }
+
+        /**
+         * Возвращает копию множества подписчиков провайдера (пустое множество для неизвестного провайдера).
+         */
+        public Roaring64Bitmap subscribers(long providerId) {
+            Roaring64Bitmap bitmap = bitmaps.get(providerId);
+            return bitmap == null ? new Roaring64Bitmap() : bitmap.clone();
+        }
+
+        /**
+         * Возвращает множество пользователей, подписанных как минимум на {@code threshold} провайдеров.
+         * <p>
+         * Вычисляется накоплением уровней: уровень {@code k} содержит пользователей,
+         * встретившихся хотя бы в {@code k} уже просмотренных множествах. Порог больше количества провайдеров
+         * дает пустое множество без выделения уровней.
+         * </p>
+         */
+        public Roaring64Bitmap subscribedToAtLeast(int threshold) {
+            if (threshold > bitmaps.size())
+                return new Roaring64Bitmap();
+
+            Roaring64Bitmap[] levels = new Roaring64Bitmap[threshold + 1];
+            for (int i = 1; i <= threshold; i++)
+                levels[i] = new Roaring64Bitmap();
+
+            for (Roaring64Bitmap bitmap : bitmaps.values()) {
+                for (int level = threshold; level > 1; level--)
+                    levels[level].or(Roaring64Bitmap.and(levels[level - 1], bitmap));
+                levels[1].or(bitmap);
+            }
+            return levels[threshold];
+        }
+    }
+}
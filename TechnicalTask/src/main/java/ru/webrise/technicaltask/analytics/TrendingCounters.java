@@ -0,0 +1,209 @@
+package ru.webrise.technicaltask.analytics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Snapshot;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * In-memory счетчики новых подписок по провайдерам со скользящим окном до 7 дней.
+ * <p>
+ * Для каждого провайдера хранится кольцо из {@link #MAX_WINDOW_MINUTES} поминутных ячеек ({@code long[]},
+ * около 80 КБ на провайдера). В каждой ячейке упакованы номер минуты (старшие биты) и количество
+ * подписок за эту минуту (младшие {@value #COUNT_BITS} бита), поэтому увеличение счетчика
+ * и переиспользование ячейки под новую минуту выполняются одним CAS без блокировок.
+ * <p>
+ * Счетчики заполняются по {@code start_date} подписок при старте приложения и далее
+ * увеличиваются событием {@link SubscriptionChangeListener#onSubscriptionCreated(long, long)}.
+ * Заполнение читает подписки в транзакции {@code REPEATABLE READ} и запоминает ее снимок: события outbox,
+ * записанные транзакциями, видимыми в снимке, уже учтены и пропускаются. События, пришедшие до окончания
+ * заполнения, откладываются и разбираются после него.
+ */
+@Component
+@Slf4j
+public class TrendingCounters implements SubscriptionChangeListener {
+
+    public static final int MAX_WINDOW_MINUTES = 7 * 24 * 60;
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionChangeOutboxRepository outboxRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Map<Long, long[]> rings = new ConcurrentHashMap<>();
+
+    private final Object seedLock = new Object();
+    private List<SubscriptionChangeEvent> pendingEvents = new ArrayList<>();
+    private volatile Snapshot seedSnapshot;
+
+    public TrendingCounters(
+            SubscriptionRepository subscriptionRepository,
+            SubscriptionChangeOutboxRepository outboxRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.outboxRepository = outboxRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.readOnlyTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Gauge.builder("subscriptions.trending.providers", rings, Map::size)
+                .description("Number of providers with in-memory trending counters")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Заполняет счетчики подписками, начавшимися за последние 7 дней.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long startedAt = System.nanoTime();
+        LocalDateTime since = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(MAX_WINDOW_MINUTES - 1);
+        ZoneId zone = ZoneId.systemDefault();
+        long nowMinute = currentMinute();
+        long[] seeded = new long[1];
+
+        Snapshot snapshot = readOnlyTransactionTemplate.execute(status -> {
+            Snapshot current = outboxRepository.currentSnapshot();
+            try (Stream<Object[]> rows = subscriptionRepository.streamProviderStartDatesSince(since)) {
+                rows.forEach(row -> {
+                    long minute = TimeUnit.SECONDS.toMinutes(((LocalDateTime) row[1]).atZone(zone).toEpochSecond());
+                    if (minute <= nowMinute) {
+                        increment((Long) row[0], minute);
+                        seeded[0]++;
+                    }
+                });
+            }
+            return current;
+        });
+
+        List<SubscriptionChangeEvent> pending;
+        synchronized (seedLock) {
+            seedSnapshot = snapshot;
+            pending = pendingEvents;
+            pendingEvents = null;
+        }
+        pending.forEach(this::onChange);
+
+        log.info("Seeded trending counters with {} subscriptions for {} providers in {} ms",
+                seeded[0], rings.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Пропускает создание подписки, уже учтенное при заполнении счетчиков.
+     * До окончания заполнения события outbox откладываются.
+     *
+     * @param event Событие изменения
+     */
+    @Override
+    public void onChange(SubscriptionChangeEvent event) {
+        if (event.txId() != null && seedSnapshot == null) {
+            synchronized (seedLock) {
+                if (pendingEvents != null) {
+                    pendingEvents.add(event);
+                    return;
+                }
+            }
+        }
+
+        if (event.type() == SubscriptionChangeEvent.Type.SUBSCRIPTION_CREATED && event.txId() != null
+                && seedSnapshot.includes(event.txId()))
+            return;
+
+        SubscriptionChangeListener.super.onChange(event);
+    }
+
+    @Override
+    public void onSubscriptionCreated(long userId, long providerId) {
+        increment(providerId, currentMinute());
+    }
+
+    @Override
+    public void onProviderRemoved(long providerId) {
+        rings.remove(providerId);
+    }
+
+    /**
+     * Увеличивает счетчик провайдера за указанную минуту.
+     * Событие, которое старше данных в ячейке кольца, отбрасывается, переполненный счетчик минуты не растет.
+     *
+     * @param providerId ID провайдера
+     * @param minute Номер минуты от начала эпохи
+     */
+    public void increment(long providerId, long minute) {
+        long[] ring = rings.computeIfAbsent(providerId, id -> new long[MAX_WINDOW_MINUTES]);
+        int slot = (int) (minute % MAX_WINDOW_MINUTES);
+
+        long current;
+        long next;
+        do {
+            current = (long) SLOTS.getVolatile(ring, slot);
+            long slotMinute = current >>> COUNT_BITS;
+            if (slotMinute > minute || slotMinute == minute && (current & COUNT_MASK) == COUNT_MASK)
+                return;
+            next = slotMinute == minute ? current + 1 : (minute << COUNT_BITS) | 1;
+        } while (!SLOTS.compareAndSet(ring, slot, current, next));
+    }
+
+    /**
+     * Возвращает провайдеров с наибольшим количеством новых подписок за окно.
+     *
+     * @param windowMinutes Размер окна в минутах (не больше {@link #MAX_WINDOW_MINUTES})
+     * @param nowMinute Последняя минута окна
+     * @param limit Количество провайдеров
+     * @return Провайдеры с ненулевым счетчиком по убыванию количества
+     */
+    public List<ProviderCount> getTop(int windowMinutes, long nowMinute, int limit) {
+        int window = Math.min(windowMinutes, MAX_WINDOW_MINUTES);
+        List<ProviderCount> counts = new ArrayList<>(rings.size());
+
+        rings.forEach((providerId, ring) -> {
+            long count = 0;
+            for (long minute = nowMinute - window + 1; minute <= nowMinute; minute++) {
+                long value = (long) SLOTS.getVolatile(ring, (int) (minute % MAX_WINDOW_MINUTES));
+                if (value >>> COUNT_BITS == minute)
+                    count += value & COUNT_MASK;
+            }
+            if (count > 0)
+                counts.add(new ProviderCount(providerId, count));
+        });
+
+        return counts.stream()
+                .sorted(Comparator.comparingLong(ProviderCount::count).reversed()
+                        .thenComparingLong(ProviderCount::providerId))
+                .limit(limit)
+                .toList();
+    }
+
+    public static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    public record ProviderCount(long providerId, long count) {}
+}
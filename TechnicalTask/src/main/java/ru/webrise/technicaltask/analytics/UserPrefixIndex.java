@@ -0,0 +1,328 @@
+package ru.webrise.technicaltask.analytics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.dto.UserSearchResultDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.snapshot.CacheSnapshotSection;
+import ru.webrise.technicaltask.util.snapshot.CacheSnapshotStore;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory индекс префиксов {@code username} и {@code email} для автодополнения.
+ * <p>
+ * Значения в нижнем регистре хранятся в упорядоченной карте ({@link ConcurrentSkipListMap}) с ключом
+ * {@code значение + '\0' + id}: все значения с данным префиксом образуют непрерывный диапазон ключей,
+ * поэтому поиск занимает {@code O(log n)} плюс размер страницы и не обращается к БД.
+ * <p>
+ * Индекс строится из БД при старте приложения, поддерживается событиями {@link SubscriptionChangeListener}
+ * о пользователях и периодически перестраивается целиком. Пользователи, о которых пришли события во время
+ * перестройки, перечитываются в новый индекс перед его подменой, поэтому изменения не теряются.
+ * При {@code users.search.prefix-index.enabled=false} индекс не строится и не обновляется.
+ * <p>
+ * Состояние индекса сохраняется в снимок {@link CacheSnapshotStore}: индекс, восстановленный из снимка,
+ * при старте не строится, а сверяется с БД в фоне.
+ */
+@Component
+@Slf4j
+public class UserPrefixIndex implements SubscriptionChangeListener, CacheSnapshotSection {
+
+    private static final char SEPARATOR = '\0';
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean enabled;
+
+    private volatile Index index = new Index();
+    private volatile boolean ready;
+    private volatile boolean restoredFromSnapshot;
+
+    private final Object rebuildLock = new Object();
+    private Set<Long> changedDuringRebuild;
+
+    public UserPrefixIndex(
+            UserRepository userRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${users.search.prefix-index.enabled:true}") boolean enabled
+    ) {
+        this.userRepository = userRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+
+        Gauge.builder("users.search.prefix-index.users", this, prefixIndex -> prefixIndex.index.users.size())
+                .description("Number of users in the in-memory username and email prefix index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Строит индекс при старте приложения, если он не восстановлен из снимка.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled && !restoredFromSnapshot)
+            rebuild();
+    }
+
+    /**
+     * Периодически перестраивает индекс из БД.
+     * <p>
+     * Период задается свойством {@code users.search.prefix-index.rebuild-interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${users.search.prefix-index.rebuild-interval:PT1H}",
+            initialDelayString = "${users.search.prefix-index.rebuild-interval:PT1H}"
+    )
+    public void scheduledRebuild() {
+        if (!enabled)
+            return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild user prefix index", e);
+        }
+    }
+
+    /**
+     * Перестраивает индекс, потоково читая всех пользователей.
+     * <p>
+     * Идентификаторы пользователей из событий, пришедших во время чтения, накапливаются; перед подменой индекса
+     * эти пользователи перечитываются из БД в новый индекс под той же блокировкой, что и регистрация событий.
+     * </p>
+     */
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Index rebuilt = new Index();
+        Set<Long> changed = new HashSet<>();
+        synchronized (rebuildLock) {
+            changedDuringRebuild = changed;
+        }
+
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = userRepository.streamSearchProjections()) {
+                    rows.forEach(row -> rebuilt.put(toResult(row)));
+                }
+            });
+
+            synchronized (rebuildLock) {
+                for (Long userId : changed)
+                    refresh(rebuilt, userId);
+                index = rebuilt;
+                ready = true;
+            }
+        } finally {
+            synchronized (rebuildLock) {
+                changedDuringRebuild = null;
+            }
+        }
+        log.info("Rebuilt user prefix index for {} users in {} ms, {} changed during rebuild",
+                rebuilt.users.size(), (System.nanoTime() - startedAt) / 1_000_000, changed.size());
+    }
+
+    /**
+     * Возвращает {@code true}, если индекс построен и может обслуживать поиск.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Возвращает пользователей, у которых {@code username} или {@code email} начинается с префикса (без учета регистра),
+     * в порядке значений.
+     * <p>
+     * Пользователь, у которого префикс совпадает и с именем, и с email, возвращается один раз.
+     * </p>
+     *
+     * @param prefix Префикс
+     * @param afterKey Ключ последней строки предыдущей страницы или {@code null} для первой страницы
+     * @param limit Размер страницы
+     * @return Найденные пользователи с ключами для следующей страницы
+     */
+    public List<Match> search(String prefix, String afterKey, int limit) {
+        Index current = index;
+        String from = prefix.toLowerCase(Locale.ROOT);
+        NavigableMap<String, Long> range = afterKey == null
+                ? current.terms.tailMap(from, true)
+                : current.terms.tailMap(afterKey, false);
+
+        List<Match> matches = new ArrayList<>(limit);
+        for (Map.Entry<String, Long> entry : range.entrySet()) {
+            if (!entry.getKey().startsWith(from) || matches.size() == limit)
+                break;
+
+            UserSearchResultDTO user = current.users.get(entry.getValue());
+            if (user != null && entry.getKey().equals(firstMatchingKey(user, from)))
+                matches.add(new Match(user, entry.getKey()));
+        }
+        return matches;
+    }
+
+    @Override
+    public String snapshotSectionName() {
+        return "user-prefix";
+    }
+
+    @Override
+    public boolean isSnapshotReady() {
+        return isReady();
+    }
+
+    /**
+     * Записывает пользователей индекса: количество, затем {@code id}, {@code username}, {@code email}, {@code fullName}.
+     */
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        List<UserSearchResultDTO> users = List.copyOf(index.users.values());
+        out.writeInt(users.size());
+        for (UserSearchResultDTO user : users) {
+            out.writeLong(user.id());
+            CacheSnapshotSection.writeString(out, user.username());
+            CacheSnapshotSection.writeString(out, user.email());
+            CacheSnapshotSection.writeString(out, user.fullName());
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(ByteBuffer in) {
+        if (!enabled)
+            return;
+
+        int count = in.getInt();
+        Index restored = new Index();
+        for (int i = 0; i < count; i++)
+            restored.put(new UserSearchResultDTO(in.getLong(), CacheSnapshotSection.readString(in),
+                    CacheSnapshotSection.readString(in), CacheSnapshotSection.readString(in)));
+
+        index = restored;
+        ready = true;
+        restoredFromSnapshot = true;
+        log.info("Restored user prefix index for {} users from snapshot", restored.users.size());
+    }
+
+    /**
+     * Перестраивает индекс и возвращает количество пользователей, добавленных, удаленных или измененных относительно снимка.
+     */
+    @Override
+    public long reconcile() {
+        Map<Long, UserSearchResultDTO> before = new HashMap<>(index.users);
+        rebuild();
+
+        Map<Long, UserSearchResultDTO> after = index.users;
+        Set<Long> userIds = new HashSet<>(before.keySet());
+        userIds.addAll(after.keySet());
+        return userIds.stream()
+                .filter(userId -> !Objects.equals(before.get(userId), after.get(userId)))
+                .count();
+    }
+
+    @Override
+    public void onUserCreated(long userId) {
+        refresh(userId);
+    }
+
+    @Override
+    public void onUserUpdated(long userId) {
+        refresh(userId);
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        if (!enabled)
+            return;
+        markChanged(userId);
+        index.remove(userId);
+    }
+
+    private void refresh(long userId) {
+        if (!enabled)
+            return;
+        markChanged(userId);
+        refresh(index, userId);
+    }
+
+    private void refresh(Index target, long userId) {
+        List<Object[]> rows = userRepository.findSearchProjection(userId);
+        if (rows.isEmpty())
+            target.remove(userId);
+        else
+            target.put(toResult(rows.get(0)));
+    }
+
+    /**
+     * Запоминает пользователя для повторного чтения, если идет перестройка. Вызывается до чтения из БД,
+     * поэтому событие либо попадает в перестраиваемый индекс, либо применяется уже к подмененному.
+     */
+    private void markChanged(long userId) {
+        synchronized (rebuildLock) {
+            if (changedDuringRebuild != null)
+                changedDuringRebuild.add(userId);
+        }
+    }
+
+    private static String firstMatchingKey(UserSearchResultDTO user, String prefix) {
+        String usernameKey = key(user.username(), user.id());
+        String emailKey = key(user.email(), user.id());
+        boolean usernameMatches = usernameKey.startsWith(prefix);
+        boolean emailMatches = emailKey.startsWith(prefix);
+        if (usernameMatches && emailMatches)
+            return usernameKey.compareTo(emailKey) <= 0 ? usernameKey : emailKey;
+        return usernameMatches ? usernameKey : emailKey;
+    }
+
+    private static String key(String value, long userId) {
+        return value.toLowerCase(Locale.ROOT) + SEPARATOR + userId;
+    }
+
+    private static UserSearchResultDTO toResult(Object[] row) {
+        return new UserSearchResultDTO((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+    }
+
+    public record Match(UserSearchResultDTO user, String key) {}
+
+    private static final class Index {
+
+        private final ConcurrentSkipListMap<String, Long> terms = new ConcurrentSkipListMap<>();
+        private final Map<Long, UserSearchResultDTO> users = new ConcurrentHashMap<>();
+
+        private synchronized void put(UserSearchResultDTO user) {
+            remove(user.id());
+            users.put(user.id(), user);
+            terms.put(key(user.username(), user.id()), user.id());
+            terms.put(key(user.email(), user.id()), user.id());
+        }
+
+        private synchronized void remove(long userId) {
+            UserSearchResultDTO previous = users.remove(userId);
+            if (previous != null) {
+                terms.remove(key(previous.username(), userId));
+                terms.remove(key(previous.email(), userId));
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.webrise.technicaltask.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.webrise.technicaltask.util.compression.PrecompressedResponseCache;
+import ru.webrise.technicaltask.util.compression.PrecompressedResponseFilter;
+
+/**
+ * Подключает кэш заранее сжатых ответов к эндпоинтам провайдеров и топа подписок.
+ * <p>
+ * Сжатие остальных ответов выполняет Tomcat по настройкам {@code server.compression.*}.
+ */
+@Configuration
+public class CompressionConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "responses.precompressed", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<PrecompressedResponseFilter> precompressedResponseFilter(PrecompressedResponseCache cache) {
+        FilterRegistrationBean<PrecompressedResponseFilter> registration =
+                new FilterRegistrationBean<>(new PrecompressedResponseFilter(cache));
+        registration.addUrlPatterns("/subscription-provider/*", "/subscriptions/top");
+        return registration;
+    }
+}
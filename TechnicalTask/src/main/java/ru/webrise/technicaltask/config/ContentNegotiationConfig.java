@@ -0,0 +1,67 @@
+package ru.webrise.technicaltask.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.webrise.technicaltask.util.converters.ProtobufResponseHttpMessageConverter;
+
+import java.util.List;
+
+/**
+ * Бинарные представления ответов API, выбираемые по заголовку {@code Accept}.
+ * <p>
+ * Без заголовка или с {@code application/json} ответ остается в JSON. Дополнительно поддерживаются
+ * {@code application/cbor} и {@code application/x-jackson-smile} (те же настройки Jackson, что и для JSON)
+ * и {@code application/x-protobuf} для пользователя, списков подписок и топа провайдеров.
+ * <p>
+ * GET-ответы помечаются {@code Vary: Accept}, а их ETag строится с учетом представления
+ * ({@link ru.webrise.technicaltask.util.ETags#representation}), чтобы кэши не смешивали форматы.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.factory(new SmileFactory()).build()));
+        converters.add(new ProtobufResponseHttpMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new VaryByAcceptInterceptor());
+    }
+
+    /**
+     * Выставляет {@code Vary: Accept} до вызова обработчика, чтобы заголовок попал и в {@code 304 Not Modified}.
+     */
+    private static final class VaryByAcceptInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            return true;
+        }
+    }
+}
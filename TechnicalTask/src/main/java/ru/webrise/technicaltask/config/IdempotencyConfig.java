@@ -0,0 +1,26 @@
+package ru.webrise.technicaltask.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.webrise.technicaltask.util.idempotency.IdempotencyKeyFilter;
+import ru.webrise.technicaltask.util.idempotency.IdempotencyKeyStore;
+
+/**
+ * Подключает обработку заголовка {@code Idempotency-Key} к эндпоинтам создания пользователей и подписок.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "idempotency", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<IdempotencyKeyFilter> idempotencyKeyFilter(IdempotencyKeyStore store,
+                                                                             ObjectMapper objectMapper) {
+        FilterRegistrationBean<IdempotencyKeyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyKeyFilter(store, objectMapper));
+        registration.addUrlPatterns("/users", "/users/*");
+        return registration;
+    }
+}
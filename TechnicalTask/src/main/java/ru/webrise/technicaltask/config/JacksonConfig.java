@@ -0,0 +1,37 @@
+package ru.webrise.technicaltask.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.webrise.technicaltask.util.converters.DtoJsonHttpMessageConverter;
+
+import java.util.List;
+
+/**
+ * Настройка сериализации ответов API.
+ * <p>
+ * Модуль Blackbird заменяет рефлективный доступ к свойствам на сгенерированные лямбды и подключается
+ * ко всем {@link ObjectMapper} приложения (JSON, CBOR, Smile). DTO ответов записываются
+ * {@link DtoJsonHttpMessageConverter} раньше стандартного JSON-конвертера.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class JacksonConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    @Bean
+    public static Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new DtoJsonHttpMessageConverter(objectMapper));
+    }
+}
@@ -0,0 +1,11 @@
+package ru.webrise.technicaltask.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+
+@Configuration
+@Profile("production")
+@PropertySource("classpath:application-production.properties")
+public class ProductionConfig {
+}
@@ -0,0 +1,51 @@
+package ru.webrise.technicaltask.controllers;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.webrise.technicaltask.dto.AudienceDTO;
+import ru.webrise.technicaltask.services.AudienceService;
+
+/**
+ * REST контроллер для выборки аудиторий по подпискам.
+ * Предоставляет эндпоинт для теоретико-множественных запросов над подписчиками провайдеров.
+ */
+@RestController
+@RequestMapping("/subscriptions/audience")
+@Validated
+@RequiredArgsConstructor
+public class AudienceController {
+
+    private final AudienceService audienceService;
+
+    /**
+     * Возвращает пользователей, удовлетворяющих выражению над провайдерами.
+     *
+     * @param expr Выражение над ID провайдеров, например {@code 1 AND (2 OR 3) ANDNOT 4}
+     * @param minProviders Минимальное количество провайдеров с активной подпиской
+     * @param afterUserId ID пользователя, после которого начинается страница
+     * @param limit Размер страницы
+     * @param countOnly Вернуть только количество пользователей
+     * @return Количество пользователей и страница их идентификаторов
+     */
+    @GetMapping
+    public ResponseEntity<AudienceDTO> getAudience(
+            @RequestParam(name = "expr", required = false) String expr,
+            @RequestParam(name = "minProviders", required = false)
+            @Min(value = 1, message = "minProviders cannot be less than 1") Integer minProviders,
+            @RequestParam(name = "afterUserId", required = false, defaultValue = "0") long afterUserId,
+            @RequestParam(name = "limit", required = false, defaultValue = "100")
+            @Min(value = 1, message = "Limit cannot be less than 1")
+            @Max(value = 1000, message = "Limit cannot be more than 1000") int limit,
+            @RequestParam(name = "countOnly", required = false, defaultValue = "false") boolean countOnly
+    ) {
+        AudienceDTO audience = audienceService.getAudience(expr, minProviders, afterUserId, limit, countOnly);
+        return ResponseEntity.ok(audience);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.webrise.technicaltask.controllers;
+
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.webrise.technicaltask.dto.ProviderAffinityDTO;
+import ru.webrise.technicaltask.services.ProviderAffinityService;
+
+import java.util.List;
+
+/**
+ * REST контроллер для аналитики совместных подписок.
+ * Предоставляет эндпоинты для получения пересечения аудиторий провайдеров.
+ */
+@RestController
+@RequestMapping("/subscriptions/affinity")
+@Validated
+@RequiredArgsConstructor
+public class ProviderAffinityController {
+
+    private final ProviderAffinityService providerAffinityService;
+
+    /**
+     * Возвращает показатели совместных подписок для пары провайдеров.
+     *
+     * @param first Идентификатор первого провайдера
+     * @param second Идентификатор второго провайдера
+     * @return Показатели пары
+     */
+    @GetMapping
+    public ResponseEntity<ProviderAffinityDTO> getAffinity(
+            @RequestParam(name = "first") long first,
+            @RequestParam(name = "second") long second
+    ) {
+        return ResponseEntity.ok(providerAffinityService.getAffinity(first, second));
+    }
+
+    /**
+     * Возвращает пары провайдеров с наибольшей совместной аудиторией.
+     *
+     * @param limit Количество пар
+     * @param by Показатель для сортировки: {@code lift} или {@code overlap}
+     * @return Список пар
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<ProviderAffinityDTO>> getTopAffinities(
+            @RequestParam(name = "limit", required = false, defaultValue = "10")
+            @Min(value = 1, message = "Limit cannot be less than 1") int limit,
+            @RequestParam(name = "by", required = false, defaultValue = "lift") String by
+    ) {
+        return ResponseEntity.ok(providerAffinityService.getTopAffinities(limit, by));
+    }
+}
@@ -0,0 +1,53 @@
+package ru.webrise.technicaltask.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.webrise.technicaltask.dto.ProviderJobDTO;
+import ru.webrise.technicaltask.dto.ProviderJobOperation;
+import ru.webrise.technicaltask.services.ProviderJobService;
+
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * REST контроллер для фоновых массовых операций над подписками провайдера.
+ * Предоставляет эндпоинты запуска деактивации или удаления подписок провайдера и получения статуса задачи.
+ */
+@RestController
+@RequestMapping("/subscription-provider")
+@RequiredArgsConstructor
+public class ProviderJobController {
+
+    private final ProviderJobService providerJobService;
+
+    /**
+     * Запускает фоновую задачу над подписками провайдера.
+     * <p>
+     * Возвращает 202 и ссылку на статус задачи в заголовке {@code Location}.
+     * </p>
+     *
+     * @param id Идентификатор провайдера
+     * @param operation Операция: {@code deactivate} - деактивировать все подписки,
+     *                  {@code delete} - удалить подписки и самого провайдера
+     * @return Состояние задачи
+     */
+    @PostMapping("/{id}/jobs")
+    public ResponseEntity<ProviderJobDTO> startJob(@PathVariable long id, @RequestParam ProviderJobOperation operation) {
+        ProviderJobDTO job = providerJobService.startJob(id, operation);
+        return ResponseEntity.accepted()
+                .location(URI.create("/subscription-provider/jobs/" + job.id()))
+                .body(job);
+    }
+
+    /**
+     * Получает состояние фоновой задачи.
+     *
+     * @param jobId Идентификатор задачи
+     * @return Состояние задачи и прогресс
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ProviderJobDTO> getJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(providerJobService.getJob(jobId));
+    }
+}
@@ -0,0 +1,52 @@
+package ru.webrise.technicaltask.controllers;
+
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.webrise.technicaltask.dto.RevenueDTO;
+import ru.webrise.technicaltask.services.RevenueService;
+
+import java.time.LocalDate;
+
+/**
+ * REST контроллер для отчетов по выручке подписок.
+ * Предоставляет эндпоинт для получения MRR по провайдерам и дневного ряда.
+ */
+@RestController
+@RequestMapping("/subscriptions/revenue")
+@Validated
+@RequiredArgsConstructor
+public class RevenueController {
+
+    private static final int DEFAULT_SERIES_DAYS = 30;
+
+    private final RevenueService revenueService;
+
+    /**
+     * Возвращает MRR по провайдерам, общий MRR и дневной ряд за период.
+     *
+     * @param from Первый день ряда (по умолчанию 30 дней до {@code to})
+     * @param to Последний день ряда (по умолчанию текущий день)
+     * @param providerId ID провайдера для фильтрации (необязательно)
+     * @return Отчет по выручке
+     */
+    @GetMapping
+    public ResponseEntity<RevenueDTO> getRevenue(
+            @RequestParam(name = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "providerId", required = false)
+            @Min(value = 1, message = "Provider id cannot be less than 1") Long providerId
+    ) {
+        LocalDate seriesTo = to != null ? to : LocalDate.now();
+        LocalDate seriesFrom = from != null ? from : seriesTo.minusDays(DEFAULT_SERIES_DAYS - 1);
+        return ResponseEntity.ok(revenueService.getRevenue(seriesFrom, seriesTo, providerId));
+    }
+}
@@ -0,0 +1,52 @@
+package ru.webrise.technicaltask.controllers;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.webrise.technicaltask.dto.SubscriptionBatchDTO;
+import ru.webrise.technicaltask.dto.SubscriptionBatchResultDTO;
+import ru.webrise.technicaltask.services.SubscriptionBatchService;
+import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
+
+/**
+ * REST контроллер для пакетного изменения подписок пользователя.
+ * Предоставляет эндпоинт, применяющий набор операций создания, обновления и удаления в одной транзакции.
+ */
+@RestController
+@RequestMapping("/users/{userId}")
+@Validated
+@RequiredArgsConstructor
+public class SubscriptionBatchController {
+
+    private final SubscriptionBatchService subscriptionBatchService;
+    private final BindingResultErrorHandler bindingResultErrorHandler;
+
+    /**
+     * Применяет пакет операций над подписками пользователя.
+     * <p>
+     * Пакет применяется целиком или не применяется совсем: при ошибке в любой операции
+     * возвращается 400 с описанием ошибки у некорректных операций и статусом {@code not_applied} у остальных.
+     * </p>
+     *
+     * @param userId Идентификатор пользователя
+     * @param batchDTO DTO со списком операций
+     * @param bindingResult Результат валидации входящих данных
+     * @return Результат по каждой операции
+     */
+    @PostMapping("/subscriptions:batch")
+    public ResponseEntity<SubscriptionBatchResultDTO> applyBatch(
+            @PathVariable @Min(1) long userId,
+            @RequestBody @Valid SubscriptionBatchDTO batchDTO,
+            BindingResult bindingResult
+    ) {
+        if (bindingResult.hasErrors())
+            bindingResultErrorHandler.handleError(bindingResult);
+
+        SubscriptionBatchResultDTO result = subscriptionBatchService.applyBatch(userId, batchDTO.getOperations());
+        return result.applied() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+}
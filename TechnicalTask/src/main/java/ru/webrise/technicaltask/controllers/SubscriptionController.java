@@ -81,14 +81,35 @@ public class SubscriptionController {
      * Получает список всех подписок пользователя.
      *
      * @param userId Идентификатор пользователя
+     * @param includeArchived Включать ли неактивные и архивные подписки
      * @return Список подписок пользователя в формате JSON
      */
     @GetMapping
-    public ResponseEntity<List<UserSubscriptionsDTO>> getSubscriptions(@PathVariable @Min(1) long userId) {
-        List<UserSubscriptionsDTO> subscriptions = subscriptionService.getSubscriptionByUserId(userId);
+    public ResponseEntity<List<UserSubscriptionsDTO>> getSubscriptions(
+            @PathVariable @Min(1) long userId,
+            @RequestParam(name = "includeArchived", required = false, defaultValue = "false") boolean includeArchived
+    ) {
+        List<UserSubscriptionsDTO> subscriptions = subscriptionService.getSubscriptionByUserId(userId, includeArchived);
         return ResponseEntity.ok(subscriptions);
     }
 
+    /**
+     * Получает список подписок пользователя только с запрошенными полями.
+     *
+     * @param userId Идентификатор пользователя
+     * @param includeArchived Включать ли неактивные и архивные подписки
+     * @param fields Список возвращаемых полей через запятую
+     * @return Список подписок пользователя с запрошенными полями
+     */
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getSubscriptionFields(
+            @PathVariable @Min(1) long userId,
+            @RequestParam(name = "includeArchived", required = false, defaultValue = "false") boolean includeArchived,
+            @RequestParam(name = "fields") String fields
+    ) {
+        return ResponseEntity.ok(subscriptionService.getSubscriptionFieldsByUserId(userId, includeArchived, fields));
+    }
+
     /**
      * Удаляет конкретную подписку пользователя.
      *
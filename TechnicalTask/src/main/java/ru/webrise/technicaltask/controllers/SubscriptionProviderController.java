@@ -5,9 +5,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.webrise.technicaltask.dto.ProviderResponseDTO;
 import ru.webrise.technicaltask.dto.SubscriptionProviderDTO;
 import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.services.SubscriptionProviderService;
+import ru.webrise.technicaltask.util.ETags;
 import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
 
 /**
@@ -24,14 +27,21 @@ public class SubscriptionProviderController {
 
     /**
      * Получает информацию о провайдере подписки по идентификатору.
+     * <p>
+     * Ответ содержит строгий ETag по данным провайдера, при совпадении с {@code If-None-Match}
+     * возвращается 304 без тела.
+     * </p>
      *
      * @param id Идентификатор провайдера подписки
+     * @param request Текущий запрос
      * @return Данные провайдера в формате JSON
      */
     @GetMapping("/{id}")
-    public ResponseEntity<SubscriptionProvider> getSubscriptionProviderById(@PathVariable long id) {
+    public ResponseEntity<ProviderResponseDTO> getSubscriptionProviderById(@PathVariable long id, WebRequest request) {
         SubscriptionProvider provider = subscriptionProviderService.getSubscriptionProviderInfo(id);
-        return ResponseEntity.ok().body(provider);
+        return ResponseEntity.ok()
+                .eTag(ETags.ofContent(request, provider.getId(), provider.getName(), provider.getPrice()))
+                .body(ProviderResponseDTO.from(provider));
     }
 
     /**
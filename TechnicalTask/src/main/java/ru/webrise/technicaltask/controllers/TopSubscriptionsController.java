@@ -1,22 +1,29 @@
 package ru.webrise.technicaltask.controllers;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.webrise.technicaltask.dto.SubscriptionStats;
 import ru.webrise.technicaltask.services.SubscriptionService;
+import ru.webrise.technicaltask.services.TopSubscriptionsStreamService;
+import ru.webrise.technicaltask.services.TrendingService;
+import ru.webrise.technicaltask.util.ETags;
 import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
 
 import java.util.List;
 
 /**
  * REST контроллер для получения топа подписок.
- * Предоставляет эндпоинт для получения списка самых популярных подписок.
+ * Предоставляет эндпоинты для получения списка самых популярных подписок и потока его изменений.
  */
 @RestController
 @RequestMapping("/subscriptions")
@@ -25,19 +32,49 @@ import java.util.List;
 public class TopSubscriptionsController {
 
     private final SubscriptionService subscriptionService;
+    private final TrendingService trendingService;
+    private final TopSubscriptionsStreamService topSubscriptionsStreamService;
 
     /**
      * Возвращает список самых популярных подписок.
+     * <p>
+     * Если передан параметр {@code window}, возвращает провайдеров с наибольшим
+     * количеством новых подписок за окно вместо общего количества активных подписок.
+     * </p>
      *
      * @param limit Ограничение количества сервисов в списке
-     * @return Список подписок
+     * @param window Окно для трендов: {@code 1h}, {@code 24h} или {@code 7d} (необязательно)
+     * @param by Показатель для трендов: {@code new}
+     * @param request Текущий запрос
+     * @return Список подписок со строгим ETag по содержимому (при совпадении с {@code If-None-Match} - 304)
      */
     @GetMapping("/top")
     public ResponseEntity<List<SubscriptionStats>> getTopSubscriptions(
             @RequestParam(name = "limit", required = false, defaultValue = "3")
-            @Min(value = 1, message = "Limit cannot be less than 0") int limit
+            @Min(value = 1, message = "Limit cannot be less than 0") int limit,
+            @RequestParam(name = "window", required = false) String window,
+            @RequestParam(name = "by", required = false, defaultValue = "new") String by,
+            WebRequest request
     ) {
-        List<SubscriptionStats> topProviders = subscriptionService.getTopSubscriptions(limit);
-        return ResponseEntity.ok(topProviders);
+        List<SubscriptionStats> topProviders = window == null
+                ? subscriptionService.getTopSubscriptions(limit)
+                : trendingService.getTrendingSubscriptions(window, by, limit);
+        return ResponseEntity.ok().eTag(ETags.ofContent(request, topProviders)).body(topProviders);
+    }
+
+    /**
+     * Открывает поток Server-Sent Events с топом подписок.
+     * Событие {@code top} отправляется при подключении и далее только при изменении топа.
+     *
+     * @param limit Ограничение количества сервисов в списке
+     * @return Поток событий
+     */
+    @GetMapping(value = "/top/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTopSubscriptions(
+            @RequestParam(name = "limit", required = false, defaultValue = "3")
+            @Min(value = 1, message = "Limit cannot be less than 1")
+            @Max(value = 100, message = "Limit cannot be greater than 100") int limit
+    ) {
+        return topSubscriptionsStreamService.subscribe(limit);
     }
 }
\ No newline at end of file
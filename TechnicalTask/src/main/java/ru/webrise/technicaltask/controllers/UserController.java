@@ -5,10 +5,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.webrise.technicaltask.dto.UpdateUserDTO;
 import ru.webrise.technicaltask.dto.UserDTO;
-import ru.webrise.technicaltask.models.User;
+import ru.webrise.technicaltask.dto.UserSummaryDTO;
 import ru.webrise.technicaltask.services.UserService;
+import ru.webrise.technicaltask.util.ETags;
 import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
 
 import java.util.HashMap;
@@ -50,14 +52,41 @@ public class UserController {
 
     /**
      * Получает информацию о пользователе по его идентификатору.
+     * <p>
+     * Ответ содержит строгий ETag. Если он совпадает с {@code If-None-Match}, возвращается
+     * 304 после запроса одной версии профиля, без загрузки пользователя и подписок.
+     * </p>
      *
      * @param userId Идентификатор пользователя
+     * @param fields Список возвращаемых полей через запятую (необязательно)
+     * @param request Текущий запрос
      * @return Данные пользователя в формате JSON
      */
     @GetMapping("/{userId}")
-    public ResponseEntity<User> getUser(@PathVariable(name = "userId") long userId) {
-        User user = userService.getUserInfo(userId);
-        return ResponseEntity.ok().body(user);
+    public ResponseEntity<?> getUser(
+            @PathVariable(name = "userId") long userId,
+            @RequestParam(name = "fields", required = false) String fields,
+            WebRequest request
+    ) {
+        String etag = ETags.of(userService.getUserVersion(userId), request);
+        if (request.checkNotModified(etag))
+            return null;
+
+        if (fields != null)
+            return ResponseEntity.ok().eTag(etag).body(userService.getUserFields(userId, fields));
+
+        return ResponseEntity.ok().eTag(etag).body(userService.getUserResponse(userId));
+    }
+
+    /**
+     * Получает количество активных подписок пользователя и сумму их ежемесячной оплаты.
+     *
+     * @param userId Идентификатор пользователя
+     * @return Сводка подписок пользователя
+     */
+    @GetMapping("/{userId}/summary")
+    public ResponseEntity<UserSummaryDTO> getUserSummary(@PathVariable(name = "userId") long userId) {
+        return ResponseEntity.ok(userService.getUserSummary(userId));
     }
 
     /**
@@ -0,0 +1,49 @@
+package ru.webrise.technicaltask.controllers;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.webrise.technicaltask.dto.UserSearchDTO;
+import ru.webrise.technicaltask.services.UserSearchService;
+
+/**
+ * REST контроллер для поиска пользователей.
+ * Предоставляет эндпоинт поиска по части имени пользователя, email или полного имени.
+ */
+@RestController
+@RequestMapping("/users/search")
+@Validated
+@RequiredArgsConstructor
+public class UserSearchController {
+
+    private final UserSearchService userSearchService;
+
+    /**
+     * Ищет пользователей по строке.
+     *
+     * @param q Строка поиска
+     * @param mode {@code contains} - подстрока в имени, email или полном имени; {@code prefix} - префикс имени или email
+     * @param cursor Курсор следующей страницы из предыдущего ответа
+     * @param limit Размер страницы
+     * @return Страница найденных пользователей и курсор следующей страницы
+     */
+    @GetMapping
+    public ResponseEntity<UserSearchDTO> search(
+            @RequestParam(name = "q")
+            @Size(max = 100, message = "Search query cannot be longer than 100 characters") String q,
+            @RequestParam(name = "mode", required = false, defaultValue = "contains") String mode,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false, defaultValue = "20")
+            @Min(value = 1, message = "Limit cannot be less than 1")
+            @Max(value = 100, message = "Limit cannot be more than 100") int limit
+    ) {
+        return ResponseEntity.ok(userSearchService.search(q, mode, cursor, limit));
+    }
+}
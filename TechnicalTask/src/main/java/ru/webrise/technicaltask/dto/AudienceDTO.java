@@ -0,0 +1,9 @@
+package ru.webrise.technicaltask.dto;
+
+import java.util.List;
+
+public record AudienceDTO(
+        long count,
+        List<Long> userIds,
+        Long nextAfterUserId
+) {}
@@ -0,0 +1,12 @@
+package ru.webrise.technicaltask.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailyRevenueDTO(
+        LocalDate day,
+        long startedSubscriptions,
+        long endedSubscriptions,
+        long activeSubscriptions,
+        BigDecimal mrr
+) {}
@@ -0,0 +1,13 @@
+package ru.webrise.technicaltask.dto;
+
+public record ProviderAffinityDTO(
+        Long firstProviderId,
+        String firstProviderName,
+        Long secondProviderId,
+        String secondProviderName,
+        long firstSubscribers,
+        long secondSubscribers,
+        long overlap,
+        double jaccard,
+        double lift
+) {}
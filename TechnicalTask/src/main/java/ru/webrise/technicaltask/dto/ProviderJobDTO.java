@@ -0,0 +1,20 @@
+package ru.webrise.technicaltask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProviderJobDTO(
+        UUID id,
+        long providerId,
+        ProviderJobOperation operation,
+        String status,
+        long total,
+        long processed,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        String error
+) {}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum ProviderJobOperation {
+    @JsonProperty("deactivate") DEACTIVATE,
+    @JsonProperty("delete") DELETE
+}
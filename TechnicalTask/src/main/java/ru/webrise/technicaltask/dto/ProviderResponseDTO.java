@@ -0,0 +1,16 @@
+package ru.webrise.technicaltask.dto;
+
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+
+import java.math.BigDecimal;
+
+public record ProviderResponseDTO(
+        Long id,
+        String name,
+        BigDecimal price
+) {
+
+    public static ProviderResponseDTO from(SubscriptionProvider provider) {
+        return new ProviderResponseDTO(provider.getId(), provider.getName(), provider.getPrice());
+    }
+}
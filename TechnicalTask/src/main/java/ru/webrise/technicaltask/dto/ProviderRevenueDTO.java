@@ -0,0 +1,11 @@
+package ru.webrise.technicaltask.dto;
+
+import java.math.BigDecimal;
+
+public record ProviderRevenueDTO(
+        Long providerId,
+        String providerName,
+        BigDecimal price,
+        long activeSubscriptions,
+        BigDecimal mrr
+) {}
@@ -0,0 +1,13 @@
+package ru.webrise.technicaltask.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record RevenueDTO(
+        BigDecimal totalMrr,
+        long activeSubscriptions,
+        LocalDateTime refreshedAt,
+        List<ProviderRevenueDTO> providers,
+        List<DailyRevenueDTO> daily
+) {}
@@ -0,0 +1,22 @@
+package ru.webrise.technicaltask.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubscriptionBatchDTO {
+
+    @NotEmpty(message = "Operations must not be empty")
+    @Size(max = 100, message = "Batch cannot contain more than 100 operations")
+    @Valid
+    private List<@NotNull(message = "Operation must not be null") SubscriptionOperationDTO> operations;
+}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.dto;
+
+import java.util.List;
+
+public record SubscriptionBatchResultDTO(
+        boolean applied,
+        List<SubscriptionOperationResultDTO> results
+) {}
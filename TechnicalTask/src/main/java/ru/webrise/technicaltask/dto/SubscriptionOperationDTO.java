@@ -0,0 +1,21 @@
+package ru.webrise.technicaltask.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubscriptionOperationDTO {
+
+    @NotNull(message = "Operation type must not be null")
+    private SubscriptionOperationType op;
+
+    private Long subscriptionId;
+
+    @Valid
+    private SubscriptionDTO subscription;
+}
@@ -0,0 +1,12 @@
+package ru.webrise.technicaltask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SubscriptionOperationResultDTO(
+        int index,
+        SubscriptionOperationType op,
+        Long subscriptionId,
+        String status,
+        String message
+) {}
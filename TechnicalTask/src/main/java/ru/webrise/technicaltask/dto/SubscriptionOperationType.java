@@ -0,0 +1,9 @@
+package ru.webrise.technicaltask.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum SubscriptionOperationType {
+    @JsonProperty("create") CREATE,
+    @JsonProperty("update") UPDATE,
+    @JsonProperty("delete") DELETE
+}
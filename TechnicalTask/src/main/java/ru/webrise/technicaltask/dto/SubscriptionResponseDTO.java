@@ -0,0 +1,24 @@
+package ru.webrise.technicaltask.dto;
+
+import ru.webrise.technicaltask.models.Subscription;
+
+import java.time.LocalDateTime;
+
+public record SubscriptionResponseDTO(
+        Long id,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        boolean active,
+        ProviderResponseDTO subscriptionProvider
+) {
+
+    public static SubscriptionResponseDTO from(Subscription subscription) {
+        return new SubscriptionResponseDTO(
+                subscription.getId(),
+                subscription.getStartDate(),
+                subscription.getEndDate(),
+                subscription.isActive(),
+                ProviderResponseDTO.from(subscription.getSubscriptionProvider())
+        );
+    }
+}
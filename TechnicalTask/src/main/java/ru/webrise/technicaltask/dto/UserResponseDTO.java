@@ -0,0 +1,31 @@
+package ru.webrise.technicaltask.dto;
+
+import ru.webrise.technicaltask.models.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record UserResponseDTO(
+        Long id,
+        String username,
+        String email,
+        String fullName,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        List<SubscriptionResponseDTO> subscriptions
+) {
+
+    public static UserResponseDTO from(User user) {
+        return new UserResponseDTO(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getFullName(),
+                user.getCreatedAt(),
+                user.getUpdatedAt(),
+                user.getSubscriptions() == null
+                        ? null
+                        : user.getSubscriptions().stream().map(SubscriptionResponseDTO::from).toList()
+        );
+    }
+}
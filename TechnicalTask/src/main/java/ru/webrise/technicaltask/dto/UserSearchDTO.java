@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.dto;
+
+import java.util.List;
+
+public record UserSearchDTO(
+        List<UserSearchResultDTO> users,
+        String nextCursor
+) {}
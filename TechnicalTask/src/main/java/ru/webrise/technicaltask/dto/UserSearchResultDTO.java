@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.dto;
+
+public record UserSearchResultDTO(
+        long id,
+        String username,
+        String email,
+        String fullName
+) {}
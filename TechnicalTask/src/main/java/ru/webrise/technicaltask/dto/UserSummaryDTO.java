@@ -0,0 +1,9 @@
+package ru.webrise.technicaltask.dto;
+
+import java.math.BigDecimal;
+
+public record UserSummaryDTO(
+        long userId,
+        int activeSubscriptionCount,
+        BigDecimal monthlySpend
+) {}
@@ -0,0 +1,104 @@
+package ru.webrise.technicaltask.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Внутрипроцессная шина событий изменений, которые ретранслируются из outbox.
+ * <p>
+ * События складываются в ограниченную очередь и доставляются получателям (кроме
+ * {@link SubscriptionChangeListener#isImmediate()}) одним фоновым потоком в порядке поступления.
+ * Ретранслятор читает из outbox новую пачку, только если в очереди есть место под нее целиком,
+ * поэтому при медленных получателях события копятся в таблице, а не в памяти.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code events.bus.queue.size} - количество событий, ожидающих доставки</li>
+ *     <li>{@code events.bus.delivered} - общее количество доставленных событий</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "events.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionChangeBus {
+
+    private final ObjectProvider<SubscriptionChangeListener> listeners;
+    private final BlockingQueue<SubscriptionChangeEvent> queue;
+    private final Counter deliveredCounter;
+    private final Thread dispatcher = new Thread(this::dispatchLoop, "subscription-change-bus");
+
+    public SubscriptionChangeBus(
+            ObjectProvider<SubscriptionChangeListener> listeners,
+            MeterRegistry meterRegistry,
+            @Value("${events.bus.capacity:10000}") int capacity
+    ) {
+        this.listeners = listeners;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.deliveredCounter = Counter.builder("events.bus.delivered")
+                .description("Total number of outbox events delivered to listeners")
+                .register(meterRegistry);
+        Gauge.builder("events.bus.queue.size", queue, BlockingQueue::size)
+                .description("Number of outbox events waiting for delivery")
+                .register(meterRegistry);
+        dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.interrupt();
+    }
+
+    /**
+     * Возвращает количество событий, которые можно опубликовать без ожидания.
+     *
+     * @return Свободное место в очереди
+     */
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    /**
+     * Ставит события в очередь доставки, ожидая освобождения места при заполненной очереди.
+     *
+     * @param events События в порядке записи в outbox
+     * @throws InterruptedException если поток прерван во время ожидания
+     */
+    public void publish(List<SubscriptionChangeEvent> events) throws InterruptedException {
+        for (SubscriptionChangeEvent event : events)
+            queue.put(event);
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            SubscriptionChangeEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            SubscriptionChangeNotifier.deliver(event, listeners.orderedStream()
+                    .filter(listener -> !listener.isImmediate()));
+            deliveredCounter.increment();
+        }
+        log.debug("Subscription change bus stopped with {} undelivered events", queue.size());
+    }
+}
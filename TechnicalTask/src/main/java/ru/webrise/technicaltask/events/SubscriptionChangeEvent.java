@@ -0,0 +1,43 @@
+package ru.webrise.technicaltask.events;
+
+/**
+ * Изменение состояния подписок или пользователя в виде, пригодном для записи в outbox.
+ * <p>
+ * Для событий провайдера {@code userId} не задан, для событий пользователя не задан {@code providerId}.
+ * {@code txId} - номер транзакции, записавшей событие в outbox; у событий, доставленных напрямую, не задан.
+ */
+public record SubscriptionChangeEvent(Type type, Long userId, Long providerId, Long txId) {
+
+    public SubscriptionChangeEvent(Type type, Long userId, Long providerId) {
+        this(type, userId, providerId, null);
+    }
+
+    public enum Type {
+        SUBSCRIPTION_CREATED,
+        SUBSCRIPTION_ACTIVATED,
+        SUBSCRIPTION_DEACTIVATED,
+        PROVIDER_UPDATED,
+        PROVIDER_REMOVED,
+        USER_CREATED,
+        USER_UPDATED,
+        USER_DELETED
+    }
+
+    /**
+     * Вызывает у получателя метод, соответствующий типу события.
+     *
+     * @param listener Получатель изменений
+     */
+    public void deliverTo(SubscriptionChangeListener listener) {
+        switch (type) {
+            case SUBSCRIPTION_CREATED -> listener.onSubscriptionCreated(userId, providerId);
+            case SUBSCRIPTION_ACTIVATED -> listener.onSubscriptionActivated(userId, providerId);
+            case SUBSCRIPTION_DEACTIVATED -> listener.onSubscriptionDeactivated(userId, providerId);
+            case PROVIDER_UPDATED -> listener.onProviderUpdated(providerId);
+            case PROVIDER_REMOVED -> listener.onProviderRemoved(providerId);
+            case USER_CREATED -> listener.onUserCreated(userId);
+            case USER_UPDATED -> listener.onUserUpdated(userId);
+            case USER_DELETED -> listener.onUserDeleted(userId);
+        }
+    }
+}
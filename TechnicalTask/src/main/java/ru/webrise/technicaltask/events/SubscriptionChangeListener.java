@@ -0,0 +1,52 @@
+package ru.webrise.technicaltask.events;
+
+/**
+ * Получатель изменений состояния подписок.
+ * <p>
+ * Вызывается {@link SubscriptionChangeNotifier} после фиксации транзакции, в которой произошло изменение.
+ * Событие активации означает, что у пользователя появилась активная подписка на провайдера,
+ * событие деактивации - что она перестала быть активной (деактивирована или удалена).
+ * Событие создания приходит для каждой новой подписки независимо от ее активности.
+ * Получатель переопределяет только интересующие его события.
+ * <p>
+ * Если включен outbox ({@code events.outbox.enabled}), события доставляются асинхронно через
+ * {@link SubscriptionChangeBus} в порядке записи, кроме получателей с {@link #isImmediate()}.
+ */
+public interface SubscriptionChangeListener {
+
+    /**
+     * Принимает событие целиком и по умолчанию вызывает метод, соответствующий его типу.
+     * Переопределяется получателями, которым нужна транзакция события ({@link SubscriptionChangeEvent#txId()}).
+     *
+     * @param event Событие изменения
+     */
+    default void onChange(SubscriptionChangeEvent event) {
+        event.deliverTo(this);
+    }
+
+    default void onSubscriptionCreated(long userId, long providerId) {}
+
+    default void onSubscriptionActivated(long userId, long providerId) {}
+
+    default void onSubscriptionDeactivated(long userId, long providerId) {}
+
+    default void onProviderUpdated(long providerId) {}
+
+    default void onProviderRemoved(long providerId) {}
+
+    default void onUserCreated(long userId) {}
+
+    default void onUserUpdated(long userId) {}
+
+    default void onUserDeleted(long userId) {}
+
+    /**
+     * Получатель вызывается сразу после фиксации транзакции, минуя outbox.
+     * Нужен кэшам ответов, которые должны быть сброшены до того, как клиент получит ответ на запись.
+     *
+     * @return {@code true}, если события нужны синхронно
+     */
+    default boolean isImmediate() {
+        return false;
+    }
+}
@@ -0,0 +1,140 @@
+package ru.webrise.technicaltask.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent.Type;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Рассылает изменения состояния подписок всем {@link SubscriptionChangeListener}.
+ * <p>
+ * Если вызов происходит внутри транзакции, доставка откладывается до ее успешной фиксации,
+ * поэтому откаченные изменения до получателей не доходят. Ошибка одного получателя
+ * не мешает доставке остальным.
+ * <p>
+ * При включенном outbox ({@code events.outbox.enabled}) события накапливаются за транзакцию
+ * и перед фиксацией записываются одним пакетом в {@code subscription_change_outbox}, откуда их
+ * читает {@code SubscriptionOutboxRelayService} каждого узла и передает в его {@link SubscriptionChangeBus}.
+ * Напрямую после фиксации вызываются только получатели с {@link SubscriptionChangeListener#isImmediate()},
+ * поэтому время записи не растет с числом получателей.
+ */
+@Component
+@Slf4j
+public class SubscriptionChangeNotifier {
+
+    private final ObjectProvider<SubscriptionChangeListener> listeners;
+    private final SubscriptionChangeOutboxRepository outboxRepository;
+    private final boolean outboxEnabled;
+
+    public SubscriptionChangeNotifier(
+            ObjectProvider<SubscriptionChangeListener> listeners,
+            SubscriptionChangeOutboxRepository outboxRepository,
+            @Value("${events.outbox.enabled:true}") boolean outboxEnabled
+    ) {
+        this.listeners = listeners;
+        this.outboxRepository = outboxRepository;
+        this.outboxEnabled = outboxEnabled;
+    }
+
+    public void subscriptionCreated(long userId, long providerId) {
+        dispatch(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, userId, providerId));
+    }
+
+    public void subscriptionActivated(long userId, long providerId) {
+        dispatch(new SubscriptionChangeEvent(Type.SUBSCRIPTION_ACTIVATED, userId, providerId));
+    }
+
+    public void subscriptionDeactivated(long userId, long providerId) {
+        dispatch(new SubscriptionChangeEvent(Type.SUBSCRIPTION_DEACTIVATED, userId, providerId));
+    }
+
+    public void providerUpdated(long providerId) {
+        dispatch(new SubscriptionChangeEvent(Type.PROVIDER_UPDATED, null, providerId));
+    }
+
+    public void providerRemoved(long providerId) {
+        dispatch(new SubscriptionChangeEvent(Type.PROVIDER_REMOVED, null, providerId));
+    }
+
+    public void userCreated(long userId) {
+        dispatch(new SubscriptionChangeEvent(Type.USER_CREATED, userId, null));
+    }
+
+    public void userUpdated(long userId) {
+        dispatch(new SubscriptionChangeEvent(Type.USER_UPDATED, userId, null));
+    }
+
+    public void userDeleted(long userId) {
+        dispatch(new SubscriptionChangeEvent(Type.USER_DELETED, userId, null));
+    }
+
+    private void dispatch(SubscriptionChangeEvent event) {
+        if (outboxEnabled)
+            record(event);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(event);
+            }
+        });
+    }
+
+    private void deliver(SubscriptionChangeEvent event) {
+        Stream<SubscriptionChangeListener> recipients = listeners.orderedStream();
+        deliver(event, outboxEnabled ? recipients.filter(SubscriptionChangeListener::isImmediate) : recipients);
+    }
+
+    /**
+     * Добавляет событие в outbox-пакет текущей транзакции, вне транзакции записывает его сразу.
+     */
+    private void record(SubscriptionChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRepository.insert(List.of(event));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<SubscriptionChangeEvent> pending = (List<SubscriptionChangeEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<SubscriptionChangeEvent> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    outboxRepository.insert(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SubscriptionChangeNotifier.this);
+                }
+            });
+            pending = batch;
+        }
+        pending.add(event);
+    }
+
+    static void deliver(SubscriptionChangeEvent event, Stream<SubscriptionChangeListener> recipients) {
+        recipients.forEach(listener -> {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                log.error("Subscription change listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+}
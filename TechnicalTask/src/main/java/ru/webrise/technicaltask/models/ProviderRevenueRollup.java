@@ -0,0 +1,30 @@
+package ru.webrise.technicaltask.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "subscription_revenue_current")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProviderRevenueRollup {
+
+    @Id
+    @Column(name = "service_id")
+    private Long providerId;
+
+    @Column(name = "active_subscriptions", nullable = false)
+    private long activeSubscriptions;
+
+    @Column(name = "refreshed_at", nullable = false)
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime refreshedAt;
+}
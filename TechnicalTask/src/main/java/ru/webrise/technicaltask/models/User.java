@@ -52,4 +52,9 @@ public class User {
     @JsonManagedReference
     @Fetch(FetchMode.SUBSELECT)
     private List<Subscription> subscriptions;
+
+    @PreUpdate
+    private void touchUpdatedAt() {
+        updatedAt = LocalDateTime.now();
+    }
 }
\ No newline at end of file
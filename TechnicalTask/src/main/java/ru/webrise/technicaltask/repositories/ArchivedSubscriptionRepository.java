@@ -0,0 +1,63 @@
+package ru.webrise.technicaltask.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.models.ArchivedSubscription;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchivedSubscriptionRepository extends JpaRepository<ArchivedSubscription, Long> {
+
+    @Query("""
+        SELECT new ru.webrise.technicaltask.dto.UserSubscriptionsDTO(
+            s.id,
+            s.startDate,
+            s.endDate,
+            s.active,
+            s.userId,
+            s.subscriptionProvider
+        )
+        FROM ArchivedSubscription s
+        WHERE s.userId = :userId
+        ORDER BY s.startDate
+    """)
+    List<UserSubscriptionsDTO> findByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = """
+        WITH moved AS (
+            DELETE FROM subscriptions
+            WHERE id IN (
+                SELECT id FROM subscriptions
+                WHERE active = false AND COALESCE(end_date, start_date) < :threshold
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, user_id, service_id, start_date, end_date, active
+        )
+        INSERT INTO subscriptions_archive (id, user_id, service_id, start_date, end_date, active, archived_at)
+        SELECT id, user_id, service_id, start_date, end_date, active, LOCALTIMESTAMP FROM moved
+    """, nativeQuery = true)
+    int archiveBatch(@Param("threshold") LocalDateTime threshold, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+        DELETE FROM subscriptions_archive
+        WHERE id IN (
+            SELECT id FROM subscriptions_archive
+            WHERE service_id = :providerId
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+    """, nativeQuery = true)
+    int deleteProviderBatch(@Param("providerId") long providerId, @Param("limit") int limit);
+
+    long countBySubscriptionProvider_Id(Long subscriptionProviderId);
+}
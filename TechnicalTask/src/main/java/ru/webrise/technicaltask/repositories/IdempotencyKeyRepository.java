@@ -0,0 +1,94 @@
+package ru.webrise.technicaltask.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Таблица {@code idempotency_keys}: ответы на POST-запросы с заголовком {@code Idempotency-Key}.
+ * <p>
+ * Строка без {@code status} означает, что запрос с этим ключом еще выполняется.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private static final String CLAIM_SQL = """
+        INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at, expires_at)
+        VALUES (?, ?, LOCALTIMESTAMP, LOCALTIMESTAMP + make_interval(secs => ?))
+        ON CONFLICT (idempotency_key) DO UPDATE
+        SET request_hash = EXCLUDED.request_hash,
+            status = NULL,
+            content_type = NULL,
+            body = NULL,
+            created_at = EXCLUDED.created_at,
+            expires_at = EXCLUDED.expires_at
+        WHERE idempotency_keys.expires_at < LOCALTIMESTAMP
+           OR (idempotency_keys.status IS NULL AND idempotency_keys.created_at < LOCALTIMESTAMP - make_interval(secs => ?))
+    """;
+
+    private static final String FIND_SQL = """
+        SELECT request_hash, status, content_type, body FROM idempotency_keys
+        WHERE idempotency_key = ? AND expires_at >= LOCALTIMESTAMP
+    """;
+
+    private static final String COMPLETE_SQL = """
+        UPDATE idempotency_keys SET status = ?, content_type = ?, body = ?
+        WHERE idempotency_key = ? AND request_hash = ?
+    """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+        DELETE FROM idempotency_keys
+        WHERE idempotency_key IN (
+            SELECT idempotency_key FROM idempotency_keys
+            WHERE expires_at < LOCALTIMESTAMP
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        )
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Занимает ключ под выполнение запроса.
+     * <p>
+     * Ключ занимается, если его нет, если его срок хранения истек или если предыдущий запрос
+     * с этим ключом не завершился за {@code lockTimeout} (например, узел упал во время обработки).
+     * </p>
+     *
+     * @return {@code true}, если ключ занят этим запросом
+     */
+    public boolean claim(String key, String requestHash, Duration ttl, Duration lockTimeout) {
+        return jdbcTemplate.update(CLAIM_SQL, key, requestHash, ttl.toSeconds(), lockTimeout.toSeconds()) > 0;
+    }
+
+    public Optional<StoredRequest> find(String key) {
+        return jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> new StoredRequest(
+                rs.getString("request_hash"),
+                rs.getObject("status", Integer.class),
+                rs.getString("content_type"),
+                rs.getBytes("body")
+        ), key).stream().findFirst();
+    }
+
+    public void complete(String key, String requestHash, int status, String contentType, byte[] body) {
+        jdbcTemplate.update(COMPLETE_SQL, status, contentType, body, key, requestHash);
+    }
+
+    public void release(String key, String requestHash) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND request_hash = ? AND status IS NULL",
+                key, requestHash);
+    }
+
+    public int deleteExpiredBatch(int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, limit);
+    }
+
+    /**
+     * Сохраненный запрос; {@code status == null}, пока запрос выполняется.
+     */
+    public record StoredRequest(String requestHash, Integer status, String contentType, byte[] body) {}
+}
@@ -0,0 +1,106 @@
+package ru.webrise.technicaltask.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.webrise.technicaltask.models.ProviderRevenueRollup;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<ProviderRevenueRollup, Long> {
+
+    /**
+     * Забирает пачку дней, затронутых изменениями подписок с момента прошлого обновления.
+     *
+     * @return Удаленные из очереди дни
+     */
+    @Query(value = """
+        DELETE FROM subscription_rollup_dirty_days
+        WHERE day IN (
+            SELECT day FROM subscription_rollup_dirty_days
+            ORDER BY day
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING day
+    """, nativeQuery = true)
+    List<Object> claimDirtyDays(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM subscription_revenue_daily WHERE day IN (:days)", nativeQuery = true)
+    int deleteDailyRollups(@Param("days") List<?> days);
+
+    /**
+     * Пересчитывает дневные агрегаты для переданных дней по активной и архивной таблицам.
+     * Подписки, деактивированные без даты окончания, в агрегаты не попадают.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO subscription_revenue_daily (day, service_id, started, ended)
+        SELECT day, service_id, SUM(started), SUM(ended)
+        FROM (
+            SELECT start_date::date AS day, service_id, 1 AS started, 0 AS ended
+            FROM subscriptions
+            WHERE start_date::date IN (:days) AND (active = true OR end_date IS NOT NULL)
+            UNION ALL
+            SELECT end_date::date, service_id, 0, 1
+            FROM subscriptions
+            WHERE end_date::date IN (:days)
+            UNION ALL
+            SELECT start_date::date, service_id, 1, 0
+            FROM subscriptions_archive
+            WHERE start_date::date IN (:days) AND (active = true OR end_date IS NOT NULL)
+            UNION ALL
+            SELECT end_date::date, service_id, 0, 1
+            FROM subscriptions_archive
+            WHERE end_date::date IN (:days)
+        ) touched
+        GROUP BY day, service_id
+    """, nativeQuery = true)
+    int insertDailyRollups(@Param("days") List<?> days);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO subscription_revenue_current (service_id, active_subscriptions, refreshed_at)
+        SELECT sp.id, COUNT(s.id), LOCALTIMESTAMP
+        FROM subscription_providers sp
+        LEFT JOIN subscriptions s ON s.service_id = sp.id AND s.active = true
+        GROUP BY sp.id
+        ON CONFLICT (service_id) DO UPDATE
+        SET active_subscriptions = EXCLUDED.active_subscriptions,
+            refreshed_at = EXCLUDED.refreshed_at
+    """, nativeQuery = true)
+    int refreshCurrentRollups();
+
+    /**
+     * @return Строки {@code [service_id, name, price, active_subscriptions, refreshed_at]}
+     */
+    @Query(value = """
+        SELECT sp.id, sp.name, sp.price, COALESCE(r.active_subscriptions, 0), r.refreshed_at
+        FROM subscription_providers sp
+        LEFT JOIN subscription_revenue_current r ON r.service_id = sp.id
+        WHERE CAST(:providerId AS BIGINT) IS NULL OR sp.id = :providerId
+        ORDER BY COALESCE(r.active_subscriptions, 0) * sp.price DESC, sp.id
+    """, nativeQuery = true)
+    List<Object[]> findProviderRevenue(@Param("providerId") Long providerId);
+
+    /**
+     * @return Строки {@code [day, started, ended, mrr_delta]} по дням до {@code to} включительно
+     */
+    @Query(value = """
+        SELECT d.day, SUM(d.started), SUM(d.ended), SUM((d.started - d.ended) * sp.price)
+        FROM subscription_revenue_daily d
+        JOIN subscription_providers sp ON sp.id = d.service_id
+        WHERE d.day <= :to AND (CAST(:providerId AS BIGINT) IS NULL OR d.service_id = :providerId)
+        GROUP BY d.day
+        ORDER BY d.day
+    """, nativeQuery = true)
+    List<Object[]> findDailyRevenueDeltas(@Param("to") LocalDate to, @Param("providerId") Long providerId);
+
+    @Query(value = "SELECT COUNT(*) FROM subscription_rollup_dirty_days", nativeQuery = true)
+    long countDirtyDays();
+}
@@ -0,0 +1,42 @@
+package ru.webrise.technicaltask.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import ru.webrise.technicaltask.util.SparseFieldset;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Построение JPQL-запроса, выбирающего только запрошенные поля.
+ */
+final class SparseFieldsQuery {
+
+    private SparseFieldsQuery() {}
+
+    /**
+     * @param expressions JPQL-выражения для каждого допустимого поля
+     * @param fields Запрошенные поля
+     * @param from Часть запроса после {@code FROM}
+     * @param parameters Параметры запроса
+     * @return Строки результата в виде объектов ответа
+     */
+    static List<Map<String, Object>> select(
+            EntityManager entityManager,
+            Map<String, String> expressions,
+            Collection<String> fields,
+            String from,
+            Map<String, Object> parameters
+    ) {
+        String select = fields.stream().map(expressions::get).collect(Collectors.joining(", "));
+        TypedQuery<Tuple> query = entityManager.createQuery("SELECT " + select + " FROM " + from, Tuple.class);
+        parameters.forEach(query::setParameter);
+
+        return query.getResultList().stream()
+                .map(tuple -> SparseFieldset.toObject(fields, tuple.toArray()))
+                .toList();
+    }
+}
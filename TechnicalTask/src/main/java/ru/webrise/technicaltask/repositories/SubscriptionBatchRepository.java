@@ -0,0 +1,53 @@
+package ru.webrise.technicaltask.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Пакетная запись подписок одного пользователя через JDBC batch, минуя контекст персистентности.
+ */
+public interface SubscriptionBatchRepository {
+
+    /**
+     * Вставляет подписки одним пакетом.
+     *
+     * @param userId ID пользователя
+     * @param rows Данные подписок
+     * @return ID созданных подписок в порядке {@code rows}
+     */
+    List<Long> insertSubscriptions(long userId, List<SubscriptionRow> rows);
+
+    /**
+     * Обновляет подписки пользователя одним пакетом.
+     *
+     * @param userId ID пользователя
+     * @param rows Новые данные подписок, {@code id} обязателен
+     */
+    void updateSubscriptions(long userId, List<SubscriptionRow> rows);
+
+    /**
+     * Удаляет подписки пользователя одним пакетом.
+     *
+     * @param userId ID пользователя
+     * @param subscriptionIds ID удаляемых подписок
+     */
+    void deleteSubscriptions(long userId, List<Long> subscriptionIds);
+
+    /**
+     * Обновляет подписки разных пользователей одним запросом {@code UPDATE ... FROM unnest(...)}.
+     *
+     * @param rows Новые данные подписок с владельцами, ID подписок не повторяются
+     * @return Количество обновленных строк
+     */
+    int updateSubscriptionsOfUsers(List<UserSubscriptionRow> rows);
+
+    record SubscriptionRow(
+            Long id,
+            long providerId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            boolean active
+    ) {}
+
+    record UserSubscriptionRow(long userId, SubscriptionRow subscription) {}
+}
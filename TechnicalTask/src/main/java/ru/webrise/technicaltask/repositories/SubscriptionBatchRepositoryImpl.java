@@ -0,0 +1,132 @@
+package ru.webrise.technicaltask.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class SubscriptionBatchRepositoryImpl implements SubscriptionBatchRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO subscriptions (user_id, service_id, start_date, end_date, active)
+        VALUES (?, ?, ?, ?, ?)
+    """;
+
+    private static final String UPDATE_SQL = """
+        UPDATE subscriptions SET service_id = ?, start_date = ?, end_date = ?, active = ?
+        WHERE id = ? AND user_id = ?
+    """;
+
+    private static final String UPDATE_OF_USERS_SQL = """
+        UPDATE subscriptions s
+        SET service_id = v.service_id, start_date = v.start_date, end_date = v.end_date, active = v.active
+        FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::timestamp[], ?::timestamp[], ?::boolean[])
+            AS v(id, user_id, service_id, start_date, end_date, active)
+        WHERE s.id = v.id AND s.user_id = v.user_id
+    """;
+
+    private static final String DELETE_SQL = "DELETE FROM subscriptions WHERE id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertSubscriptions(long userId, List<SubscriptionRow> rows) {
+        if (rows.isEmpty())
+            return List.of();
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        SubscriptionRow row = rows.get(i);
+                        ps.setLong(1, userId);
+                        ps.setLong(2, row.providerId());
+                        ps.setObject(3, row.startDate());
+                        ps.setObject(4, row.endDate(), Types.TIMESTAMP);
+                        ps.setBoolean(5, row.active());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder
+        );
+        return keyHolder.getKeyList().stream()
+                .map(Map::values)
+                .map(keys -> ((Number) keys.iterator().next()).longValue())
+                .toList();
+    }
+
+    @Override
+    public void updateSubscriptions(long userId, List<SubscriptionRow> rows) {
+        if (rows.isEmpty())
+            return;
+
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.providerId());
+            ps.setObject(2, row.startDate());
+            ps.setObject(3, row.endDate(), Types.TIMESTAMP);
+            ps.setBoolean(4, row.active());
+            ps.setLong(5, row.id());
+            ps.setLong(6, userId);
+        });
+    }
+
+    @Override
+    public int updateSubscriptionsOfUsers(List<UserSubscriptionRow> rows) {
+        if (rows.isEmpty())
+            return 0;
+
+        int size = rows.size();
+        Long[] ids = new Long[size];
+        Long[] userIds = new Long[size];
+        Long[] providerIds = new Long[size];
+        Timestamp[] startDates = new Timestamp[size];
+        Timestamp[] endDates = new Timestamp[size];
+        Boolean[] active = new Boolean[size];
+        for (int i = 0; i < size; i++) {
+            SubscriptionRow row = rows.get(i).subscription();
+            ids[i] = row.id();
+            userIds[i] = rows.get(i).userId();
+            providerIds[i] = row.providerId();
+            startDates[i] = row.startDate() != null ? Timestamp.valueOf(row.startDate()) : null;
+            endDates[i] = row.endDate() != null ? Timestamp.valueOf(row.endDate()) : null;
+            active[i] = row.active();
+        }
+
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(UPDATE_OF_USERS_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            ps.setArray(2, connection.createArrayOf("bigint", userIds));
+            ps.setArray(3, connection.createArrayOf("bigint", providerIds));
+            ps.setArray(4, connection.createArrayOf("timestamp", startDates));
+            ps.setArray(5, connection.createArrayOf("timestamp", endDates));
+            ps.setArray(6, connection.createArrayOf("boolean", active));
+            return ps;
+        });
+    }
+
+    @Override
+    public void deleteSubscriptions(long userId, List<Long> subscriptionIds) {
+        if (subscriptionIds.isEmpty())
+            return;
+
+        jdbcTemplate.batchUpdate(DELETE_SQL, subscriptionIds, subscriptionIds.size(), (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setLong(2, userId);
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package ru.webrise.technicaltask.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Таблица {@code subscription_change_outbox}: события изменений, записанные в транзакции самого изменения,
+ * и таблица {@code subscription_change_outbox_consumers} с позициями чтения узлов.
+ * <p>
+ * Каждая запись помечена номером записавшей ее транзакции ({@code tx_id}). Позиция в outbox - пара
+ * {@code (tx_id, id)}: читаются только записи транзакций старше горизонта
+ * {@code pg_snapshot_xmin(pg_current_snapshot())}, то есть уже завершенных. Новые записи с меньшей
+ * позицией после этого появиться не могут, поэтому чтение по возрастанию позиции не пропускает
+ * события транзакций, зафиксированных позже более новых.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionChangeOutboxRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO subscription_change_outbox (event_type, user_id, provider_id) VALUES (?, ?, ?)";
+
+    private static final String READ_SQL = """
+        SELECT id, tx_id, event_type, user_id, provider_id
+        FROM subscription_change_outbox
+        WHERE (tx_id, id) > (?, ?)
+          AND tx_id < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+        ORDER BY tx_id, id
+        LIMIT ?
+    """;
+
+    private static final String REGISTER_CONSUMER_SQL = """
+        INSERT INTO subscription_change_outbox_consumers (node_id, last_tx_id, last_id, updated_at)
+        VALUES (?, pg_snapshot_xmin(pg_current_snapshot())::text::bigint, 0, LOCALTIMESTAMP)
+        ON CONFLICT (node_id) DO UPDATE
+            SET last_tx_id = excluded.last_tx_id, last_id = excluded.last_id, updated_at = excluded.updated_at
+        RETURNING last_tx_id, last_id
+    """;
+
+    private static final String SAVE_POSITION_SQL = """
+        INSERT INTO subscription_change_outbox_consumers (node_id, last_tx_id, last_id, updated_at)
+        VALUES (?, ?, ?, LOCALTIMESTAMP)
+        ON CONFLICT (node_id) DO UPDATE
+            SET last_tx_id = excluded.last_tx_id, last_id = excluded.last_id, updated_at = excluded.updated_at
+    """;
+
+    private static final String DELETE_STALE_CONSUMERS_SQL =
+            "DELETE FROM subscription_change_outbox_consumers WHERE updated_at < LOCALTIMESTAMP - make_interval(secs => ?)";
+
+    private static final String DELETE_CONSUMED_SQL = """
+        DELETE FROM subscription_change_outbox
+        WHERE id IN (
+            SELECT o.id FROM subscription_change_outbox o
+            WHERE o.created_at < LOCALTIMESTAMP - make_interval(secs => ?)
+               OR (o.tx_id, o.id) <= (
+                   SELECT c.last_tx_id, c.last_id FROM subscription_change_outbox_consumers c
+                   ORDER BY c.last_tx_id, c.last_id
+                   LIMIT 1
+               )
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        )
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Записывает события одним JDBC-пакетом в текущей транзакции.
+     *
+     * @param events События в порядке возникновения
+     */
+    public void insert(List<SubscriptionChangeEvent> events) {
+        if (events.isEmpty())
+            return;
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.type().name());
+            ps.setObject(2, event.userId(), Types.BIGINT);
+            ps.setObject(3, event.providerId(), Types.BIGINT);
+        });
+    }
+
+    /**
+     * Читает пачку событий завершенных транзакций после указанной позиции, не удаляя их.
+     *
+     * @param after Позиция последнего прочитанного узлом события
+     * @param limit Максимальный размер пачки
+     * @return События в порядке позиции
+     */
+    public List<Entry> readBatch(Position after, int limit) {
+        return jdbcTemplate.query(READ_SQL, (rs, rowNum) -> {
+            long txId = rs.getLong("tx_id");
+            return new Entry(
+                    new Position(txId, rs.getLong("id")),
+                    new SubscriptionChangeEvent(
+                            SubscriptionChangeEvent.Type.valueOf(rs.getString("event_type")),
+                            rs.getObject("user_id", Long.class),
+                            rs.getObject("provider_id", Long.class),
+                            txId
+                    ));
+        }, after.txId(), after.id(), limit);
+    }
+
+    /**
+     * Регистрирует узел с позицией на текущем горизонте завершенных транзакций:
+     * узел получит все события транзакций, которые на момент вызова еще выполняются или не начались.
+     *
+     * @param nodeId Идентификатор узла
+     * @return Начальная позиция узла
+     */
+    public Position registerConsumer(String nodeId) {
+        return jdbcTemplate.queryForObject(REGISTER_CONSUMER_SQL,
+                (rs, rowNum) -> new Position(rs.getLong("last_tx_id"), rs.getLong("last_id")), nodeId);
+    }
+
+    /**
+     * Сохраняет позицию узла и отмечает, что узел жив.
+     *
+     * @param nodeId Идентификатор узла
+     * @param position Позиция последнего опубликованного узлом события
+     */
+    public void savePosition(String nodeId, Position position) {
+        jdbcTemplate.update(SAVE_POSITION_SQL, nodeId, position.txId(), position.id());
+    }
+
+    /**
+     * Удаляет узлы, которые не обновляли позицию дольше {@code timeout}.
+     *
+     * @param timeout Время без обновлений, после которого узел считается остановленным
+     * @return Количество удаленных узлов
+     */
+    public int deleteStaleConsumers(Duration timeout) {
+        return jdbcTemplate.update(DELETE_STALE_CONSUMERS_SQL, timeout.toSeconds());
+    }
+
+    /**
+     * Удаляет пачку событий, прочитанных всеми живыми узлами, и событий старше {@code retention}.
+     *
+     * @param retention Максимальное время хранения события
+     * @param limit Максимальный размер пачки
+     * @return Количество удаленных событий
+     */
+    public int deleteConsumedBatch(Duration retention, int limit) {
+        return jdbcTemplate.update(DELETE_CONSUMED_SQL, retention.toSeconds(), limit);
+    }
+
+    /**
+     * Возвращает количество событий после указанной позиции.
+     *
+     * @param after Позиция узла
+     * @return Количество событий, которые узлу еще предстоит прочитать
+     */
+    public long countBacklog(Position after) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM subscription_change_outbox WHERE (tx_id, id) > (?, ?)",
+                Long.class, after.txId(), after.id());
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Возвращает снимок текущей транзакции. При уровне изоляции {@code REPEATABLE READ} это снимок,
+     * по которому читаются все данные транзакции.
+     *
+     * @return Снимок транзакций
+     */
+    public Snapshot currentSnapshot() {
+        return Snapshot.parse(jdbcTemplate.queryForObject("SELECT pg_current_snapshot()::text", String.class));
+    }
+
+    /**
+     * Позиция события в outbox.
+     *
+     * @param txId Номер транзакции, записавшей событие
+     * @param id ID записи
+     */
+    public record Position(long txId, long id) {}
+
+    /**
+     * Событие outbox вместе с его позицией.
+     */
+    public record Entry(Position position, SubscriptionChangeEvent event) {}
+
+    /**
+     * Снимок транзакций PostgreSQL ({@code xmin:xmax:xip_list}).
+     *
+     * @param xmin Номер самой старой выполнявшейся транзакции
+     * @param xmax Номер, начиная с которого транзакции еще не начались
+     * @param inProgress Транзакции из диапазона {@code [xmin, xmax)}, выполнявшиеся в момент снимка
+     */
+    public record Snapshot(long xmin, long xmax, Set<Long> inProgress) {
+
+        public static Snapshot parse(String value) {
+            String[] parts = value.split(":", -1);
+            Set<Long> inProgress = parts[2].isEmpty()
+                    ? Set.of()
+                    : Arrays.stream(parts[2].split(",")).map(Long::valueOf).collect(Collectors.toUnmodifiableSet());
+            return new Snapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        /**
+         * Проверяет, видны ли в снимке изменения зафиксированной транзакции.
+         *
+         * @param txId Номер транзакции
+         * @return {@code true}, если транзакция была зафиксирована до снимка
+         */
+        public boolean includes(long txId) {
+            return txId < xmin || txId < xmax && !inProgress.contains(txId);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.webrise.technicaltask.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выборка подписок пользователя с частичным набором полей.
+ * В запрос попадают только колонки запрошенных полей, провайдер присоединяется,
+ * только если запрошены его имя или цена.
+ */
+public interface SubscriptionFieldsRepository {
+
+    List<String> SUBSCRIPTION_FIELDS = List.of(
+            "id",
+            "startDate",
+            "endDate",
+            "active",
+            "userId",
+            "subscriptionProvider.id",
+            "subscriptionProvider.name",
+            "subscriptionProvider.price"
+    );
+
+    List<Map<String, Object>> findSubscriptionFields(long userId, boolean includeArchived, Collection<String> fields);
+}
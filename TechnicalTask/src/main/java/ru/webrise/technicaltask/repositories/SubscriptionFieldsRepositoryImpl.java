@@ -0,0 +1,66 @@
+package ru.webrise.technicaltask.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class SubscriptionFieldsRepositoryImpl implements SubscriptionFieldsRepository {
+
+    private static final String START_DATE = "startDate";
+
+    private static final Map<String, String> SUBSCRIPTION_EXPRESSIONS = Map.of(
+            "id", "s.id",
+            "startDate", "s.startDate",
+            "endDate", "s.endDate",
+            "active", "s.active",
+            "userId", "s.user.id",
+            "subscriptionProvider.id", "s.subscriptionProvider.id",
+            "subscriptionProvider.name", "s.subscriptionProvider.name",
+            "subscriptionProvider.price", "s.subscriptionProvider.price"
+    );
+
+    private static final Map<String, String> ARCHIVED_EXPRESSIONS = Map.of(
+            "id", "s.id",
+            "startDate", "s.startDate",
+            "endDate", "s.endDate",
+            "active", "s.active",
+            "userId", "s.userId",
+            "subscriptionProvider.id", "s.subscriptionProvider.id",
+            "subscriptionProvider.name", "s.subscriptionProvider.name",
+            "subscriptionProvider.price", "s.subscriptionProvider.price"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findSubscriptionFields(long userId, boolean includeArchived, Collection<String> fields) {
+        Map<String, Object> parameters = Map.of("userId", userId);
+
+        if (!includeArchived)
+            return SparseFieldsQuery.select(entityManager, SUBSCRIPTION_EXPRESSIONS, fields,
+                    "Subscription s WHERE s.active = true AND s.user.id = :userId", parameters);
+
+        boolean startDateRequested = fields.contains(START_DATE);
+        List<String> selected = new ArrayList<>(fields);
+        if (!startDateRequested)
+            selected.add(START_DATE);
+
+        List<Map<String, Object>> subscriptions = new ArrayList<>(SparseFieldsQuery.select(
+                entityManager, SUBSCRIPTION_EXPRESSIONS, selected,
+                "Subscription s WHERE s.user.id = :userId", parameters));
+        subscriptions.addAll(SparseFieldsQuery.select(entityManager, ARCHIVED_EXPRESSIONS, selected,
+                "ArchivedSubscription s WHERE s.userId = :userId", parameters));
+        subscriptions.sort(Comparator.comparing(subscription -> (LocalDateTime) subscription.get(START_DATE)));
+
+        if (!startDateRequested)
+            subscriptions.forEach(subscription -> subscription.remove(START_DATE));
+        return subscriptions;
+    }
+}
@@ -1,19 +1,27 @@
 package ru.webrise.technicaltask.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.webrise.technicaltask.dto.SubscriptionStats;
 import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
 import ru.webrise.technicaltask.models.Subscription;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
+public interface SubscriptionRepository extends JpaRepository<Subscription, Long>, SubscriptionFieldsRepository,
+        SubscriptionBatchRepository {
 
     @Query("""
         SELECT new ru.webrise.technicaltask.dto.UserSubscriptionsDTO(
@@ -29,6 +37,21 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     """)
     List<UserSubscriptionsDTO> findByUserId(@Param("userId") Long userId);
 
+    @Query("""
+        SELECT new ru.webrise.technicaltask.dto.UserSubscriptionsDTO(
+            s.id,
+            s.startDate,
+            s.endDate,
+            s.active,
+            s.user.id,
+            s.subscriptionProvider
+        )
+        FROM Subscription s
+        WHERE s.user.id = :userId
+        ORDER BY s.startDate
+    """)
+    List<UserSubscriptionsDTO> findAllByUserId(@Param("userId") Long userId);
+
     @Query("""
         SELECT new ru.webrise.technicaltask.dto.SubscriptionStats(sp.name, COUNT(s.id))
         FROM Subscription s
@@ -41,5 +64,102 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
 
     Optional<Subscription> findByIdAndUser_Id(Long subId, Long userId);
 
+    @Query("SELECT s.user.id, s.subscriptionProvider.id FROM Subscription s WHERE s.active = true")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    Stream<Object[]> streamActiveUserProviderPairs();
+
+    @Query("SELECT s.subscriptionProvider.id, s.startDate FROM Subscription s WHERE s.startDate >= :since")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    Stream<Object[]> streamProviderStartDatesSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT s.subscriptionProvider.id FROM Subscription s WHERE s.user.id = :userId AND s.active = true")
+    List<Long> findActiveProviderIdsByUserId(@Param("userId") Long userId);
+
     boolean existsBySubscriptionProvider_IdAndUser_Id(Long subscriptionProviderId, Long userId);
+
+    /**
+     * Блокирует подписки пользователя до конца транзакции.
+     *
+     * @return Тройки {@code [id, service_id, active]}
+     */
+    @Query(value = "SELECT id, service_id, active FROM subscriptions WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockSubscriptionStatesByUserId(@Param("userId") long userId);
+
+    /**
+     * Блокирует подписки до конца транзакции в порядке ID.
+     *
+     * @return Четверки {@code [id, user_id, service_id, active]}
+     */
+    @Query(value = """
+        SELECT id, user_id, service_id, active FROM subscriptions
+        WHERE id IN :ids
+        ORDER BY id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Object[]> lockSubscriptionStatesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Деактивирует пачку истекших подписок.
+     *
+     * @return Пары {@code [user_id, service_id]} деактивированных подписок
+     */
+    @Query(value = """
+        UPDATE subscriptions SET active = false
+        WHERE id IN (
+            SELECT id FROM subscriptions
+            WHERE active = true AND end_date < LOCALTIMESTAMP
+            ORDER BY end_date
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING user_id, service_id
+    """, nativeQuery = true)
+    List<Object[]> expireBatch(@Param("limit") int limit);
+
+    /**
+     * Деактивирует пачку активных подписок провайдера.
+     *
+     * @return ID пользователей деактивированных подписок
+     */
+    @Query(value = """
+        UPDATE subscriptions SET active = false
+        WHERE id IN (
+            SELECT id FROM subscriptions
+            WHERE service_id = :providerId AND active = true
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING user_id
+    """, nativeQuery = true)
+    List<Long> deactivateProviderBatch(@Param("providerId") long providerId, @Param("limit") int limit);
+
+    /**
+     * Удаляет пачку подписок провайдера.
+     *
+     * @return Пары {@code [user_id, active]} удаленных подписок
+     */
+    @Query(value = """
+        DELETE FROM subscriptions
+        WHERE id IN (
+            SELECT id FROM subscriptions
+            WHERE service_id = :providerId
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING user_id, active
+    """, nativeQuery = true)
+    List<Object[]> deleteProviderBatch(@Param("providerId") long providerId, @Param("limit") int limit);
+
+    long countBySubscriptionProvider_Id(Long subscriptionProviderId);
+
+    long countBySubscriptionProvider_IdAndActiveTrue(Long subscriptionProviderId);
+
+    @Query(value = """
+        SELECT COUNT(*) FROM subscriptions
+        WHERE active = true AND end_date < LOCALTIMESTAMP
+    """, nativeQuery = true)
+    long countExpiredBacklog();
+
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
 }
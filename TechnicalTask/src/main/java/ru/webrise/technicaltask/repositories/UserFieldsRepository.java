@@ -0,0 +1,26 @@
+package ru.webrise.technicaltask.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Выборка профиля пользователя с частичным набором полей.
+ * Количество активных подписок считается подзапросом, сами подписки
+ * читаются отдельным запросом, только если запрошено поле {@code subscriptions}.
+ */
+public interface UserFieldsRepository {
+
+    List<String> USER_FIELDS = List.of(
+            "id",
+            "username",
+            "email",
+            "fullName",
+            "createdAt",
+            "updatedAt",
+            "subscriptionCount"
+    );
+
+    Optional<Map<String, Object>> findUserFields(long userId, Collection<String> fields);
+}
@@ -0,0 +1,32 @@
+package ru.webrise.technicaltask.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public class UserFieldsRepositoryImpl implements UserFieldsRepository {
+
+    private static final Map<String, String> USER_EXPRESSIONS = Map.of(
+            "id", "u.id",
+            "username", "u.username",
+            "email", "u.email",
+            "fullName", "u.fullName",
+            "createdAt", "u.createdAt",
+            "updatedAt", "u.updatedAt",
+            "subscriptionCount", "(SELECT COUNT(s.id) FROM Subscription s WHERE s.user.id = u.id AND s.active = true)"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Map<String, Object>> findUserFields(long userId, Collection<String> fields) {
+        return SparseFieldsQuery.select(entityManager, USER_EXPRESSIONS, fields,
+                        "User u WHERE u.id = :userId", Map.of("userId", userId))
+                .stream()
+                .findFirst();
+    }
+}
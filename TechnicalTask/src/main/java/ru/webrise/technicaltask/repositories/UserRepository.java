@@ -1,18 +1,26 @@
 package ru.webrise.technicaltask.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.webrise.technicaltask.models.User;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueEmailException;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueUsernameException;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserFieldsRepository {
 
     @Query("""
         SELECT u FROM User u
@@ -21,10 +29,83 @@ public interface UserRepository extends JpaRepository<User, Long> {
     """)
     Optional<User> findByIdAndSubscriptionsActive(@Param("userId") long userId);
 
+    /**
+     * Возвращает версию профиля пользователя: хеш {@code updated_at}, {@code subscriptions_version}
+     * и данных провайдеров его активных подписок. Сущности при этом не загружаются.
+     */
+    @Query(value = """
+        SELECT md5(concat_ws('|', u.updated_at, u.subscriptions_version, (
+            SELECT string_agg(concat_ws(':', sp.id, sp.name, sp.price), ',' ORDER BY sp.id)
+            FROM subscriptions s
+            JOIN subscription_providers sp ON sp.id = s.service_id
+            WHERE s.user_id = u.id AND s.active = true
+        )))
+        FROM users u
+        WHERE u.id = :userId
+    """, nativeQuery = true)
+    Optional<String> findVersionTag(@Param("userId") long userId);
+
     @Modifying
     @Query("DELETE FROM User u WHERE u.id = :userId")
     void deleteUser(@Param("userId") long userId);
 
+    @Query("SELECT u.username, u.email FROM User u")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    Stream<Object[]> streamUsernamesAndEmails();
+
+    @Query("SELECT u.id, u.username, u.email, u.fullName FROM User u")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    Stream<Object[]> streamSearchProjections();
+
+    @Query("SELECT u.id, u.username, u.email, u.fullName FROM User u WHERE u.id = :userId")
+    List<Object[]> findSearchProjection(@Param("userId") long userId);
+
+    @Query(value = """
+        SELECT id AS userId, active_subscription_count AS activeSubscriptionCount, monthly_spend AS monthlySpend
+        FROM users
+        WHERE id = :userId
+    """, nativeQuery = true)
+    Optional<SubscriptionSummary> findSubscriptionSummary(@Param("userId") long userId);
+
+    /**
+     * Блокирует пачку пользователей после {@code afterId} для сверки сводки подписок.
+     * Пользователи, заблокированные другими транзакциями, пропускаются до следующей сверки.
+     */
+    @Query(value = """
+        SELECT id FROM users
+        WHERE id > :afterId
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<Long> lockUsersForSummaryCheck(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Пересчитывает {@code active_subscription_count} и {@code monthly_spend} заблокированных пользователей
+     * по их подпискам и исправляет только расходящиеся значения.
+     *
+     * @return ID пользователей, у которых сводка разошлась с подписками
+     */
+    @Query(value = """
+        UPDATE users u
+        SET active_subscription_count = a.active_count,
+            monthly_spend = a.spend
+        FROM (
+            SELECT u2.id,
+                count(sp.id) AS active_count,
+                coalesce(sum(sp.price), 0) AS spend
+            FROM users u2
+            LEFT JOIN subscriptions s ON s.user_id = u2.id AND s.active = true
+            LEFT JOIN subscription_providers sp ON sp.id = s.service_id
+            WHERE u2.id IN (:userIds)
+            GROUP BY u2.id
+        ) a
+        WHERE u.id = a.id
+          AND (u.active_subscription_count <> a.active_count OR u.monthly_spend <> a.spend)
+        RETURNING u.id
+    """, nativeQuery = true)
+    List<Long> repairSubscriptionSummaries(@Param("userIds") Collection<Long> userIds);
+
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
@@ -40,4 +121,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
             throw new NonUniqueEmailException("User with this email already exists");
         }
     }
+
+    interface SubscriptionSummary {
+
+        Long getUserId();
+
+        Integer getActiveSubscriptionCount();
+
+        BigDecimal getMonthlySpend();
+    }
 }
@@ -0,0 +1,95 @@
+package ru.webrise.technicaltask.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.webrise.technicaltask.dto.UserSearchResultDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Поиск пользователей по части {@code username}, {@code email} или {@code full_name}.
+ * <p>
+ * Условие {@code ILIKE '%q%'} обслуживается trigram GIN-индексами ({@code pg_trgm}).
+ * Результаты упорядочены по группе совпадения (точное, по префиксу, по подстроке),
+ * затем по trigram-сходству и {@code id}; страницы выдаются по ключу из этих трех значений.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserSearchRepository {
+
+    private static final String SEARCH_SQL = """
+        SELECT id, username, email, full_name, rank, score FROM (
+            SELECT u.id, u.username, u.email, u.full_name,
+                CASE
+                    WHEN lower(u.username) = lower(?) OR lower(u.email) = lower(?) THEN 0
+                    WHEN u.username ILIKE ? OR u.email ILIKE ? THEN 1
+                    ELSE 2
+                END AS rank,
+                round(greatest(similarity(u.username, ?), similarity(u.email, ?),
+                    similarity(coalesce(u.full_name, ''), ?))::numeric, 4) AS score
+            FROM users u
+            WHERE u.username ILIKE ? OR u.email ILIKE ? OR u.full_name ILIKE ?
+        ) r
+        %s
+        ORDER BY rank, score DESC, id
+        LIMIT ?
+    """;
+
+    private static final String FIRST_PAGE_SQL = SEARCH_SQL.formatted("");
+
+    private static final String NEXT_PAGE_SQL = SEARCH_SQL.formatted(
+            "WHERE rank > ? OR (rank = ? AND (score < ? OR (score = ? AND id > ?)))");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Возвращает страницу пользователей, у которых запрос встречается в имени, email или полном имени.
+     *
+     * @param query Строка поиска
+     * @param after Ключ последней строки предыдущей страницы или {@code null} для первой страницы
+     * @param limit Размер страницы
+     * @return Найденные пользователи с ключами сортировки
+     */
+    public List<Match> search(String query, Key after, int limit) {
+        String prefix = escapeLike(query) + "%";
+        String contains = "%" + escapeLike(query) + "%";
+        Object[] searchArgs = {query, query, prefix, prefix, query, query, query, contains, contains, contains};
+
+        Object[] args;
+        if (after == null) {
+            args = append(searchArgs, limit);
+        } else {
+            args = append(searchArgs, after.rank(), after.rank(), after.score(), after.score(), after.id(), limit);
+        }
+
+        return jdbcTemplate.query(after == null ? FIRST_PAGE_SQL : NEXT_PAGE_SQL, (rs, rowNum) -> new Match(
+                new UserSearchResultDTO(
+                        rs.getLong("id"),
+                        rs.getString("username"),
+                        rs.getString("email"),
+                        rs.getString("full_name")
+                ),
+                new Key(rs.getInt("rank"), rs.getBigDecimal("score"), rs.getLong("id"))
+        ), args);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Object[] append(Object[] head, Object... tail) {
+        Object[] result = new Object[head.length + tail.length];
+        System.arraycopy(head, 0, result, 0, head.length);
+        System.arraycopy(tail, 0, result, head.length, tail.length);
+        return result;
+    }
+
+    /**
+     * Ключ сортировки строки результата: группа совпадения, сходство и ID пользователя.
+     */
+    public record Key(int rank, BigDecimal score, long id) {}
+
+    public record Match(UserSearchResultDTO user, Key key) {}
+}
@@ -0,0 +1,83 @@
+package ru.webrise.technicaltask.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Service;
+import ru.webrise.technicaltask.analytics.AudienceExpression;
+import ru.webrise.technicaltask.analytics.ProviderAudienceIndex;
+import ru.webrise.technicaltask.controllers.AudienceController;
+import ru.webrise.technicaltask.dto.AudienceDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис для выборки аудиторий по множествам подписчиков провайдеров.
+ * <p>
+ * Запросы вида "подписчики Netflix без Spotify" или "пользователи с 3+ провайдерами" вычисляются
+ * над {@link ProviderAudienceIndex} без обращения к БД.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link AudienceController} - для выборки аудиторий</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AudienceService implements AudienceServiceInterface {
+
+    private final ProviderAudienceIndex providerAudienceIndex;
+
+    /**
+     * Вычисляет аудиторию по выражению и/или минимальному количеству провайдеров.
+     * <p>
+     * Если заданы оба условия, результатом является их пересечение. Идентификаторы
+     * пользователей возвращаются по возрастанию, страницами после {@code afterUserId}.
+     * </p>
+     *
+     * @param expression Выражение над ID провайдеров (см. {@link AudienceExpression})
+     * @param minProviders Минимальное количество провайдеров с активной подпиской
+     * @param afterUserId ID пользователя, после которого начинается страница
+     * @param limit Размер страницы
+     * @param countOnly Вернуть только количество пользователей
+     * @return Количество пользователей и страница их идентификаторов
+     * @throws ValidationException если не задано ни одно условие или выражение некорректно
+     */
+    @Override
+    public AudienceDTO getAudience(String expression, Integer minProviders, long afterUserId, int limit, boolean countOnly) {
+        boolean hasExpression = expression != null && !expression.isBlank();
+        if (!hasExpression && minProviders == null)
+            throw new ValidationException("Either expr or minProviders must be specified");
+
+        AudienceExpression parsed = hasExpression ? AudienceExpression.parse(expression) : null;
+        log.debug("Evaluating audience expr: '{}', minProviders: {}", expression, minProviders);
+
+        Roaring64Bitmap audience = providerAudienceIndex.compute(snapshot -> {
+            Roaring64Bitmap result = parsed != null ? parsed.evaluate(snapshot) : null;
+            if (minProviders != null) {
+                Roaring64Bitmap atLeast = snapshot.subscribedToAtLeast(minProviders);
+                if (result == null)
+                    result = atLeast;
+                else
+                    result.and(atLeast);
+            }
+            return result;
+        });
+
+        long count = audience.getLongCardinality();
+        if (countOnly)
+            return new AudienceDTO(count, List.of(), null);
+
+        List<Long> userIds = new ArrayList<>(Math.min(limit, (int) Math.min(count, Integer.MAX_VALUE)));
+        PeekableLongIterator iterator = audience.getLongIteratorFrom(afterUserId + 1);
+        while (iterator.hasNext() && userIds.size() < limit)
+            userIds.add(iterator.next());
+
+        Long nextAfterUserId = iterator.hasNext() ? userIds.get(userIds.size() - 1) : null;
+        return new AudienceDTO(count, userIds, nextAfterUserId);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.AudienceDTO;
+
+public interface AudienceServiceInterface {
+
+    AudienceDTO getAudience(String expression, Integer minProviders, long afterUserId, int limit, boolean countOnly);
+}
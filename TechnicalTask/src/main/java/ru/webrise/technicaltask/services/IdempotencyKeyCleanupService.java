@@ -0,0 +1,88 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.IdempotencyKeyRepository;
+
+/**
+ * Сервис удаления просроченных ключей идемпотентности из {@code idempotency_keys}.
+ * <p>
+ * Ключи удаляются пачками по {@code idempotency.cleanup.batch-size} в отдельных транзакциях
+ * ({@code FOR UPDATE SKIP LOCKED}), поэтому несколько узлов могут чистить таблицу одновременно.
+ * <p>
+ * Публикует метрику {@code idempotency.keys.expired} - общее количество удаленных ключей.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyCleanupService implements IdempotencyKeyCleanupServiceInterface {
+
+    private static final int MAX_BATCHES_PER_RUN = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Counter expiredCounter;
+
+    public IdempotencyKeyCleanupService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.cleanup.batch-size:1000}") int batchSize
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+
+        this.expiredCounter = Counter.builder("idempotency.keys.expired")
+                .description("Total number of expired idempotency keys deleted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает очистку по расписанию.
+     * <p>
+     * Период задается свойством {@code idempotency.cleanup.interval}.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup.interval:PT10M}")
+    public void scheduledCleanup() {
+        try {
+            deleteExpiredKeys();
+        } catch (RuntimeException e) {
+            log.error("Idempotency key cleanup run failed", e);
+        }
+    }
+
+    /**
+     * Удаляет просроченные ключи пачками, пока очередная пачка не окажется неполной.
+     *
+     * @return Количество удаленных ключей за запуск
+     */
+    @Override
+    public int deleteExpiredKeys() {
+        int total = 0;
+
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            Integer deleted = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteExpiredBatch(batchSize));
+            int count = deleted != null ? deleted : 0;
+            total += count;
+            expiredCounter.increment(count);
+
+            if (count < batchSize)
+                break;
+        }
+
+        if (total > 0)
+            log.info("Deleted {} expired idempotency keys", total);
+
+        return total;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.webrise.technicaltask.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.webrise.technicaltask.analytics.ProviderAffinityMatrix;
+import ru.webrise.technicaltask.analytics.ProviderAudienceIndex;
+import ru.webrise.technicaltask.controllers.ProviderAffinityController;
+import ru.webrise.technicaltask.dto.ProviderAffinityDTO;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис аналитики совместных подписок (affinity) провайдеров.
+ * <p>
+ * Значения берутся из {@link ProviderAffinityMatrix}, из БД читаются только имена провайдеров.
+ * Для пары провайдеров A и B вычисляются:
+ * <ul>
+ *     <li>overlap - количество пользователей с активными подписками на оба провайдера</li>
+ *     <li>jaccard - overlap, деленный на количество пользователей хотя бы одного из провайдеров</li>
+ *     <li>lift - во сколько раз совместная подписка встречается чаще, чем при независимом выборе</li>
+ * </ul>
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link ProviderAffinityController} - для аналитики совместных подписок</li>
+ * </ul>
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+@RequiredArgsConstructor
+public class ProviderAffinityService implements ProviderAffinityServiceInterface {
+
+    private final ProviderAffinityMatrix providerAffinityMatrix;
+    private final ProviderAudienceIndex providerAudienceIndex;
+    private final SubscriptionProviderRepository subscriptionProviderRepository;
+
+    /**
+     * Возвращает показатели совместных подписок для пары провайдеров.
+     *
+     * @param firstProviderId ID первого провайдера
+     * @param secondProviderId ID второго провайдера
+     * @return Показатели пары
+     * @throws SubscriptionProviderNotFoundException если один из провайдеров не найден
+     */
+    @Override
+    public ProviderAffinityDTO getAffinity(long firstProviderId, long secondProviderId) {
+        log.debug("Fetching affinity for providers {} and {}", firstProviderId, secondProviderId);
+
+        Map<Long, String> names = getProviderNames(Set.of(firstProviderId, secondProviderId));
+        if (!names.containsKey(firstProviderId) || !names.containsKey(secondProviderId)) {
+            log.error("Failed to fetch affinity: provider {} or {} not found", firstProviderId, secondProviderId);
+            throw new SubscriptionProviderNotFoundException("SubscriptionProvider with that id was not found");
+        }
+
+        return toDTO(new ProviderAffinityMatrix.Pair(
+                firstProviderId,
+                secondProviderId,
+                providerAffinityMatrix.getOverlap(firstProviderId, secondProviderId),
+                providerAffinityMatrix.getSubscriberCount(firstProviderId),
+                providerAffinityMatrix.getSubscriberCount(secondProviderId)
+        ), names, providerAudienceIndex.getTotalSubscriberCount());
+    }
+
+    /**
+     * Возвращает пары провайдеров с наибольшей совместной аудиторией.
+     *
+     * @param limit Количество пар
+     * @param orderBy Показатель для сортировки: {@code lift} или {@code overlap}
+     * @return Список пар по убыванию показателя
+     */
+    @Override
+    public List<ProviderAffinityDTO> getTopAffinities(int limit, String orderBy) {
+        Comparator<ProviderAffinityDTO> comparator = switch (orderBy) {
+            case "lift" -> Comparator.comparingDouble(ProviderAffinityDTO::lift);
+            case "overlap" -> Comparator.comparingLong(ProviderAffinityDTO::overlap);
+            default -> throw new ValidationException("Parameter 'by' must be one of: lift, overlap");
+        };
+        log.debug("Fetching top {} provider affinities by {}", limit, orderBy);
+
+        List<ProviderAffinityMatrix.Pair> pairs = providerAffinityMatrix.getPairs();
+        Set<Long> providerIds = new HashSet<>();
+        pairs.forEach(pair -> {
+            providerIds.add(pair.firstProviderId());
+            providerIds.add(pair.secondProviderId());
+        });
+
+        Map<Long, String> names = getProviderNames(providerIds);
+        long totalSubscribers = providerAudienceIndex.getTotalSubscriberCount();
+
+        return pairs.stream()
+                .map(pair -> toDTO(pair, names, totalSubscribers))
+                .sorted(comparator.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private Map<Long, String> getProviderNames(Set<Long> providerIds) {
+        return subscriptionProviderRepository.findAllById(providerIds).stream()
+                .collect(Collectors.toMap(SubscriptionProvider::getId, SubscriptionProvider::getName));
+    }
+
+    private ProviderAffinityDTO toDTO(ProviderAffinityMatrix.Pair pair, Map<Long, String> names, long totalSubscribers) {
+        long union = pair.firstSubscribers() + pair.secondSubscribers() - pair.overlap();
+        double jaccard = union > 0 ? (double) pair.overlap() / union : 0;
+        double lift = pair.firstSubscribers() > 0 && pair.secondSubscribers() > 0
+                ? (double) pair.overlap() * totalSubscribers / ((double) pair.firstSubscribers() * pair.secondSubscribers())
+                : 0;
+
+        return new ProviderAffinityDTO(
+                pair.firstProviderId(), names.get(pair.firstProviderId()),
+                pair.secondProviderId(), names.get(pair.secondProviderId()),
+                pair.firstSubscribers(), pair.secondSubscribers(),
+                pair.overlap(), jaccard, lift
+        );
+    }
+}
@@ -0,0 +1,12 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.ProviderAffinityDTO;
+
+import java.util.List;
+
+public interface ProviderAffinityServiceInterface {
+
+    ProviderAffinityDTO getAffinity(long firstProviderId, long secondProviderId);
+
+    List<ProviderAffinityDTO> getTopAffinities(int limit, String orderBy);
+}
@@ -0,0 +1,354 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.controllers.ProviderJobController;
+import ru.webrise.technicaltask.dto.ProviderJobDTO;
+import ru.webrise.technicaltask.dto.ProviderJobOperation;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.ArchivedSubscriptionRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.util.exceptions.ProviderJobNotFoundException;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Сервис фоновых массовых операций над подписками провайдера: деактивации и удаления.
+ * <p>
+ * Удаление провайдера одним {@code DELETE} каскадно удаляет все его подписки в одной долгой транзакции,
+ * которая держит блокировки на все строки сразу. Задача выполняет ту же работу ограниченными пачками
+ * ({@code FOR UPDATE SKIP LOCKED}), каждая пачка - в отдельной короткой транзакции с паузой между пачками.
+ * Строки, заблокированные другими транзакциями, обрабатываются повторными пачками, пока остаток не станет нулевым.
+ * Сам провайдер удаляется последней транзакцией, когда подписок у него уже не осталось.
+ * <p>
+ * О каждой деактивированной или удаленной активной подписке сообщается через {@link SubscriptionChangeNotifier}
+ * после фиксации ее пачки, поэтому топ подписок, счетчики и индексы аудитории обновляются по ходу задачи.
+ * Задачи выполняются по очереди в одном фоновом потоке, состояние хранится в памяти узла.
+ * Пачки идемпотентны, поэтому прерванную перезапуском задачу достаточно запустить повторно.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link ProviderJobController} - для запуска задач и получения их статуса</li>
+ * </ul>
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code subscriptions.provider-jobs.processed} - количество обработанных подписок по типу операции</li>
+ *     <li>{@code subscriptions.provider-jobs.active} - количество запущенных и ожидающих задач</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class ProviderJobService implements ProviderJobServiceInterface {
+
+    static final String STATUS_QUEUED = "queued";
+    static final String STATUS_RUNNING = "running";
+    static final String STATUS_COMPLETED = "completed";
+    static final String STATUS_FAILED = "failed";
+
+    private static final Duration LOCKED_ROWS_INITIAL_BACKOFF = Duration.ofMillis(10);
+    private static final Duration LOCKED_ROWS_MAX_BACKOFF = Duration.ofSeconds(1);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final ArchivedSubscriptionRepository archivedSubscriptionRepository;
+    private final SubscriptionProviderRepository subscriptionProviderRepository;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int historySize;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, Job> activeJobs = new ConcurrentHashMap<>();
+    private final Queue<UUID> finishedJobs = new ConcurrentLinkedQueue<>();
+    private final Map<ProviderJobOperation, Counter> processedCounters = new EnumMap<>(ProviderJobOperation.class);
+
+    @Autowired
+    public ProviderJobService(
+            SubscriptionRepository subscriptionRepository,
+            ArchivedSubscriptionRepository archivedSubscriptionRepository,
+            SubscriptionProviderRepository subscriptionProviderRepository,
+            SubscriptionChangeNotifier subscriptionChangeNotifier,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.provider-jobs.batch-size:1000}") int batchSize,
+            @Value("${subscriptions.provider-jobs.batch-pause:PT0.05S}") Duration batchPause,
+            @Value("${subscriptions.provider-jobs.history-size:100}") int historySize
+    ) {
+        this(subscriptionRepository, archivedSubscriptionRepository, subscriptionProviderRepository,
+                subscriptionChangeNotifier, transactionTemplate, meterRegistry,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "provider-jobs");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                batchSize, batchPause, historySize);
+    }
+
+    public ProviderJobService(
+            SubscriptionRepository subscriptionRepository,
+            ArchivedSubscriptionRepository archivedSubscriptionRepository,
+            SubscriptionProviderRepository subscriptionProviderRepository,
+            SubscriptionChangeNotifier subscriptionChangeNotifier,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            Executor executor,
+            int batchSize,
+            Duration batchPause,
+            int historySize
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.archivedSubscriptionRepository = archivedSubscriptionRepository;
+        this.subscriptionProviderRepository = subscriptionProviderRepository;
+        this.subscriptionChangeNotifier = subscriptionChangeNotifier;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.historySize = historySize;
+
+        for (ProviderJobOperation operation : ProviderJobOperation.values())
+            processedCounters.put(operation, Counter.builder("subscriptions.provider-jobs.processed")
+                    .description("Number of subscriptions processed by provider bulk jobs")
+                    .tag("operation", operation.name().toLowerCase())
+                    .register(meterRegistry));
+        Gauge.builder("subscriptions.provider-jobs.active", activeJobs, Map::size)
+                .description("Number of queued and running provider bulk jobs")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит в очередь задачу деактивации или удаления подписок провайдера.
+     * <p>
+     * Используется в {@link ProviderJobController#startJob(long, ProviderJobOperation)}.
+     * Если для провайдера уже выполняется задача с той же операцией, возвращается она.
+     * </p>
+     *
+     * @param providerId ID провайдера
+     * @param operation Операция над подписками провайдера
+     * @return Состояние задачи
+     * @throws SubscriptionProviderNotFoundException если провайдер не найден
+     * @throws ValidationException если для провайдера выполняется задача с другой операцией
+     */
+    @Override
+    public ProviderJobDTO startJob(long providerId, ProviderJobOperation operation) {
+        log.info("Attempting to start {} job for subscription provider with ID: {}", operation, providerId);
+
+        if (!subscriptionProviderRepository.existsById(providerId)) {
+            log.error("Failed to start provider job: provider with ID {} not found", providerId);
+            throw new SubscriptionProviderNotFoundException("SubscriptionProvider with that id was not found");
+        }
+
+        Job created = new Job(UUID.randomUUID(), providerId, operation);
+        Job job = activeJobs.computeIfAbsent(providerId, id -> created);
+        if (job != created) {
+            if (job.operation != operation) {
+                log.error("Failed to start provider job: {} job {} is already running for provider ID {}",
+                        job.operation, job.id, providerId);
+                throw new ValidationException("Another job is already running for this provider");
+            }
+            log.info("Job {} is already running for subscription provider with ID: {}", job.id, providerId);
+            return job.toDTO();
+        }
+
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+
+        log.info("Successfully queued {} job {} for subscription provider with ID: {}", operation, job.id, providerId);
+        return job.toDTO();
+    }
+
+    /**
+     * Получает состояние задачи.
+     * <p>
+     * Используется в {@link ProviderJobController#getJob(UUID)}.
+     * Завершенные задачи хранятся, пока их не больше {@code subscriptions.provider-jobs.history-size}.
+     * </p>
+     *
+     * @param jobId ID задачи
+     * @return Состояние задачи
+     * @throws ProviderJobNotFoundException если задача не найдена
+     */
+    @Override
+    public ProviderJobDTO getJob(UUID jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            log.error("Failed to fetch provider job: job with ID {} not found", jobId);
+            throw new ProviderJobNotFoundException("Job with that id was not found");
+        }
+        return job.toDTO();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService)
+            executorService.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.startedAt = LocalDateTime.now();
+        job.status = STATUS_RUNNING;
+        log.info("Starting {} job {} for subscription provider with ID: {}", job.operation, job.id, job.providerId);
+
+        try {
+            switch (job.operation) {
+                case DEACTIVATE -> deactivate(job);
+                case DELETE -> delete(job);
+            }
+            job.status = STATUS_COMPLETED;
+            log.info("Successfully completed {} job {} for subscription provider with ID: {}: {} subscriptions processed",
+                    job.operation, job.id, job.providerId, job.processed.get());
+        } catch (RuntimeException | InterruptedException e) {
+            if (e instanceof InterruptedException)
+                Thread.currentThread().interrupt();
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.status = STATUS_FAILED;
+            log.error("Provider {} job {} failed after {} subscriptions", job.operation, job.id, job.processed.get(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            activeJobs.remove(job.providerId, job);
+            retire(job);
+        }
+    }
+
+    private void deactivate(Job job) throws InterruptedException {
+        long providerId = job.providerId;
+        job.total = subscriptionRepository.countBySubscriptionProvider_IdAndActiveTrue(providerId);
+
+        drain(job,
+                () -> transactionTemplate.execute(status -> {
+                    List<Long> userIds = subscriptionRepository.deactivateProviderBatch(providerId, batchSize);
+                    for (Long userId : userIds)
+                        subscriptionChangeNotifier.subscriptionDeactivated(userId, providerId);
+                    return userIds.size();
+                }),
+                () -> subscriptionRepository.countBySubscriptionProvider_IdAndActiveTrue(providerId));
+    }
+
+    private void delete(Job job) throws InterruptedException {
+        long providerId = job.providerId;
+        job.total = subscriptionRepository.countBySubscriptionProvider_Id(providerId)
+                + archivedSubscriptionRepository.countBySubscriptionProvider_Id(providerId);
+
+        drain(job,
+                () -> transactionTemplate.execute(status -> {
+                    List<Object[]> deleted = subscriptionRepository.deleteProviderBatch(providerId, batchSize);
+                    for (Object[] row : deleted)
+                        if (Boolean.TRUE.equals(row[1]))
+                            subscriptionChangeNotifier.subscriptionDeactivated(((Number) row[0]).longValue(), providerId);
+                    return deleted.size();
+                }),
+                () -> subscriptionRepository.countBySubscriptionProvider_Id(providerId));
+
+        drain(job,
+                () -> transactionTemplate.execute(status ->
+                        archivedSubscriptionRepository.deleteProviderBatch(providerId, batchSize)),
+                () -> archivedSubscriptionRepository.countBySubscriptionProvider_Id(providerId));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            subscriptionProviderRepository.deleteById(providerId);
+            subscriptionChangeNotifier.providerRemoved(providerId);
+        });
+    }
+
+    /**
+     * Выполняет пачки, пока не останется необработанных строк.
+     * <p>
+     * Пустая пачка не означает окончания работы: {@code SKIP LOCKED} пропускает строки, заблокированные
+     * другими транзакциями. Поэтому после пустой пачки проверяется остаток, и если он не нулевой,
+     * пачка повторяется с экспоненциально растущей паузой.
+     * </p>
+     *
+     * @param batch     Пачка в отдельной транзакции, возвращает количество обработанных строк
+     * @param remaining Количество строк, которые еще предстоит обработать
+     */
+    private void drain(Job job, IntSupplier batch, LongSupplier remaining) throws InterruptedException {
+        long backoff = LOCKED_ROWS_INITIAL_BACKOFF.toMillis();
+        while (true) {
+            int processed = batch.getAsInt();
+            if (processed > 0) {
+                progress(job, processed);
+                backoff = LOCKED_ROWS_INITIAL_BACKOFF.toMillis();
+                continue;
+            }
+
+            long left = remaining.getAsLong();
+            if (left == 0)
+                return;
+            log.debug("Provider {} job {}: {} subscriptions are locked by other transactions, retrying in {} ms",
+                    job.operation, job.id, left, backoff);
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, LOCKED_ROWS_MAX_BACKOFF.toMillis());
+        }
+    }
+
+    private void progress(Job job, int processed) throws InterruptedException {
+        job.processed.addAndGet(processed);
+        processedCounters.get(job.operation).increment(processed);
+        log.debug("Provider {} job {}: {}/{} subscriptions processed",
+                job.operation, job.id, job.processed.get(), job.total);
+
+        if (!batchPause.isZero())
+            Thread.sleep(batchPause.toMillis());
+    }
+
+    private void retire(Job job) {
+        finishedJobs.add(job.id);
+        while (finishedJobs.size() > historySize) {
+            UUID oldest = finishedJobs.poll();
+            if (oldest != null)
+                jobs.remove(oldest);
+        }
+    }
+
+    private static final class Job {
+
+        private final UUID id;
+        private final long providerId;
+        private final ProviderJobOperation operation;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong processed = new AtomicLong();
+
+        private volatile String status = STATUS_QUEUED;
+        private volatile long total;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private Job(UUID id, long providerId, ProviderJobOperation operation) {
+            this.id = id;
+            this.providerId = providerId;
+            this.operation = operation;
+        }
+
+        private ProviderJobDTO toDTO() {
+            return new ProviderJobDTO(id, providerId, operation, status, total, processed.get(),
+                    createdAt, startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.ProviderJobDTO;
+import ru.webrise.technicaltask.dto.ProviderJobOperation;
+
+import java.util.UUID;
+
+public interface ProviderJobServiceInterface {
+
+    ProviderJobDTO startJob(long providerId, ProviderJobOperation operation);
+
+    ProviderJobDTO getJob(UUID jobId);
+}
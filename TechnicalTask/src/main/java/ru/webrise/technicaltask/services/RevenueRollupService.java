@@ -0,0 +1,139 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.RevenueRollupRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис инкрементального обновления агрегатов выручки.
+ * <p>
+ * Триггеры на {@code subscriptions} и {@code subscriptions_archive} записывают в
+ * {@code subscription_rollup_dirty_days} дни начала и окончания каждой измененной подписки.
+ * Очередь служит водяным знаком: запуск забирает из нее пачку дней ({@code FOR UPDATE SKIP LOCKED}),
+ * пересчитывает для них {@code subscription_revenue_daily}, а после всех пачек запуск один раз обновляет
+ * {@code subscription_revenue_current}. Дни, затронутые после начала запуска, попадают в очередь
+ * заново и пересчитываются следующим запуском.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code subscriptions.revenue.refreshed-days} - общее количество пересчитанных дней</li>
+ *     <li>{@code subscriptions.revenue.dirty-days} - количество дней, ожидающих пересчета</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "subscriptions.revenue", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RevenueRollupService implements RevenueRollupServiceInterface {
+
+    private static final long REVENUE_LOCK_KEY = "subscriptions.revenue".hashCode();
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter refreshedDaysCounter;
+    private final AtomicLong dirtyDays = new AtomicLong();
+
+    public RevenueRollupService(
+            SubscriptionRepository subscriptionRepository,
+            RevenueRollupRepository revenueRollupRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.revenue.batch-size:100}") int batchSize,
+            @Value("${subscriptions.revenue.max-batches-per-run:100}") int maxBatchesPerRun
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.revenueRollupRepository = revenueRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.refreshedDaysCounter = Counter.builder("subscriptions.revenue.refreshed-days")
+                .description("Total number of days recomputed in subscription_revenue_daily")
+                .register(meterRegistry);
+        Gauge.builder("subscriptions.revenue.dirty-days", dirtyDays, AtomicLong::get)
+                .description("Number of days touched by subscription changes and waiting for rollup refresh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает обновление агрегатов по расписанию.
+     * <p>
+     * Период задается свойством {@code subscriptions.revenue.refresh-interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${subscriptions.revenue.refresh-interval:PT5M}",
+            initialDelayString = "${subscriptions.revenue.initial-delay:PT10S}"
+    )
+    public void scheduledRefresh() {
+        try {
+            refreshRollups();
+        } catch (RuntimeException e) {
+            log.error("Revenue rollup refresh failed", e);
+        }
+    }
+
+    /**
+     * Пересчитывает агрегаты для дней, затронутых с прошлого обновления, пачками по {@code batchSize} дней,
+     * и, если были пересчитанные дни, обновляет текущие агрегаты по провайдерам.
+     *
+     * @return Количество пересчитанных дней за запуск
+     */
+    @Override
+    public int refreshRollups() {
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer refreshed = transactionTemplate.execute(status -> {
+                if (!subscriptionRepository.tryAdvisoryXactLock(REVENUE_LOCK_KEY))
+                    return null;
+
+                List<Object> days = revenueRollupRepository.claimDirtyDays(batchSize);
+                if (days.isEmpty())
+                    return 0;
+
+                revenueRollupRepository.deleteDailyRollups(days);
+                revenueRollupRepository.insertDailyRollups(days);
+                return days.size();
+            });
+
+            if (refreshed == null) {
+                log.debug("Revenue rollup refresh is running on another node, skipping");
+                break;
+            }
+
+            total += refreshed;
+            refreshedDaysCounter.increment(refreshed);
+
+            if (refreshed < batchSize)
+                break;
+        }
+
+        if (total > 0)
+            transactionTemplate.executeWithoutResult(status -> {
+                if (subscriptionRepository.tryAdvisoryXactLock(REVENUE_LOCK_KEY))
+                    revenueRollupRepository.refreshCurrentRollups();
+            });
+
+        dirtyDays.set(revenueRollupRepository.countDirtyDays());
+
+        if (total > 0)
+            log.info("Refreshed revenue rollups for {} days, pending: {}", total, dirtyDays.get());
+
+        return total;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.webrise.technicaltask.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.webrise.technicaltask.controllers.RevenueController;
+import ru.webrise.technicaltask.dto.DailyRevenueDTO;
+import ru.webrise.technicaltask.dto.ProviderRevenueDTO;
+import ru.webrise.technicaltask.dto.RevenueDTO;
+import ru.webrise.technicaltask.repositories.RevenueRollupRepository;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис отчетов по выручке (MRR) подписок.
+ * <p>
+ * Отчет строится только по агрегатам, которые поддерживает {@link RevenueRollupService}:
+ * <ul>
+ *     <li>{@code subscription_revenue_current} - количество активных подписок по провайдерам</li>
+ *     <li>{@code subscription_revenue_daily} - количество начавшихся и закончившихся подписок по дням и провайдерам</li>
+ * </ul>
+ * Стоимость запроса зависит от количества провайдеров и дней в истории, но не от количества подписок.
+ * MRR считается по текущей цене провайдера. Дневной ряд отражает подписки, период которых
+ * покрывает день, поэтому может расходиться с текущим значением, пока истекшие подписки
+ * не деактивированы {@link SubscriptionExpiryService}.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link RevenueController} - для отчета по выручке</li>
+ * </ul>
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+@RequiredArgsConstructor
+public class RevenueService implements RevenueServiceInterface {
+
+    private static final long MAX_SERIES_DAYS = 366;
+
+    private final RevenueRollupRepository revenueRollupRepository;
+
+    /**
+     * Возвращает MRR по провайдерам, общий MRR и дневной ряд за период.
+     *
+     * @param from Первый день ряда
+     * @param to Последний день ряда
+     * @param providerId ID провайдера или {@code null} для всех провайдеров
+     * @return Отчет по выручке
+     * @throws ValidationException если период задан некорректно
+     * @throws SubscriptionProviderNotFoundException если провайдер не найден
+     */
+    @Override
+    public RevenueDTO getRevenue(LocalDate from, LocalDate to, Long providerId) {
+        if (from.isAfter(to))
+            throw new ValidationException("Parameter 'from' must not be after 'to'");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_SERIES_DAYS)
+            throw new ValidationException("Revenue period cannot be longer than " + MAX_SERIES_DAYS + " days");
+
+        log.debug("Fetching revenue from {} to {} for provider {}", from, to, providerId);
+
+        List<ProviderRevenueDTO> providers = new ArrayList<>();
+        BigDecimal totalMrr = BigDecimal.ZERO;
+        long activeSubscriptions = 0;
+        LocalDateTime refreshedAt = null;
+
+        for (Object[] row : revenueRollupRepository.findProviderRevenue(providerId)) {
+            BigDecimal price = (BigDecimal) row[2];
+            long active = ((Number) row[3]).longValue();
+            BigDecimal mrr = price.multiply(BigDecimal.valueOf(active));
+
+            providers.add(new ProviderRevenueDTO(((Number) row[0]).longValue(), (String) row[1], price, active, mrr));
+            totalMrr = totalMrr.add(mrr);
+            activeSubscriptions += active;
+
+            LocalDateTime providerRefreshedAt = toLocalDateTime(row[4]);
+            if (providerRefreshedAt != null && (refreshedAt == null || providerRefreshedAt.isBefore(refreshedAt)))
+                refreshedAt = providerRefreshedAt;
+        }
+
+        if (providerId != null && providers.isEmpty()) {
+            log.error("Failed to fetch revenue: provider with id {} not found", providerId);
+            throw new SubscriptionProviderNotFoundException("SubscriptionProvider with that id was not found");
+        }
+
+        return new RevenueDTO(totalMrr, activeSubscriptions, refreshedAt, providers,
+                buildDailySeries(from, to, revenueRollupRepository.findDailyRevenueDeltas(to, providerId)));
+    }
+
+    /**
+     * Накапливает дневные изменения в плотный ряд: дни без изменений повторяют предыдущее значение.
+     */
+    private List<DailyRevenueDTO> buildDailySeries(LocalDate from, LocalDate to, List<Object[]> deltas) {
+        List<DailyRevenueDTO> series = new ArrayList<>((int) ChronoUnit.DAYS.between(from, to) + 1);
+        long active = 0;
+        BigDecimal mrr = BigDecimal.ZERO;
+        int index = 0;
+
+        while (index < deltas.size() && toLocalDate(deltas.get(index)[0]).isBefore(from)) {
+            Object[] row = deltas.get(index++);
+            active += ((Number) row[1]).longValue() - ((Number) row[2]).longValue();
+            mrr = mrr.add((BigDecimal) row[3]);
+        }
+
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            long started = 0;
+            long ended = 0;
+
+            if (index < deltas.size() && toLocalDate(deltas.get(index)[0]).equals(day)) {
+                Object[] row = deltas.get(index++);
+                started = ((Number) row[1]).longValue();
+                ended = ((Number) row[2]).longValue();
+                active += started - ended;
+                mrr = mrr.add((BigDecimal) row[3]);
+            }
+
+            series.add(new DailyRevenueDTO(day, started, ended, active, mrr));
+        }
+
+        return series;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.RevenueDTO;
+
+import java.time.LocalDate;
+
+public interface RevenueServiceInterface {
+
+    RevenueDTO getRevenue(LocalDate from, LocalDate to, Long providerId);
+}
@@ -0,0 +1,118 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.ArchivedSubscriptionRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Сервис переноса давно неактивных подписок в холодную таблицу {@code subscriptions_archive}.
+ * <p>
+ * Подписка считается давно неактивной, если она деактивирована и ее {@code end_date}
+ * (или {@code start_date}, если дата окончания не задана) старше {@code subscriptions.archive.retention}.
+ * Перенос выполняется пачками: каждая пачка удаляет строки из {@code subscriptions} и вставляет их
+ * в архив одним запросом в отдельной транзакции, поэтому прерванный запуск безопасно продолжается
+ * со следующей пачки.
+ * <p>
+ * Архивные подписки доступны через
+ * {@link SubscriptionService#getSubscriptionByUserId(long, boolean)}.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "subscriptions.archive", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionArchiveService implements SubscriptionArchiveServiceInterface {
+
+    private static final long ARCHIVE_LOCK_KEY = "subscriptions.archive".hashCode();
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final ArchivedSubscriptionRepository archivedSubscriptionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter archivedCounter;
+
+    public SubscriptionArchiveService(
+            SubscriptionRepository subscriptionRepository,
+            ArchivedSubscriptionRepository archivedSubscriptionRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.archive.retention:P90D}") Duration retention,
+            @Value("${subscriptions.archive.batch-size:1000}") int batchSize,
+            @Value("${subscriptions.archive.max-batches-per-run:100}") int maxBatchesPerRun
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.archivedSubscriptionRepository = archivedSubscriptionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.archivedCounter = Counter.builder("subscriptions.archive.archived")
+                .description("Total number of inactive subscriptions moved to subscriptions_archive")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает архивацию по расписанию.
+     * <p>
+     * Период задается свойством {@code subscriptions.archive.interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${subscriptions.archive.interval:PT1H}",
+            initialDelayString = "${subscriptions.archive.interval:PT1H}"
+    )
+    public void scheduledArchive() {
+        try {
+            archiveSubscriptions();
+        } catch (RuntimeException e) {
+            log.error("Subscription archive run failed", e);
+        }
+    }
+
+    /**
+     * Переносит давно неактивные подписки в архив пачками по {@code batchSize} записей.
+     *
+     * @return Количество перенесенных подписок за запуск
+     */
+    @Override
+    public int archiveSubscriptions() {
+        LocalDateTime threshold = LocalDateTime.now().minus(retention);
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer archived = transactionTemplate.execute(status -> {
+                if (!subscriptionRepository.tryAdvisoryXactLock(ARCHIVE_LOCK_KEY))
+                    return null;
+                return archivedSubscriptionRepository.archiveBatch(threshold, batchSize);
+            });
+
+            if (archived == null) {
+                log.debug("Subscription archive is running on another node, skipping");
+                break;
+            }
+
+            total += archived;
+            archivedCounter.increment(archived);
+
+            if (archived < batchSize)
+                break;
+        }
+
+        if (total > 0)
+            log.info("Moved {} inactive subscriptions older than {} to archive", total, threshold);
+
+        return total;
+    }
+}
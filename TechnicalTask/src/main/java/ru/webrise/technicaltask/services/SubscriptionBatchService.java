@@ -0,0 +1,261 @@
+package ru.webrise.technicaltask.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.BindingResult;
+import ru.webrise.technicaltask.controllers.SubscriptionBatchController;
+import ru.webrise.technicaltask.dto.SubscriptionBatchDTO;
+import ru.webrise.technicaltask.dto.SubscriptionBatchResultDTO;
+import ru.webrise.technicaltask.dto.SubscriptionDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationResultDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationType;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.SubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис пакетного изменения подписок пользователя.
+ * <p>
+ * Все операции пакета проверяются по очереди на снимке подписок пользователя, как если бы они
+ * выполнялись последовательно. Если хотя бы одна операция некорректна, пакет не применяется целиком.
+ * Иначе изменения записываются в одной транзакции тремя JDBC-пакетами: удаления, обновления, вставки.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link SubscriptionBatchController} - для пакетных операций с подписками</li>
+ * </ul>
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+@RequiredArgsConstructor
+public class SubscriptionBatchService implements SubscriptionBatchServiceInterface {
+
+    static final String STATUS_CREATED = "created";
+    static final String STATUS_UPDATED = "updated";
+    static final String STATUS_DELETED = "deleted";
+    static final String STATUS_FAILED = "failed";
+    static final String STATUS_NOT_APPLIED = "not_applied";
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionProviderRepository subscriptionProviderRepository;
+    private final UserRepository userRepository;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    /**
+     * Применяет пакет операций над подписками пользователя.
+     * <p>
+     * Используется в {@link SubscriptionBatchController#applyBatch(long, SubscriptionBatchDTO, BindingResult)}.
+     * Пользователь проверяется одним запросом, все провайдеры пакета - одним запросом,
+     * подписки пользователя блокируются до конца транзакции.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param operations Операции в порядке применения
+     * @return Результат по каждой операции и признак применения пакета
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    @Override
+    @Transactional
+    public SubscriptionBatchResultDTO applyBatch(long userId, List<SubscriptionOperationDTO> operations) {
+        log.info("Attempting to apply batch of {} subscription operations for user ID: {}", operations.size(), userId);
+
+        if (!userRepository.existsById(userId)) {
+            log.error("Failed to apply subscription batch: user with ID {} not found", userId);
+            throw new UserNotFoundException("User with that id was not found");
+        }
+
+        Map<Long, State> subscriptions = new HashMap<>();
+        Map<Long, Long> subscriptionByProvider = new HashMap<>();
+        for (Object[] row : subscriptionRepository.lockSubscriptionStatesByUserId(userId)) {
+            long id = ((Number) row[0]).longValue();
+            long providerId = ((Number) row[1]).longValue();
+            subscriptions.put(id, new State(providerId, Boolean.TRUE.equals(row[2])));
+            subscriptionByProvider.put(providerId, id);
+        }
+
+        Set<Long> requestedProviderIds = operations.stream()
+                .map(SubscriptionOperationDTO::getSubscription)
+                .filter(Objects::nonNull)
+                .map(SubscriptionDTO::getSubscriptionProvider)
+                .filter(Objects::nonNull)
+                .map(SubscriptionProvider::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingProviderIds = requestedProviderIds.isEmpty()
+                ? Set.of()
+                : subscriptionProviderRepository.findExistingIds(requestedProviderIds);
+
+        Plan plan = new Plan(userId, subscriptions, subscriptionByProvider, existingProviderIds);
+        for (int i = 0; i < operations.size(); i++)
+            plan.add(i, operations.get(i));
+
+        if (plan.failed) {
+            log.error("Failed to apply subscription batch for user ID: {}: at least one operation is invalid", userId);
+            return new SubscriptionBatchResultDTO(false, plan.results.stream()
+                    .map(result -> STATUS_FAILED.equals(result.status()) ? result : new SubscriptionOperationResultDTO(
+                            result.index(), result.op(), result.subscriptionId(), STATUS_NOT_APPLIED, null))
+                    .toList());
+        }
+
+        subscriptionRepository.deleteSubscriptions(userId, plan.deletes);
+        subscriptionRepository.updateSubscriptions(userId, plan.updates);
+        List<Long> createdIds = subscriptionRepository.insertSubscriptions(userId, plan.inserts);
+
+        List<SubscriptionOperationResultDTO> results = new ArrayList<>(plan.results);
+        for (int i = 0; i < createdIds.size(); i++) {
+            int index = plan.insertResultIndexes.get(i);
+            SubscriptionOperationResultDTO result = results.get(index);
+            results.set(index, new SubscriptionOperationResultDTO(
+                    result.index(), result.op(), createdIds.get(i), result.status(), null));
+        }
+        plan.events.forEach(Runnable::run);
+
+        log.info("Successfully applied subscription batch for user ID: {}: {} created, {} updated, {} deleted",
+                userId, plan.inserts.size(), plan.updates.size(), plan.deletes.size());
+        return new SubscriptionBatchResultDTO(true, results);
+    }
+
+    private record State(long providerId, boolean active) {}
+
+    /**
+     * Последовательная проверка операций на снимке подписок с накоплением изменений и событий.
+     */
+    private final class Plan {
+
+        private final long userId;
+        private final Map<Long, State> subscriptions;
+        private final Map<Long, Long> subscriptionByProvider;
+        private final Set<Long> existingProviderIds;
+
+        private final List<SubscriptionOperationResultDTO> results = new ArrayList<>();
+        private final List<Long> deletes = new ArrayList<>();
+        private final List<SubscriptionRow> updates = new ArrayList<>();
+        private final List<SubscriptionRow> inserts = new ArrayList<>();
+        private final List<Integer> insertResultIndexes = new ArrayList<>();
+        private final List<Runnable> events = new ArrayList<>();
+        private boolean failed;
+
+        private Plan(long userId, Map<Long, State> subscriptions, Map<Long, Long> subscriptionByProvider,
+                     Set<Long> existingProviderIds) {
+            this.userId = userId;
+            this.subscriptions = subscriptions;
+            this.subscriptionByProvider = subscriptionByProvider;
+            this.existingProviderIds = existingProviderIds;
+        }
+
+        private void add(int index, SubscriptionOperationDTO operation) {
+            String error = switch (operation.getOp()) {
+                case CREATE -> create(index, operation.getSubscription());
+                case UPDATE -> update(index, operation.getSubscriptionId(), operation.getSubscription());
+                case DELETE -> delete(index, operation.getSubscriptionId());
+            };
+            if (error != null) {
+                failed = true;
+                results.add(new SubscriptionOperationResultDTO(
+                        index, operation.getOp(), operation.getSubscriptionId(), STATUS_FAILED, error));
+            }
+        }
+
+        private String create(int index, SubscriptionDTO subscription) {
+            String error = validateSubscription(subscription, null);
+            if (error != null)
+                return error;
+
+            long providerId = subscription.getSubscriptionProvider().getId();
+            subscriptionByProvider.put(providerId, -1L - index);
+            inserts.add(toRow(null, subscription));
+            insertResultIndexes.add(index);
+            results.add(new SubscriptionOperationResultDTO(
+                    index, SubscriptionOperationType.CREATE, null, STATUS_CREATED, null));
+
+            events.add(() -> subscriptionChangeNotifier.subscriptionCreated(userId, providerId));
+            if (subscription.isActive())
+                events.add(() -> subscriptionChangeNotifier.subscriptionActivated(userId, providerId));
+            return null;
+        }
+
+        private String update(int index, Long subscriptionId, SubscriptionDTO subscription) {
+            if (subscriptionId == null)
+                return "Subscription id must not be null";
+            State state = subscriptions.get(subscriptionId);
+            if (state == null)
+                return "No subscriptions was found for this user";
+            String error = validateSubscription(subscription, subscriptionId);
+            if (error != null)
+                return error;
+
+            long providerId = subscription.getSubscriptionProvider().getId();
+            subscriptionByProvider.remove(state.providerId());
+            subscriptionByProvider.put(providerId, subscriptionId);
+            subscriptions.put(subscriptionId, new State(providerId, subscription.isActive()));
+            updates.add(toRow(subscriptionId, subscription));
+            results.add(new SubscriptionOperationResultDTO(
+                    index, SubscriptionOperationType.UPDATE, subscriptionId, STATUS_UPDATED, null));
+
+            boolean providerChanged = state.providerId() != providerId;
+            if (state.active() && (!subscription.isActive() || providerChanged))
+                events.add(() -> subscriptionChangeNotifier.subscriptionDeactivated(userId, state.providerId()));
+            if (subscription.isActive() && (!state.active() || providerChanged))
+                events.add(() -> subscriptionChangeNotifier.subscriptionActivated(userId, providerId));
+            return null;
+        }
+
+        private String delete(int index, Long subscriptionId) {
+            if (subscriptionId == null)
+                return "Subscription id must not be null";
+            State state = subscriptions.remove(subscriptionId);
+            if (state == null)
+                return "No subscriptions was found for this user";
+
+            subscriptionByProvider.remove(state.providerId());
+            deletes.add(subscriptionId);
+            results.add(new SubscriptionOperationResultDTO(
+                    index, SubscriptionOperationType.DELETE, subscriptionId, STATUS_DELETED, null));
+
+            if (state.active())
+                events.add(() -> subscriptionChangeNotifier.subscriptionDeactivated(userId, state.providerId()));
+            return null;
+        }
+
+        private String validateSubscription(SubscriptionDTO subscription, Long subscriptionId) {
+            if (subscription == null)
+                return "Subscription must not be null";
+            if (subscription.getSubscriptionProvider() == null || subscription.getSubscriptionProvider().getId() == null)
+                return "SubscriptionProvider must not be null";
+
+            long providerId = subscription.getSubscriptionProvider().getId();
+            if (!existingProviderIds.contains(providerId))
+                return "SubscriptionProvider with that id was not found";
+            Long holder = subscriptionByProvider.get(providerId);
+            if (holder != null && !holder.equals(subscriptionId))
+                return "This subscription already exists";
+            return null;
+        }
+
+        private SubscriptionRow toRow(Long subscriptionId, SubscriptionDTO subscription) {
+            return new SubscriptionRow(
+                    subscriptionId,
+                    subscription.getSubscriptionProvider().getId(),
+                    subscription.getStartDate(),
+                    subscription.getEndDate(),
+                    subscription.isActive()
+            );
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.SubscriptionBatchResultDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationDTO;
+
+import java.util.List;
+
+public interface SubscriptionBatchServiceInterface {
+
+    SubscriptionBatchResultDTO applyBatch(long userId, List<SubscriptionOperationDTO> operations);
+}
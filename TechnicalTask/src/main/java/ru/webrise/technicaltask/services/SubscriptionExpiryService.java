@@ -0,0 +1,149 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис фоновой деактивации подписок, у которых истек {@code end_date}.
+ * <p>
+ * Подписки деактивируются ограниченными пачками ({@code FOR UPDATE SKIP LOCKED}), каждая пачка
+ * выполняется в отдельной транзакции. Перед каждой пачкой берется транзакционная advisory-блокировка,
+ * поэтому при нескольких экземплярах приложения цикл в каждый момент выполняет только один узел.
+ * О каждой деактивированной подписке сообщается через {@link SubscriptionChangeNotifier}.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code subscriptions.expiry.expired} - общее количество деактивированных подписок</li>
+ *     <li>{@code subscriptions.expiry.run.expired} - количество деактивированных подписок за один запуск</li>
+ *     <li>{@code subscriptions.expiry.backlog} - количество истекших, но еще активных подписок</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "subscriptions.expiry", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionExpiryService implements SubscriptionExpiryServiceInterface {
+
+    private static final long EXPIRY_LOCK_KEY = "subscriptions.expiry".hashCode();
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter expiredCounter;
+    private final DistributionSummary expiredPerRun;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public SubscriptionExpiryService(
+            SubscriptionRepository subscriptionRepository,
+            SubscriptionChangeNotifier subscriptionChangeNotifier,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.expiry.batch-size:500}") int batchSize,
+            @Value("${subscriptions.expiry.max-batches-per-run:100}") int maxBatchesPerRun
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionChangeNotifier = subscriptionChangeNotifier;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.expiredCounter = Counter.builder("subscriptions.expiry.expired")
+                .description("Total number of subscriptions deactivated after end_date")
+                .register(meterRegistry);
+        this.expiredPerRun = DistributionSummary.builder("subscriptions.expiry.run.expired")
+                .description("Number of subscriptions deactivated per expiry run")
+                .register(meterRegistry);
+        Gauge.builder("subscriptions.expiry.backlog", backlog, AtomicLong::get)
+                .description("Number of active subscriptions whose end_date has already passed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает цикл деактивации по расписанию.
+     * <p>
+     * Период задается свойством {@code subscriptions.expiry.interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${subscriptions.expiry.interval:PT1M}",
+            initialDelayString = "${subscriptions.expiry.interval:PT1M}"
+    )
+    public void scheduledExpiry() {
+        try {
+            expireSubscriptions();
+        } catch (RuntimeException e) {
+            log.error("Subscription expiry run failed", e);
+        }
+    }
+
+    /**
+     * Деактивирует истекшие подписки пачками по {@code batchSize} записей.
+     * <p>
+     * Цикл завершается, если пачка оказалась неполной, достигнут лимит пачек за запуск
+     * или блокировку удерживает другой узел.
+     * </p>
+     *
+     * @return Количество деактивированных подписок за запуск
+     */
+    @Override
+    public int expireSubscriptions() {
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer expired = transactionTemplate.execute(status -> {
+                if (!subscriptionRepository.tryAdvisoryXactLock(EXPIRY_LOCK_KEY))
+                    return null;
+
+                List<Object[]> expiredPairs = subscriptionRepository.expireBatch(batchSize);
+                for (Object[] pair : expiredPairs)
+                    subscriptionChangeNotifier.subscriptionDeactivated(
+                            ((Number) pair[0]).longValue(), ((Number) pair[1]).longValue());
+                return expiredPairs.size();
+            });
+
+            if (expired == null) {
+                log.debug("Subscription expiry is running on another node, skipping");
+                break;
+            }
+
+            total += expired;
+            expiredCounter.increment(expired);
+
+            if (expired < batchSize)
+                break;
+        }
+
+        expiredPerRun.record(total);
+        backlog.set(getExpiredBacklog());
+
+        if (total > 0)
+            log.info("Deactivated {} expired subscriptions, backlog: {}", total, backlog.get());
+
+        return total;
+    }
+
+    /**
+     * Возвращает количество активных подписок с истекшим {@code end_date}.
+     *
+     * @return Размер очереди на деактивацию
+     */
+    @Override
+    public long getExpiredBacklog() {
+        return subscriptionRepository.countExpiredBacklog();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.services;
+
+public interface SubscriptionExpiryServiceInterface {
+
+    int expireSubscriptions();
+
+    long getExpiredBacklog();
+}
@@ -0,0 +1,104 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+
+import java.time.Duration;
+
+/**
+ * Сервис удаления событий из {@code subscription_change_outbox}.
+ * <p>
+ * Сначала удаляются узлы, не обновлявшие позицию дольше {@code events.outbox.consumer-timeout}, затем события,
+ * которые прочитали все оставшиеся узлы, и события старше {@code events.outbox.retention} независимо от позиций:
+ * узел, отставший больше чем на срок хранения, эти события не получит и догоняет состояние плановой перестройкой кэшей.
+ * События удаляются пачками по {@code events.outbox.cleanup.batch-size} в отдельных транзакциях
+ * ({@code FOR UPDATE SKIP LOCKED}), поэтому несколько узлов могут чистить таблицу одновременно.
+ * <p>
+ * Публикует метрику {@code events.outbox.deleted} - общее количество удаленных событий.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "events.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionOutboxCleanupService implements SubscriptionOutboxCleanupServiceInterface {
+
+    private static final int MAX_BATCHES_PER_RUN = 100;
+
+    private final SubscriptionChangeOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration consumerTimeout;
+    private final Duration retention;
+    private final int batchSize;
+
+    private final Counter deletedCounter;
+
+    public SubscriptionOutboxCleanupService(
+            SubscriptionChangeOutboxRepository outboxRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${events.outbox.consumer-timeout:PT1M}") Duration consumerTimeout,
+            @Value("${events.outbox.retention:PT1H}") Duration retention,
+            @Value("${events.outbox.cleanup.batch-size:1000}") int batchSize
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.consumerTimeout = consumerTimeout;
+        this.retention = retention;
+        this.batchSize = batchSize;
+
+        this.deletedCounter = Counter.builder("events.outbox.deleted")
+                .description("Total number of outbox events deleted after delivery or expiry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает очистку по расписанию.
+     * <p>
+     * Период задается свойством {@code events.outbox.cleanup.interval}.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${events.outbox.cleanup.interval:PT1M}")
+    public void scheduledCleanup() {
+        try {
+            deleteConsumedEvents();
+        } catch (RuntimeException e) {
+            log.error("Outbox cleanup run failed", e);
+        }
+    }
+
+    /**
+     * Удаляет остановленные узлы и события, которые больше не нужны ни одному узлу,
+     * пачками, пока очередная пачка не окажется неполной.
+     *
+     * @return Количество удаленных событий за запуск
+     */
+    @Override
+    public int deleteConsumedEvents() {
+        int staleConsumers = outboxRepository.deleteStaleConsumers(consumerTimeout);
+        if (staleConsumers > 0)
+            log.warn("Removed {} outbox consumers without a heartbeat for {}", staleConsumers, consumerTimeout);
+
+        int total = 0;
+
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteConsumedBatch(retention, batchSize));
+            int count = deleted != null ? deleted : 0;
+            total += count;
+            deletedCounter.increment(count);
+
+            if (count < batchSize)
+                break;
+        }
+
+        if (total > 0)
+            log.debug("Deleted {} outbox events", total);
+
+        return total;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.webrise.technicaltask.events.SubscriptionChangeBus;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Entry;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Position;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис ретрансляции событий из {@code subscription_change_outbox} в {@link SubscriptionChangeBus} узла.
+ * <p>
+ * События в outbox записывает {@link SubscriptionChangeNotifier} в транзакции самого изменения.
+ * Каждый узел читает outbox независимо от остальных со своей позиции: при первом запуске узел
+ * регистрируется в {@code subscription_change_outbox_consumers} с позицией на горизонте завершенных
+ * транзакций и далее читает пачки событий после нее, не удаляя их. Позиция сдвигается только после
+ * публикации пачки в шину, поэтому каждый работающий узел получает каждое событие хотя бы один раз;
+ * после ошибки или прерывания пачка читается повторно. Если в очереди шины нет места под пачку,
+ * запуск завершается и события ждут в таблице.
+ * <p>
+ * Позиция сохраняется в БД раз в {@code events.outbox.heartbeat-interval} и служит отметкой, что узел жив:
+ * по ней {@link SubscriptionOutboxCleanupService} удаляет события, прочитанные всеми узлами. Сохраненная
+ * позиция может отставать от позиции в памяти, поэтому очистка не удаляет непрочитанные узлом события.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code events.outbox.relayed} - общее количество ретранслированных событий</li>
+ *     <li>{@code events.outbox.backpressure} - количество запусков, остановленных заполненной шиной</li>
+ *     <li>{@code events.outbox.backlog} - количество событий после позиции узла</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "events.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionOutboxRelayService implements SubscriptionOutboxRelayServiceInterface {
+
+    private final SubscriptionChangeOutboxRepository outboxRepository;
+    private final SubscriptionChangeBus subscriptionChangeBus;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long heartbeatIntervalNanos;
+
+    private final Counter relayedCounter;
+    private final Counter backpressureCounter;
+    private final AtomicLong backlog = new AtomicLong();
+
+    private volatile Position position;
+    private long savedAt;
+
+    public SubscriptionOutboxRelayService(
+            SubscriptionChangeOutboxRepository outboxRepository,
+            SubscriptionChangeBus subscriptionChangeBus,
+            MeterRegistry meterRegistry,
+            @Value("${events.outbox.node-id:${random.uuid}}") String nodeId,
+            @Value("${events.outbox.batch-size:500}") int batchSize,
+            @Value("${events.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${events.outbox.heartbeat-interval:PT5S}") Duration heartbeatInterval
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.subscriptionChangeBus = subscriptionChangeBus;
+        this.nodeId = nodeId;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+
+        this.relayedCounter = Counter.builder("events.outbox.relayed")
+                .description("Total number of outbox events relayed to the in-process bus")
+                .register(meterRegistry);
+        this.backpressureCounter = Counter.builder("events.outbox.backpressure")
+                .description("Number of relay runs stopped because the event bus was full")
+                .register(meterRegistry);
+        Gauge.builder("events.outbox.backlog", backlog, AtomicLong::get)
+                .description("Number of outbox events after this node's position")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает ретрансляцию по расписанию.
+     * <p>
+     * Период задается свойством {@code events.outbox.relay-interval}.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${events.outbox.relay-interval:PT0.2S}")
+    public void scheduledRelay() {
+        try {
+            relayEvents();
+        } catch (RuntimeException e) {
+            log.error("Outbox relay run failed", e);
+        }
+    }
+
+    /**
+     * Ретранслирует события пачками по {@code batchSize} записей.
+     * <p>
+     * Цикл завершается, если пачка оказалась неполной, достигнут лимит пачек за запуск
+     * или в шине нет места под следующую пачку.
+     * </p>
+     *
+     * @return Количество ретранслированных событий за запуск
+     */
+    @Override
+    public synchronized int relayEvents() {
+        if (position == null) {
+            position = outboxRepository.registerConsumer(nodeId);
+            savedAt = System.nanoTime();
+            log.info("Registered outbox consumer {} at position {}", nodeId, position);
+        }
+
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (subscriptionChangeBus.remainingCapacity() < batchSize) {
+                backpressureCounter.increment();
+                log.debug("Subscription change bus is full, leaving events in the outbox");
+                break;
+            }
+
+            List<Entry> entries = outboxRepository.readBatch(position, batchSize);
+            if (entries.isEmpty())
+                break;
+
+            try {
+                subscriptionChangeBus.publish(entries.stream().map(Entry::event).toList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Outbox relay interrupted, {} events will be read again", entries.size());
+                break;
+            }
+
+            position = entries.get(entries.size() - 1).position();
+            total += entries.size();
+            relayedCounter.increment(entries.size());
+
+            if (entries.size() < batchSize)
+                break;
+        }
+
+        savePositionIfDue();
+        backlog.set(getOutboxBacklog());
+
+        if (total > 0)
+            log.debug("Relayed {} outbox events, backlog: {}", total, backlog.get());
+
+        return total;
+    }
+
+    /**
+     * Возвращает количество событий, которые узлу еще предстоит прочитать.
+     *
+     * @return Количество событий после позиции узла
+     */
+    @Override
+    public long getOutboxBacklog() {
+        Position current = position;
+        return current != null ? outboxRepository.countBacklog(current) : 0;
+    }
+
+    private void savePositionIfDue() {
+        long now = System.nanoTime();
+        if (now - savedAt < heartbeatIntervalNanos)
+            return;
+
+        outboxRepository.savePosition(nodeId, position);
+        savedAt = now;
+    }
+}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.services;
+
+public interface SubscriptionOutboxRelayServiceInterface {
+
+    int relayEvents();
+
+    long getOutboxBacklog();
+}
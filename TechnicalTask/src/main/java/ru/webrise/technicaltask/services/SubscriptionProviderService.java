@@ -6,9 +6,12 @@ import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
 import ru.webrise.technicaltask.dto.SubscriptionProviderDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.util.coalescing.Coalesced;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueProviderNameException;
 import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
 import ru.webrise.technicaltask.controllers.SubscriptionProviderController;
@@ -31,6 +34,7 @@ import ru.webrise.technicaltask.controllers.SubscriptionProviderController;
 public class SubscriptionProviderService implements SubscriptionProviderServiceInterface {
 
     private final SubscriptionProviderRepository subscriptionProviderRepository;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
     private final ModelMapper modelMapper;
 
     /**
@@ -83,6 +87,7 @@ public class SubscriptionProviderService implements SubscriptionProviderServiceI
 
         convertToSubscriptionProvider(providerDTO, provider);
         subscriptionProviderRepository.save(provider);
+        subscriptionChangeNotifier.providerUpdated(id);
 
         log.info("Successfully updated subscription provider with ID: {}", id);
     }
@@ -91,7 +96,8 @@ public class SubscriptionProviderService implements SubscriptionProviderServiceI
      * Удаляет провайдера подписок.
      * <p>
      * Используется в {@link SubscriptionProviderController#deleteSubscriptionProvider(long)}
-     * при удалении провайдера.
+     * при удалении провайдера. Подписки удаляются каскадно в той же транзакции,
+     * для провайдеров с большим числом подписок используется {@link ProviderJobService}.
      * </p>
      *
      * @param id ID удаляемого провайдера
@@ -109,6 +115,7 @@ public class SubscriptionProviderService implements SubscriptionProviderServiceI
                 });
 
         subscriptionProviderRepository.delete(provider);
+        subscriptionChangeNotifier.providerRemoved(id);
 
         log.info("Successfully deleted subscription provider with ID: {}", id);
     }
@@ -116,7 +123,7 @@ public class SubscriptionProviderService implements SubscriptionProviderServiceI
     /**
      * Получает информацию о провайдере подписок.
      * <p>
-     * Используется в {@link SubscriptionProviderController#getSubscriptionProviderById(long)}
+     * Используется в {@link SubscriptionProviderController#getSubscriptionProviderById(long, WebRequest)}
      * для получения данных провайдера.
      * </p>
      *
@@ -125,6 +132,7 @@ public class SubscriptionProviderService implements SubscriptionProviderServiceI
      * @throws SubscriptionProviderNotFoundException если провайдер не найден
      */
     @Override
+    @Coalesced("providers.info")
     public SubscriptionProvider getSubscriptionProviderInfo(Long id) {
         log.debug("Fetching subscription provider info for ID: {}", id);
         return subscriptionProviderRepository.findById(id)
@@ -3,22 +3,36 @@ package ru.webrise.technicaltask.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
 import ru.webrise.technicaltask.dto.SubscriptionDTO;
 import ru.webrise.technicaltask.dto.SubscriptionStats;
 import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.Subscription;
 import ru.webrise.technicaltask.models.User;
+import ru.webrise.technicaltask.repositories.ArchivedSubscriptionRepository;
 import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.util.SparseFieldset;
+import ru.webrise.technicaltask.util.coalescing.Coalesced;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueUserAndSubscriptionProvider;
 import ru.webrise.technicaltask.util.exceptions.SubscriptionNotFoundException;
 import ru.webrise.technicaltask.controllers.*;
 import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Сервис для управления подписками пользователей.
@@ -39,8 +53,12 @@ import java.util.List;
 public class SubscriptionService implements SubscriptionServiceInterface {
 
     private final SubscriptionRepository subscriptionRepository;
+    private final ArchivedSubscriptionRepository archivedSubscriptionRepository;
     private final UserService userService;
     private final SubscriptionProviderService subscriptionProviderService;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+    private final ObjectProvider<SubscriptionUpdateGroupCommitter> groupCommitter;
+    private final TransactionTemplate transactionTemplate;
     private final ModelMapper modelMapper;
 
     /**
@@ -72,6 +90,10 @@ public class SubscriptionService implements SubscriptionServiceInterface {
         subscription.setUser(user);
         subscription = subscriptionRepository.save(subscription);
 
+        subscriptionChangeNotifier.subscriptionCreated(userId, subscriptionDTO.getSubscriptionProvider().getId());
+        if (subscription.isActive())
+            subscriptionChangeNotifier.subscriptionActivated(userId, subscriptionDTO.getSubscriptionProvider().getId());
+
         log.info("Successfully saved subscription with ID: {} for user ID: {}",
                 subscription.getId(), userId);
 
@@ -82,7 +104,10 @@ public class SubscriptionService implements SubscriptionServiceInterface {
      * Обновляет существующую подписку пользователя.
      * <p>
      * Используется в {@link SubscriptionController#updateSubscription(long, long, SubscriptionDTO, BindingResult)}
-     * при изменении параметров подписки.
+     * при изменении параметров подписки. Если включена групповая фиксация
+     * ({@code subscriptions.update.group-commit.enabled}) и вызов не идет внутри транзакции, обновление
+     * записывается пачкой вместе с параллельными через {@link SubscriptionUpdateGroupCommitter},
+     * метод возвращается после фиксации пачки. Иначе обновление выполняется в отдельной транзакции.
      * </p>
      *
      * @param userId ID пользователя
@@ -92,10 +117,24 @@ public class SubscriptionService implements SubscriptionServiceInterface {
      * @throws SubscriptionNotFoundException если подписка не найдена
      */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void updateSubscription(long userId, long subId, SubscriptionDTO subscriptionDTO) {
         log.info("Attempting to update subscription ID: {} for user ID: {}", subId, userId);
 
+        SubscriptionUpdateGroupCommitter committer = groupCommitter.getIfAvailable();
+        if (committer != null && !TransactionSynchronizationManager.isActualTransactionActive()
+                && committer.update(userId, subId, subscriptionDTO)) {
+            log.info("Successfully updated subscription ID: {} for user ID: {} in group commit", subId, userId);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> applyUpdate(userId, subId, subscriptionDTO));
+    }
+
+    /**
+     * Обновляет подписку в текущей транзакции.
+     */
+    private void applyUpdate(long userId, long subId, SubscriptionDTO subscriptionDTO) {
         userService.getUserInfo(userId);
         Subscription subscription = subscriptionRepository.findByIdAndUser_Id(subId, userId)
                 .orElseThrow(() -> {
@@ -103,8 +142,12 @@ public class SubscriptionService implements SubscriptionServiceInterface {
                     return new SubscriptionNotFoundException("No subscriptions was found for this user");
                 });
 
+        boolean wasActive = subscription.isActive();
+        Long oldProviderId = getProviderId(subscription);
+
         convertToSubscription(subscriptionDTO, subscription);
         subscriptionRepository.save(subscription);
+        notifyStateChange(userId, wasActive, oldProviderId, subscription);
 
         log.info("Successfully updated subscription ID: {} for user ID: {}", subId, userId);
     }
@@ -132,25 +175,49 @@ public class SubscriptionService implements SubscriptionServiceInterface {
                 });
 
         subscriptionRepository.delete(subscription);
+        if (subscription.isActive() && getProviderId(subscription) != null)
+            subscriptionChangeNotifier.subscriptionDeactivated(userId, getProviderId(subscription));
         log.info("Successfully deleted subscription ID: {} for user ID: {}", subId, userId);
     }
 
+    /**
+     * Получает список активных подписок пользователя.
+     *
+     * @param userId ID пользователя
+     * @return Список подписок
+     * @throws SubscriptionNotFoundException если подписки не найдены
+     */
+    @Override
+    public List<UserSubscriptionsDTO> getSubscriptionByUserId(long userId) {
+        return getSubscriptionByUserId(userId, false);
+    }
+
     /**
      * Получает список подписок пользователя.
      * <p>
-     * Используется в {@link SubscriptionController#getSubscriptions(long)}
-     * для получения всех подписок пользователя.
+     * Используется в {@link SubscriptionController#getSubscriptions(long, boolean)}
+     * для получения всех подписок пользователя. Без {@code includeArchived} возвращаются только
+     * активные подписки, с ним - вся история: подписки в любом состоянии и перенесенные в архив,
+     * упорядоченные по дате начала.
      * </p>
      *
      * @param userId ID пользователя
+     * @param includeArchived Нужно ли включать неактивные и архивные подписки
      * @return Список подписок
      * @throws SubscriptionNotFoundException если подписки не найдены
      */
     @Override
-    public List<UserSubscriptionsDTO> getSubscriptionByUserId(long userId) {
-        log.debug("Fetching subscriptions for user ID: {}", userId);
+    @Coalesced("subscriptions.by-user")
+    public List<UserSubscriptionsDTO> getSubscriptionByUserId(long userId, boolean includeArchived) {
+        log.debug("Fetching subscriptions for user ID: {} (includeArchived: {})", userId, includeArchived);
 
-        List<UserSubscriptionsDTO> subscriptions = subscriptionRepository.findByUserId(userId);
+        List<UserSubscriptionsDTO> subscriptions;
+        if (includeArchived) {
+            subscriptions = new ArrayList<>(subscriptionRepository.findAllByUserId(userId));
+            subscriptions.addAll(archivedSubscriptionRepository.findByUserId(userId));
+            subscriptions.sort(Comparator.comparing(UserSubscriptionsDTO::startDate));
+        } else
+            subscriptions = subscriptionRepository.findByUserId(userId);
 
         if (subscriptions.isEmpty()) {
             log.warn("No subscriptions found for user ID: {}", userId);
@@ -161,10 +228,41 @@ public class SubscriptionService implements SubscriptionServiceInterface {
         return subscriptions;
     }
 
+    /**
+     * Получает список подписок пользователя только с запрошенными полями.
+     * <p>
+     * Используется в {@link SubscriptionController#getSubscriptionFields(long, boolean, String)}
+     * при передаче параметра {@code fields}. В запрос попадают только колонки запрошенных полей,
+     * провайдер присоединяется, только если запрошены его имя или цена.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param includeArchived Нужно ли включать неактивные и архивные подписки
+     * @param fields Список полей через запятую, например {@code id,subscriptionProvider.name}
+     * @return Список подписок с запрошенными полями
+     * @throws SubscriptionNotFoundException если подписки не найдены
+     */
+    @Override
+    public List<Map<String, Object>> getSubscriptionFieldsByUserId(long userId, boolean includeArchived, String fields) {
+        Set<String> requested = SparseFieldset.parse(fields, SubscriptionRepository.SUBSCRIPTION_FIELDS);
+        log.debug("Fetching fields {} of subscriptions for user ID: {} (includeArchived: {})",
+                requested, userId, includeArchived);
+
+        List<Map<String, Object>> subscriptions =
+                subscriptionRepository.findSubscriptionFields(userId, includeArchived, requested);
+
+        if (subscriptions.isEmpty()) {
+            log.warn("No subscriptions found for user ID: {}", userId);
+            throw new SubscriptionNotFoundException("No subscriptions was found for this user");
+        }
+
+        return subscriptions;
+    }
+
     /**
      * Получает топ популярных подписок.
      * <p>
-     * Используется в {@link TopSubscriptionsController#getTopSubscriptions(int)}
+     * Используется в {@link TopSubscriptionsController#getTopSubscriptions(int, String, String, WebRequest)}
      * для аналитики наиболее популярных подписок.
      * </p>
      *
@@ -173,6 +271,7 @@ public class SubscriptionService implements SubscriptionServiceInterface {
      * @throws SubscriptionNotFoundException если подписки не найдены
      */
     @Override
+    @Coalesced("subscriptions.top")
     public List<SubscriptionStats> getTopSubscriptions(int limit) {
         log.debug("Fetching top {} subscriptions", limit);
 
@@ -188,6 +287,32 @@ public class SubscriptionService implements SubscriptionServiceInterface {
         return subscriptions;
     }
 
+    /**
+     * Сообщает об изменении состояния подписки после ее обновления.
+     * <p>
+     * Смена провайдера у активной подписки рассматривается как деактивация
+     * подписки на старого провайдера и активация подписки на нового.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param wasActive Была ли подписка активна до обновления
+     * @param oldProviderId ID провайдера до обновления
+     * @param subscription Обновленная подписка
+     */
+    private void notifyStateChange(long userId, boolean wasActive, Long oldProviderId, Subscription subscription) {
+        Long newProviderId = getProviderId(subscription);
+        boolean providerChanged = !Objects.equals(oldProviderId, newProviderId);
+
+        if (wasActive && oldProviderId != null && (!subscription.isActive() || providerChanged))
+            subscriptionChangeNotifier.subscriptionDeactivated(userId, oldProviderId);
+        if (subscription.isActive() && newProviderId != null && (!wasActive || providerChanged))
+            subscriptionChangeNotifier.subscriptionActivated(userId, newProviderId);
+    }
+
+    private Long getProviderId(Subscription subscription) {
+        return subscription.getSubscriptionProvider() != null ? subscription.getSubscriptionProvider().getId() : null;
+    }
+
     /**
      * Конвертирует DTO в сущность Subscription.
      *
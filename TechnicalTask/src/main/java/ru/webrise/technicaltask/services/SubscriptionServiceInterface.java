@@ -5,6 +5,7 @@ import ru.webrise.technicaltask.dto.SubscriptionStats;
 import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface SubscriptionServiceInterface {
 
@@ -16,5 +17,9 @@ public interface SubscriptionServiceInterface {
 
     List<UserSubscriptionsDTO> getSubscriptionByUserId(long userId);
 
+    List<UserSubscriptionsDTO> getSubscriptionByUserId(long userId, boolean includeArchived);
+
+    List<Map<String, Object>> getSubscriptionFieldsByUserId(long userId, boolean includeArchived, String fields);
+
     List<SubscriptionStats> getTopSubscriptions(int limit);
 }
@@ -0,0 +1,316 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.dto.SubscriptionDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.SubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.UserSubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionNotFoundException;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Групповая фиксация обновлений подписок (write-behind).
+ * <p>
+ * Обновления из {@link SubscriptionService#updateSubscription(long, long, SubscriptionDTO)} ставятся в очередь,
+ * фоновый поток собирает их в пачку до {@code subscriptions.update.group-commit.max-batch-size} штук или
+ * до истечения {@code subscriptions.update.group-commit.max-delay} с момента первого обновления
+ * и записывает одним {@code UPDATE} в одной транзакции. Вызывающий поток ждет фиксации своей пачки,
+ * поэтому ответ клиенту по-прежнему означает, что изменение сохранено.
+ * <p>
+ * Некорректное обновление (нет подписки или провайдера) завершается своей ошибкой и не мешает остальным.
+ * Если не удалась запись всей пачки (например, нарушено ограничение уникальности), каждое обновление
+ * пачки повторяется в отдельной транзакции, и ошибку получает только виновное.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code subscriptions.update.group-commit.batch.size} - размер зафиксированных пачек</li>
+ *     <li>{@code subscriptions.update.group-commit.rejected} - обновления, не поместившиеся в очередь
+ *     или не дождавшиеся пачки и выполненные обычной транзакцией</li>
+ *     <li>{@code subscriptions.update.group-commit.retried} - пачки, повторенные по одному обновлению</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "subscriptions.update.group-commit", name = "enabled", havingValue = "true")
+public class SubscriptionUpdateGroupCommitter {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionProviderRepository subscriptionProviderRepository;
+    private final UserRepository userRepository;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long waitTimeoutNanos;
+
+    private final BlockingQueue<PendingUpdate> queue;
+    private final Thread flusher = new Thread(this::flushLoop, "subscription-group-commit");
+
+    private final DistributionSummary batchSizes;
+    private final Counter rejectedCounter;
+    private final Counter retriedCounter;
+
+    public SubscriptionUpdateGroupCommitter(
+            SubscriptionRepository subscriptionRepository,
+            SubscriptionProviderRepository subscriptionProviderRepository,
+            UserRepository userRepository,
+            SubscriptionChangeNotifier subscriptionChangeNotifier,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.update.group-commit.max-batch-size:100}") int maxBatchSize,
+            @Value("${subscriptions.update.group-commit.max-delay:PT0.005S}") Duration maxDelay,
+            @Value("${subscriptions.update.group-commit.queue-capacity:10000}") int queueCapacity,
+            @Value("${subscriptions.update.group-commit.wait-slack:PT5S}") Duration waitSlack
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionProviderRepository = subscriptionProviderRepository;
+        this.userRepository = userRepository;
+        this.subscriptionChangeNotifier = subscriptionChangeNotifier;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.waitTimeoutNanos = maxDelay.plus(waitSlack).toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.batchSizes = DistributionSummary.builder("subscriptions.update.group-commit.batch.size")
+                .description("Number of subscription updates committed in one transaction")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("subscriptions.update.group-commit.rejected")
+                .description("Number of subscription updates that did not fit into the group commit queue")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("subscriptions.update.group-commit.retried")
+                .description("Number of group commit batches retried one update at a time")
+                .register(meterRegistry);
+        flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.interrupt();
+    }
+
+    /**
+     * Ставит обновление в очередь и ждет фиксации пачки, в которую оно попало.
+     * <p>
+     * Ожидание ограничено {@code max-delay} плюс {@code subscriptions.update.group-commit.wait-slack}.
+     * Если за это время обновление так и не попало в пачку, оно снимается с очереди и выполняется
+     * обычной транзакцией; если пачка уже записывается, результат неизвестен и вызов завершается ошибкой.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param subId ID подписки
+     * @param subscriptionDTO Новые данные подписки
+     * @return {@code false}, если обновление нужно выполнить обычной транзакцией
+     * @throws UserNotFoundException если пользователь не найден
+     * @throws SubscriptionNotFoundException если подписка не найдена
+     * @throws SubscriptionProviderNotFoundException если провайдер не найден
+     */
+    public boolean update(long userId, long subId, SubscriptionDTO subscriptionDTO) {
+        PendingUpdate pending = new PendingUpdate(userId, subId, subscriptionDTO);
+        if (!queue.offer(pending)) {
+            rejectedCounter.increment();
+            return false;
+        }
+
+        try {
+            pending.result.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                log.warn("Subscription update ID: {} was not group-committed in time, using a regular transaction", subId);
+                rejectedCounter.increment();
+                return false;
+            }
+            log.error("Failed to update subscription: group commit of subscription ID: {} did not finish in {} ms",
+                    subId, TimeUnit.NANOSECONDS.toMillis(waitTimeoutNanos));
+            throw new IllegalStateException("Timed out waiting for subscription update commit", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for subscription update commit", e);
+        }
+    }
+
+    /**
+     * Фиксирует пачку обновлений и завершает ожидание вызывающих потоков.
+     */
+    public void flush(List<PendingUpdate> batch) {
+        Map<PendingUpdate, RuntimeException> failures = new IdentityHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                failures.clear();
+                commit(batch, failures);
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.warn("Group commit of {} subscription updates failed, retrying one by one", batch.size(), e);
+            retriedCounter.increment();
+            batch.forEach(update -> flush(List.of(update)));
+            return;
+        }
+
+        batchSizes.record(batch.size() - failures.size());
+        for (PendingUpdate update : batch) {
+            RuntimeException failure = failures.get(update);
+            if (failure != null)
+                update.result.completeExceptionally(failure);
+            else
+                update.result.complete(null);
+        }
+        log.debug("Group-committed {} subscription updates, {} rejected", batch.size() - failures.size(), failures.size());
+    }
+
+    private void commit(List<PendingUpdate> batch, Map<PendingUpdate, RuntimeException> failures) {
+        Set<Long> subscriptionIds = batch.stream().map(PendingUpdate::subId).collect(Collectors.toSet());
+        Map<Long, State> states = new HashMap<>();
+        for (Object[] row : subscriptionRepository.lockSubscriptionStatesByIds(subscriptionIds))
+            states.put(((Number) row[0]).longValue(), new State(
+                    ((Number) row[1]).longValue(), ((Number) row[2]).longValue(), Boolean.TRUE.equals(row[3])));
+
+        Set<Long> providerIds = batch.stream()
+                .map(update -> providerId(update.subscription()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingProviderIds = providerIds.isEmpty()
+                ? Set.of()
+                : subscriptionProviderRepository.findExistingIds(providerIds);
+
+        Map<Long, UserSubscriptionRow> rows = new LinkedHashMap<>();
+        for (PendingUpdate update : batch) {
+            State state = states.get(update.subId());
+            RuntimeException failure = validate(update, state, existingProviderIds);
+            if (failure != null) {
+                failures.put(update, failure);
+                continue;
+            }
+
+            SubscriptionDTO subscription = update.subscription();
+            long providerId = subscription.getSubscriptionProvider().getId();
+            rows.put(update.subId(), new UserSubscriptionRow(update.userId(), new SubscriptionRow(
+                    update.subId(), providerId, subscription.getStartDate(), subscription.getEndDate(), subscription.isActive())));
+            states.put(update.subId(), new State(update.userId(), providerId, subscription.isActive()));
+
+            boolean providerChanged = state.providerId() != providerId;
+            if (state.active() && (!subscription.isActive() || providerChanged))
+                subscriptionChangeNotifier.subscriptionDeactivated(update.userId(), state.providerId());
+            if (subscription.isActive() && (!state.active() || providerChanged))
+                subscriptionChangeNotifier.subscriptionActivated(update.userId(), providerId);
+        }
+
+        subscriptionRepository.updateSubscriptionsOfUsers(new ArrayList<>(rows.values()));
+    }
+
+    private RuntimeException validate(PendingUpdate update, State state, Set<Long> existingProviderIds) {
+        if (state == null || state.userId() != update.userId()) {
+            if (!userRepository.existsById(update.userId())) {
+                log.error("Failed to update subscription: user with ID {} not found", update.userId());
+                return new UserNotFoundException("User with that id was not found");
+            }
+            log.error("Failed to update subscription: subscription ID: {} not found for user ID: {}",
+                    update.subId(), update.userId());
+            return new SubscriptionNotFoundException("No subscriptions was found for this user");
+        }
+
+        Long providerId = providerId(update.subscription());
+        if (providerId == null) {
+            log.error("Failed to update subscription: subscription ID: {} has no provider", update.subId());
+            return new ValidationException("SubscriptionProvider must not be null");
+        }
+        if (!existingProviderIds.contains(providerId)) {
+            log.error("Failed to update subscription: provider with ID {} not found", providerId);
+            return new SubscriptionProviderNotFoundException("SubscriptionProvider with that id was not found");
+        }
+        return null;
+    }
+
+    private void flushLoop() {
+        List<PendingUpdate> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingUpdate next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    flush(List.copyOf(batch));
+                } catch (RuntimeException e) {
+                    log.error("Subscription update group commit failed", e);
+                    batch.forEach(update -> update.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+
+        queue.drainTo(batch);
+        batch.forEach(update -> update.result.completeExceptionally(
+                new IllegalStateException("Subscription update group commit is stopped")));
+    }
+
+    private static Long providerId(SubscriptionDTO subscription) {
+        return subscription.getSubscriptionProvider() != null ? subscription.getSubscriptionProvider().getId() : null;
+    }
+
+    private record State(long userId, long providerId, boolean active) {}
+
+    /**
+     * Обновление, ожидающее фиксации.
+     */
+    public record PendingUpdate(long userId, long subId, SubscriptionDTO subscription, CompletableFuture<Void> result) {
+
+        public PendingUpdate(long userId, long subId, SubscriptionDTO subscription) {
+            this(userId, subId, subscription, new CompletableFuture<>());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.webrise.technicaltask.controllers.TopSubscriptionsController;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionNotFoundException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис потоковой рассылки топа подписок через Server-Sent Events.
+ * <p>
+ * Топ вычисляется один раз на всех подписчиков: запрос выполняется с наибольшим из запрошенных
+ * лимитов, а каждый подписчик получает свой префикс списка. Пересчет выполняется не чаще,
+ * чем раз в {@code subscriptions.top.stream.min-interval}, и только если с прошлого пересчета
+ * пришло событие {@link SubscriptionChangeListener} либо истек {@code subscriptions.top.stream.refresh-interval}
+ * (для изменений, сделанных другими узлами). Подписчику отправляется событие {@code top},
+ * только если его часть топа изменилась.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code subscriptions.top.stream.subscribers} - количество подключенных подписчиков</li>
+ *     <li>{@code subscriptions.top.stream.computations} - количество пересчетов топа</li>
+ * </ul>
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link TopSubscriptionsController} - для потока топа подписок</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class TopSubscriptionsStreamService implements TopSubscriptionsStreamServiceInterface, SubscriptionChangeListener {
+
+    private static final String EVENT_NAME = "top";
+
+    private final SubscriptionService subscriptionService;
+    private final long emitterTimeoutMillis;
+    private final long refreshIntervalNanos;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final Counter computations;
+
+    private volatile List<SubscriptionStats> ranking = List.of();
+    private volatile int rankingLimit;
+    private volatile long computedAt;
+
+    public TopSubscriptionsStreamService(
+            SubscriptionService subscriptionService,
+            MeterRegistry meterRegistry,
+            @Value("${subscriptions.top.stream.timeout:PT30M}") Duration emitterTimeout,
+            @Value("${subscriptions.top.stream.refresh-interval:PT30S}") Duration refreshInterval
+    ) {
+        this.subscriptionService = subscriptionService;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+
+        this.computations = Counter.builder("subscriptions.top.stream.computations")
+                .description("Number of top subscriptions computations shared by stream subscribers")
+                .register(meterRegistry);
+        Gauge.builder("subscriptions.top.stream.subscribers", subscribers, List::size)
+                .description("Number of connected top subscriptions stream subscribers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подключает нового подписчика и сразу отправляет ему текущий топ.
+     * <p>
+     * Используется в {@link TopSubscriptionsController#streamTopSubscriptions(int)}.
+     * </p>
+     *
+     * @param limit Количество сервисов в топе
+     * @return Поток событий
+     */
+    @Override
+    public SseEmitter subscribe(int limit) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, limit);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        if (limit > rankingLimit)
+            recompute();
+        send(subscriber, ranking);
+
+        log.debug("Top subscriptions stream subscriber connected, total: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Пересчитывает топ и рассылает изменения подписчикам.
+     * <p>
+     * Период задается свойством {@code subscriptions.top.stream.min-interval}
+     * и ограничивает частоту отправки событий.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${subscriptions.top.stream.min-interval:PT1S}")
+    public void publish() {
+        if (subscribers.isEmpty())
+            return;
+
+        boolean refreshDue = System.nanoTime() - computedAt >= refreshIntervalNanos;
+        if (!changed.getAndSet(false) && !refreshDue)
+            return;
+
+        try {
+            recompute();
+        } catch (RuntimeException e) {
+            changed.set(true);
+            log.error("Failed to compute top subscriptions for stream", e);
+            return;
+        }
+
+        List<SubscriptionStats> current = ranking;
+        subscribers.forEach(subscriber -> send(subscriber, current));
+    }
+
+    @Override
+    public void onSubscriptionActivated(long userId, long providerId) {
+        changed.set(true);
+    }
+
+    @Override
+    public void onSubscriptionDeactivated(long userId, long providerId) {
+        changed.set(true);
+    }
+
+    @Override
+    public void onProviderUpdated(long providerId) {
+        changed.set(true);
+    }
+
+    @Override
+    public void onProviderRemoved(long providerId) {
+        changed.set(true);
+    }
+
+    private synchronized void recompute() {
+        int limit = subscribers.stream().mapToInt(Subscriber::limit).max().orElse(rankingLimit);
+
+        List<SubscriptionStats> computed;
+        try {
+            computed = subscriptionService.getTopSubscriptions(limit);
+        } catch (SubscriptionNotFoundException e) {
+            computed = List.of();
+        }
+
+        ranking = computed;
+        rankingLimit = limit;
+        computedAt = System.nanoTime();
+        computations.increment();
+    }
+
+    private void send(Subscriber subscriber, List<SubscriptionStats> ranking) {
+        List<SubscriptionStats> view = ranking.subList(0, Math.min(subscriber.limit(), ranking.size()));
+
+        synchronized (subscriber) {
+            if (view.equals(subscriber.lastSent))
+                return;
+            try {
+                subscriber.emitter().send(SseEmitter.event().name(EVENT_NAME).data(view));
+                subscriber.lastSent = List.copyOf(view);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Top subscriptions stream subscriber disconnected: {}", e.getMessage());
+                subscribers.remove(subscriber);
+                subscriber.emitter().completeWithError(e);
+            }
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final int limit;
+        private List<SubscriptionStats> lastSent;
+
+        private Subscriber(SseEmitter emitter, int limit) {
+            this.emitter = emitter;
+            this.limit = limit;
+        }
+
+        SseEmitter emitter() {
+            return emitter;
+        }
+
+        int limit() {
+            return limit;
+        }
+    }
+}
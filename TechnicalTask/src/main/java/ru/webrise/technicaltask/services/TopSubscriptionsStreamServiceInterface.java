@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface TopSubscriptionsStreamServiceInterface {
+
+    SseEmitter subscribe(int limit);
+}
@@ -0,0 +1,91 @@
+package ru.webrise.technicaltask.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+import ru.webrise.technicaltask.analytics.TrendingCounters;
+import ru.webrise.technicaltask.controllers.TopSubscriptionsController;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис трендовых провайдеров за скользящее окно.
+ * <p>
+ * Значения берутся из {@link TrendingCounters}. Имена провайдеров кешируются в памяти:
+ * из БД читаются только провайдеры, которых еще нет в кеше, а кеш сбрасывается
+ * событиями изменения и удаления провайдера.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link TopSubscriptionsController} - для получения трендовых подписок</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TrendingService implements TrendingServiceInterface, SubscriptionChangeListener {
+
+    private final TrendingCounters trendingCounters;
+    private final SubscriptionProviderRepository subscriptionProviderRepository;
+
+    private final Map<Long, String> providerNames = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает провайдеров с наибольшим количеством новых подписок за окно.
+     * <p>
+     * Используется в {@link TopSubscriptionsController#getTopSubscriptions(int, String, String, WebRequest)}
+     * при передаче параметра {@code window}.
+     * </p>
+     *
+     * @param window Окно: {@code 1h}, {@code 24h} или {@code 7d}
+     * @param by Показатель: {@code new}
+     * @param limit Количество провайдеров
+     * @return Список провайдеров с количеством новых подписок за окно
+     */
+    @Override
+    public List<SubscriptionStats> getTrendingSubscriptions(String window, String by, int limit) {
+        int windowMinutes = switch (window) {
+            case "1h" -> 60;
+            case "24h" -> 24 * 60;
+            case "7d" -> TrendingCounters.MAX_WINDOW_MINUTES;
+            default -> throw new ValidationException("Parameter 'window' must be one of: 1h, 24h, 7d");
+        };
+        if (!"new".equals(by))
+            throw new ValidationException("Parameter 'by' must be one of: new");
+
+        log.debug("Fetching top {} trending subscriptions for window {}", limit, window);
+
+        List<TrendingCounters.ProviderCount> top =
+                trendingCounters.getTop(windowMinutes, TrendingCounters.currentMinute(), limit);
+
+        List<Long> missing = top.stream()
+                .map(TrendingCounters.ProviderCount::providerId)
+                .filter(providerId -> !providerNames.containsKey(providerId))
+                .toList();
+        if (!missing.isEmpty())
+            subscriptionProviderRepository.findAllById(missing)
+                    .forEach(provider -> providerNames.put(provider.getId(), provider.getName()));
+
+        return top.stream()
+                .filter(count -> providerNames.containsKey(count.providerId()))
+                .map(count -> new SubscriptionStats(providerNames.get(count.providerId()), count.count()))
+                .toList();
+    }
+
+    @Override
+    public void onProviderUpdated(long providerId) {
+        providerNames.remove(providerId);
+    }
+
+    @Override
+    public void onProviderRemoved(long providerId) {
+        providerNames.remove(providerId);
+    }
+}
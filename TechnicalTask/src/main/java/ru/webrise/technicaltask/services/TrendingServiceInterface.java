@@ -0,0 +1,10 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+
+import java.util.List;
+
+public interface TrendingServiceInterface {
+
+    List<SubscriptionStats> getTrendingSubscriptions(String window, String by, int limit);
+}
@@ -0,0 +1,125 @@
+package ru.webrise.technicaltask.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.webrise.technicaltask.analytics.UserPrefixIndex;
+import ru.webrise.technicaltask.controllers.UserSearchController;
+import ru.webrise.technicaltask.dto.UserSearchDTO;
+import ru.webrise.technicaltask.dto.UserSearchResultDTO;
+import ru.webrise.technicaltask.repositories.UserSearchRepository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Сервис поиска пользователей по части имени, email или полного имени.
+ * <p>
+ * Режим {@code contains} ищет подстроку в БД по trigram-индексам ({@link UserSearchRepository}),
+ * режим {@code prefix} - префикс имени или email в {@link UserPrefixIndex} без обращения к БД.
+ * Пока префиксный индекс не построен, режим {@code prefix} выполняется как {@code contains}.
+ * Страницы выдаются по непрозрачному курсору, который кодирует ключ последней строки.
+ * <p>
+ * Используется в контроллерах:
+ * <ul>
+ *     <li>{@link UserSearchController} - для поиска пользователей</li>
+ * </ul>
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+@RequiredArgsConstructor
+public class UserSearchService implements UserSearchServiceInterface {
+
+    static final String MODE_CONTAINS = "contains";
+    static final String MODE_PREFIX = "prefix";
+
+    private static final int MIN_CONTAINS_QUERY_LENGTH = 3;
+    private static final String CONTAINS_CURSOR = "c";
+    private static final String PREFIX_CURSOR = "p";
+
+    private final UserSearchRepository userSearchRepository;
+    private final UserPrefixIndex userPrefixIndex;
+
+    /**
+     * Ищет пользователей.
+     * <p>
+     * Используется в {@link UserSearchController#search(String, String, String, int)}.
+     * </p>
+     *
+     * @param query Строка поиска
+     * @param mode {@code contains} или {@code prefix}
+     * @param cursor Курсор следующей страницы из предыдущего ответа или {@code null}
+     * @param limit Размер страницы
+     * @return Страница найденных пользователей и курсор следующей страницы
+     * @throws ValidationException если режим неизвестен, запрос слишком короткий или курсор некорректен
+     */
+    @Override
+    public UserSearchDTO search(String query, String mode, String cursor, int limit) {
+        String trimmed = query.trim();
+        boolean prefix = switch (mode) {
+            case MODE_PREFIX -> userPrefixIndex.isReady();
+            case MODE_CONTAINS -> false;
+            default -> throw new ValidationException("Unknown search mode '" + mode + "', allowed modes: contains, prefix");
+        };
+        if (trimmed.isEmpty())
+            throw new ValidationException("Search query must not be empty");
+
+        log.debug("Searching users by '{}' in {} mode", trimmed, prefix ? MODE_PREFIX : MODE_CONTAINS);
+
+        if (prefix) {
+            List<UserPrefixIndex.Match> matches = userPrefixIndex.search(trimmed, decodePrefixCursor(cursor), limit);
+            String next = matches.size() == limit ? encode(PREFIX_CURSOR, matches.get(matches.size() - 1).key()) : null;
+            return new UserSearchDTO(matches.stream().map(UserPrefixIndex.Match::user).toList(), next);
+        }
+
+        if (trimmed.length() < MIN_CONTAINS_QUERY_LENGTH)
+            throw new ValidationException("Search query must contain at least " + MIN_CONTAINS_QUERY_LENGTH + " characters");
+
+        List<UserSearchRepository.Match> matches = userSearchRepository.search(trimmed, decodeContainsCursor(cursor), limit);
+        List<UserSearchResultDTO> users = matches.stream().map(UserSearchRepository.Match::user).toList();
+        if (matches.size() < limit)
+            return new UserSearchDTO(users, null);
+
+        UserSearchRepository.Key last = matches.get(matches.size() - 1).key();
+        return new UserSearchDTO(users, encode(CONTAINS_CURSOR, last.rank() + ":" + last.score().toPlainString() + ":" + last.id()));
+    }
+
+    private static String decodePrefixCursor(String cursor) {
+        return cursor == null ? null : decode(cursor, PREFIX_CURSOR);
+    }
+
+    private static UserSearchRepository.Key decodeContainsCursor(String cursor) {
+        if (cursor == null)
+            return null;
+        String[] parts = decode(cursor, CONTAINS_CURSOR).split(":");
+        try {
+            if (parts.length != 3)
+                throw new NumberFormatException();
+            return new UserSearchRepository.Key(Integer.parseInt(parts[0]), new BigDecimal(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    private static String encode(String type, String value) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((type + "|" + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor, String expectedType) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+        if (!decoded.startsWith(expectedType + "|"))
+            throw new ValidationException("Invalid cursor");
+        return decoded.substring(expectedType.length() + 1);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.webrise.technicaltask.services;
+
+import ru.webrise.technicaltask.dto.UserSearchDTO;
+
+public interface UserSearchServiceInterface {
+
+    UserSearchDTO search(String query, String mode, String cursor, int limit);
+}
@@ -2,24 +2,38 @@ package ru.webrise.technicaltask.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
 import ru.webrise.technicaltask.dto.SubscriptionDTO;
 import ru.webrise.technicaltask.dto.UpdateUserDTO;
 import ru.webrise.technicaltask.dto.UserDTO;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.dto.UserSummaryDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.Subscription;
 import ru.webrise.technicaltask.models.User;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
 import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.SparseFieldset;
+import ru.webrise.technicaltask.util.coalescing.Coalesced;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueEmailException;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueUsernameException;
 import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+import ru.webrise.technicaltask.util.existence.UserExistenceFilter;
 import ru.webrise.technicaltask.controllers.UserController;
 import ru.webrise.technicaltask.controllers.SubscriptionController;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для работы с пользователями.
@@ -39,15 +53,28 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService implements UserServiceInterface {
 
+    private static final List<String> USER_RESPONSE_FIELDS = Stream.concat(
+            UserRepository.USER_FIELDS.stream(),
+            SubscriptionRepository.SUBSCRIPTION_FIELDS.stream().map(field -> "subscriptions." + field)
+    ).toList();
+
+    private static final String USERNAME_CONSTRAINT = "users_username_key";
+    private static final String EMAIL_CONSTRAINT = "users_email_key";
+
     private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
     private final ModelMapper modelMapper;
     private final SubscriptionProviderService subscriptionProviderService;
+    private final SubscriptionChangeNotifier subscriptionChangeNotifier;
+    private final UserExistenceFilter userExistenceFilter;
 
     /**
      * Создает нового пользователя. Можно создать только пользователя или уже сразу с подписками.
      * <p>
      * Используется в {@link UserController#addUser(UserDTO, BindingResult)}
-     * при регистрации нового пользователя.
+     * при регистрации нового пользователя. Уникальность имени и email сначала проверяется
+     * по {@link UserExistenceFilter}, в БД - только если значение может быть занято. Значение, занятое через
+     * другой узел и еще не попавшее в фильтр, отклоняется уникальным ограничением таблицы {@code users}.
      * </p>
      *
      * @param userDTO DTO с данными пользователя
@@ -60,8 +87,8 @@ public class UserService implements UserServiceInterface {
         log.info("Attempting to create new user with username: {}", userDTO.getUsername());
 
         try {
-            userRepository.checkUsernameUnique(userDTO.getUsername());
-            userRepository.checkEmailUnique(userDTO.getEmail());
+            userExistenceFilter.checkUsernameUnique(userDTO.getUsername());
+            userExistenceFilter.checkEmailUnique(userDTO.getEmail());
         } catch (NonUniqueUsernameException e) {
             log.error("Failed to save user: user with username '{}' already exists", userDTO.getUsername());
             throw e;
@@ -73,7 +100,14 @@ public class UserService implements UserServiceInterface {
         List<SubscriptionDTO> subscriptionDTOS = userDTO.getSubscriptions();
         userDTO.setSubscriptions(null);
         User user = convertToUser(userDTO);
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw toNonUniqueException(e, "save", userDTO.getUsername(), userDTO.getEmail());
+        }
+        userExistenceFilter.add(savedUser.getUsername(), savedUser.getEmail());
+        subscriptionChangeNotifier.userCreated(savedUser.getId());
 
         if (subscriptionDTOS != null && !subscriptionDTOS.isEmpty()) {
             List<Subscription> subscriptions = subscriptionDTOS.stream()
@@ -90,6 +124,12 @@ public class UserService implements UserServiceInterface {
 
             user.setSubscriptions(subscriptions);
             userRepository.save(user);
+            subscriptions.forEach(sub -> subscriptionChangeNotifier.subscriptionCreated(
+                    savedUser.getId(), sub.getSubscriptionProvider().getId()));
+            subscriptions.stream()
+                    .filter(Subscription::isActive)
+                    .forEach(sub -> subscriptionChangeNotifier.subscriptionActivated(
+                            savedUser.getId(), sub.getSubscriptionProvider().getId()));
             log.info("Successfully created user with ID: {} and {} subscriptions",
                     savedUser.getId(), subscriptions.size());
         } else
@@ -108,6 +148,8 @@ public class UserService implements UserServiceInterface {
      * @param userId  ID пользователя
      * @param userDTO DTO с обновляемыми данными
      * @throws UserNotFoundException если пользователь не найден
+     * @throws NonUniqueUsernameException если имя пользователя уже занято
+     * @throws NonUniqueEmailException    если email уже используется
      */
     @Override
     @Transactional
@@ -121,8 +163,8 @@ public class UserService implements UserServiceInterface {
                 });
 
         try {
-            userRepository.checkUsernameUnique(userDTO.getUsername());
-            userRepository.checkEmailUnique(userDTO.getEmail());
+            userExistenceFilter.checkUsernameUnique(userDTO.getUsername());
+            userExistenceFilter.checkEmailUnique(userDTO.getEmail());
         } catch (NonUniqueUsernameException e) {
             log.error("Failed to update user: user with username '{}' already exists", userDTO.getUsername());
             throw e;
@@ -132,7 +174,14 @@ public class UserService implements UserServiceInterface {
         }
 
         convertToUser(userDTO, user);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw toNonUniqueException(e, "update", userDTO.getUsername(), userDTO.getEmail());
+        }
+        userExistenceFilter.add(userDTO.getUsername(), userDTO.getEmail());
+        subscriptionChangeNotifier.userUpdated(userId);
         log.info("Successfully updated user with ID: {}", userId);
     }
 
@@ -156,18 +205,18 @@ public class UserService implements UserServiceInterface {
             throw new UserNotFoundException("User with that id was not found");
         }
 
+        List<Long> activeProviderIds = subscriptionRepository.findActiveProviderIdsByUserId(userId);
         userRepository.deleteUser(userId);
+        activeProviderIds.forEach(providerId -> subscriptionChangeNotifier.subscriptionDeactivated(userId, providerId));
+        subscriptionChangeNotifier.userDeleted(userId);
         log.info("Successfully deleted user with ID: {}", userId);
     }
 
     /**
      * Получает информацию о пользователе.
      * <p>
-     * Используется в:
-     * <ul>
-     *     <li>{@link UserController#getUser(long)} - для просмотра профиля</li>
-     *     <li>{@link SubscriptionController} - при проверке существования пользователя</li>
-     * </ul>
+     * Используется в {@link SubscriptionController} при проверке существования пользователя
+     * и при создании подписки.
      * </p>
      *
      * @param id ID пользователя
@@ -177,6 +226,29 @@ public class UserService implements UserServiceInterface {
     @Override
     public User getUserInfo(Long id) {
         log.debug("Fetching user info for ID: {}", id);
+        return findUserWithActiveSubscriptions(id);
+    }
+
+    /**
+     * Получает профиль пользователя в виде DTO.
+     * <p>
+     * Используется в {@link UserController#getUser(long, String, WebRequest)} для просмотра профиля.
+     * Одновременные запросы одного профиля объединяются; между потоками разделяется только
+     * неизменяемый DTO, собранный внутри транзакции, а не управляемая сущность.
+     * </p>
+     *
+     * @param id ID пользователя
+     * @return Профиль пользователя с активными подписками
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    @Override
+    @Coalesced("users.info")
+    public UserResponseDTO getUserResponse(long id) {
+        log.debug("Fetching user profile for ID: {}", id);
+        return UserResponseDTO.from(findUserWithActiveSubscriptions(id));
+    }
+
+    private User findUserWithActiveSubscriptions(long id) {
         return userRepository.findByIdAndSubscriptionsActive(id)
                 .orElseThrow(() -> {
                     log.error("User with ID {} not found", id);
@@ -184,6 +256,86 @@ public class UserService implements UserServiceInterface {
                 });
     }
 
+    /**
+     * Получает версию профиля пользователя без загрузки сущностей.
+     * <p>
+     * Используется в {@link UserController#getUser(long, String, WebRequest)} для ETag: версия меняется
+     * при изменении пользователя, любой его подписки или провайдера его активных подписок.
+     * </p>
+     *
+     * @param id ID пользователя
+     * @return Версия профиля
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    @Override
+    public String getUserVersion(long id) {
+        return userRepository.findVersionTag(id)
+                .orElseThrow(() -> {
+                    log.error("User with ID {} not found", id);
+                    return new UserNotFoundException("User with that id was not found");
+                });
+    }
+
+    /**
+     * Получает профиль пользователя только с запрошенными полями.
+     * <p>
+     * Используется в {@link UserController#getUser(long, String, WebRequest)} при передаче параметра
+     * {@code fields}. В запрос попадают только колонки запрошенных полей, активные подписки читаются
+     * отдельным запросом, только если запрошены поля {@code subscriptions}.
+     * </p>
+     *
+     * @param id ID пользователя
+     * @param fields Список полей через запятую, например {@code id,username,subscriptionCount}
+     * @return Профиль пользователя с запрошенными полями
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    @Override
+    public Map<String, Object> getUserFields(long id, String fields) {
+        Set<String> requested = SparseFieldset.parse(fields, USER_RESPONSE_FIELDS);
+        Set<String> subscriptionFields = SparseFieldset.nested(requested, "subscriptions");
+        Set<String> userFields = new LinkedHashSet<>(requested);
+        userFields.removeIf(field -> field.startsWith("subscriptions."));
+
+        log.debug("Fetching fields {} for user ID: {}", requested, id);
+
+        Map<String, Object> user = userRepository.findUserFields(id, userFields.isEmpty() ? Set.of("id") : userFields)
+                .orElseThrow(() -> {
+                    log.error("User with ID {} not found", id);
+                    return new UserNotFoundException("User with that id was not found");
+                });
+
+        if (userFields.isEmpty())
+            user.clear();
+        if (!subscriptionFields.isEmpty())
+            user.put("subscriptions", subscriptionRepository.findSubscriptionFields(id, false, subscriptionFields));
+
+        return user;
+    }
+
+    /**
+     * Получает количество активных подписок пользователя и сумму их ежемесячной оплаты.
+     * <p>
+     * Используется в {@link UserController#getUserSummary(long)}. Значения читаются одной строкой
+     * по первичному ключу из колонок {@code users.active_subscription_count} и {@code users.monthly_spend},
+     * которые поддерживаются триггерами на подписках и ценах провайдеров, без загрузки подписок.
+     * </p>
+     *
+     * @param id ID пользователя
+     * @return Сводка подписок пользователя
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    @Override
+    public UserSummaryDTO getUserSummary(long id) {
+        log.debug("Fetching subscription summary for user ID: {}", id);
+        return userRepository.findSubscriptionSummary(id)
+                .map(summary -> new UserSummaryDTO(
+                        summary.getUserId(), summary.getActiveSubscriptionCount(), summary.getMonthlySpend()))
+                .orElseThrow(() -> {
+                    log.error("User with ID {} not found", id);
+                    return new UserNotFoundException("User with that id was not found");
+                });
+    }
+
     /**
      * Конвертирует UpdateUserDTO в существующую сущность User.
      *
@@ -216,4 +368,24 @@ public class UserService implements UserServiceInterface {
         log.trace("Converting SubscriptionDTO to Subscription entity");
         return modelMapper.map(subDto, Subscription.class);
     }
+
+    /**
+     * Преобразует нарушение уникального ограничения {@code username} или {@code email} в исключение,
+     * которое возвращается клиенту как 400. Остальные нарушения целостности возвращаются без изменений.
+     */
+    private RuntimeException toNonUniqueException(DataIntegrityViolationException exception, String operation,
+                                                  String username, String email) {
+        String constraint = exception.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName()
+                : null;
+        if (USERNAME_CONSTRAINT.equals(constraint)) {
+            log.error("Failed to {} user: user with username '{}' already exists", operation, username);
+            return new NonUniqueUsernameException("User with this username already exists");
+        }
+        if (EMAIL_CONSTRAINT.equals(constraint)) {
+            log.error("Failed to {} user: user with email '{}' already exists", operation, email);
+            return new NonUniqueEmailException("User with this email already exists");
+        }
+        return exception;
+    }
 }
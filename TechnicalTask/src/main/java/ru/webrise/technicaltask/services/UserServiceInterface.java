@@ -2,8 +2,12 @@ package ru.webrise.technicaltask.services;
 
 import ru.webrise.technicaltask.dto.UpdateUserDTO;
 import ru.webrise.technicaltask.dto.UserDTO;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.dto.UserSummaryDTO;
 import ru.webrise.technicaltask.models.User;
 
+import java.util.Map;
+
 public interface UserServiceInterface {
 
     long saveUser(UserDTO userDTO);
@@ -13,4 +17,12 @@ public interface UserServiceInterface {
     void deleteUser(long userId);
 
     User getUserInfo(Long id);
+
+    UserResponseDTO getUserResponse(long id);
+
+    String getUserVersion(long id);
+
+    Map<String, Object> getUserFields(long id, String fields);
+
+    UserSummaryDTO getUserSummary(long id);
 }
@@ -0,0 +1,116 @@
+package ru.webrise.technicaltask.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.UserRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис фоновой сверки {@code users.active_subscription_count} и {@code users.monthly_spend} с подписками.
+ * <p>
+ * Колонки поддерживаются триггерами БД, сверка страхует от изменений в обход триггеров
+ * (ручные правки, отключенные триггеры при загрузке данных). Пользователи проверяются пачками
+ * в порядке {@code id} в отдельных транзакциях: пачка блокируется ({@code FOR UPDATE SKIP LOCKED}),
+ * поэтому параллельные изменения подписок этих пользователей дожидаются сверки и не теряются.
+ * Каждый запуск продолжает с места, где остановился предыдущий, и после последнего пользователя
+ * начинает сначала.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code users.subscription-summary.checked} - общее количество проверенных пользователей</li>
+ *     <li>{@code users.subscription-summary.drift} - количество исправленных расхождений</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "users.subscription-summary.check", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserSubscriptionSummaryCheckService implements UserSubscriptionSummaryCheckServiceInterface {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter checkedCounter;
+    private final Counter driftCounter;
+    private final AtomicLong lastCheckedUserId = new AtomicLong();
+
+    public UserSubscriptionSummaryCheckService(
+            UserRepository userRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${users.subscription-summary.check.batch-size:500}") int batchSize,
+            @Value("${users.subscription-summary.check.max-batches-per-run:20}") int maxBatchesPerRun
+    ) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.checkedCounter = Counter.builder("users.subscription-summary.checked")
+                .description("Total number of users whose subscription summary was checked")
+                .register(meterRegistry);
+        this.driftCounter = Counter.builder("users.subscription-summary.drift")
+                .description("Number of user subscription summaries repaired after drifting from subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает сверку по расписанию.
+     * <p>
+     * Период задается свойством {@code users.subscription-summary.check.interval}.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${users.subscription-summary.check.interval:PT5M}")
+    public void scheduledCheck() {
+        try {
+            checkSummaries();
+        } catch (RuntimeException e) {
+            log.error("User subscription summary check failed", e);
+        }
+    }
+
+    /**
+     * Сверяет и исправляет сводки подписок пачками по {@code batchSize} пользователей.
+     *
+     * @return Количество исправленных сводок за запуск
+     */
+    @Override
+    public int checkSummaries() {
+        int repaired = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            long afterId = lastCheckedUserId.get();
+            List<Long> drifted = transactionTemplate.execute(status -> {
+                List<Long> userIds = userRepository.lockUsersForSummaryCheck(afterId, batchSize);
+                if (userIds.isEmpty())
+                    return null;
+
+                lastCheckedUserId.set(userIds.get(userIds.size() - 1));
+                checkedCounter.increment(userIds.size());
+                return userRepository.repairSubscriptionSummaries(userIds);
+            });
+
+            if (drifted == null) {
+                lastCheckedUserId.set(0);
+                break;
+            }
+
+            if (!drifted.isEmpty()) {
+                log.warn("Repaired subscription summary of {} users: {}", drifted.size(), drifted);
+                driftCounter.increment(drifted.size());
+                repaired += drifted.size();
+            }
+        }
+
+        return repaired;
+    }
+}
@@ -0,0 +1,6 @@
+package ru.webrise.technicaltask.services;
+
+public interface UserSubscriptionSummaryCheckServiceInterface {
+
+    int checkSummaries();
+}
@@ -0,0 +1,113 @@
+package ru.webrise.technicaltask.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.WebRequest;
+import ru.webrise.technicaltask.util.converters.ProtobufResponseHttpMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Построение строгих ETag для условных GET-запросов.
+ * <p>
+ * Один и тот же ресурс отдается в JSON, CBOR, Smile и Protobuf, поэтому строгий ETag
+ * включает выбранное по {@code Accept} представление: разные байты не получают одинаковый тег.
+ */
+public final class ETags {
+
+    /**
+     * Представления в порядке конвертеров {@link ru.webrise.technicaltask.config.ContentNegotiationConfig}.
+     */
+    private static final List<MediaType> REPRESENTATIONS = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            new MediaType("application", "x-jackson-smile"),
+            ProtobufResponseHttpMessageConverter.PROTOBUF,
+            new MediaType("application", "protobuf"));
+
+    private ETags() {}
+
+    /**
+     * Оборачивает версию ресурса в строгий ETag.
+     *
+     * @param version Версия ресурса
+     * @return Значение заголовка {@code ETag}
+     */
+    public static String of(String version) {
+        return '"' + version + '"';
+    }
+
+    /**
+     * Строит строгий ETag по содержимому ресурса.
+     *
+     * @param parts Значения, из которых состоит представление ресурса
+     * @return Значение заголовка {@code ETag}
+     */
+    public static String ofContent(Object... parts) {
+        StringBuilder content = new StringBuilder();
+        for (Object part : parts)
+            content.append(part).append('|');
+        return of(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Строит строгий ETag по версии ресурса и представлению, запрошенному клиентом.
+     *
+     * @param version Версия ресурса
+     * @param request Текущий запрос
+     * @return Значение заголовка {@code ETag}
+     */
+    public static String of(String version, WebRequest request) {
+        return of(version + '-' + representation(request).getSubtype());
+    }
+
+    /**
+     * Строит строгий ETag по содержимому ресурса и представлению, запрошенному клиентом.
+     *
+     * @param request Текущий запрос
+     * @param parts Значения, из которых состоит представление ресурса
+     * @return Значение заголовка {@code ETag}
+     */
+    public static String ofContent(WebRequest request, Object... parts) {
+        Object[] content = Arrays.copyOf(parts, parts.length + 1);
+        content[parts.length] = representation(request);
+        return ofContent(content);
+    }
+
+    /**
+     * Определяет представление ответа так же, как его выбирает Spring MVC: по {@code Accept},
+     * отсортированному по специфичности и качеству, с учетом порядка конвертеров.
+     * Без заголовка или при некорректном значении используется JSON.
+     *
+     * @param request Текущий запрос
+     * @return Тип представления ответа
+     */
+    public static MediaType representation(WebRequest request) {
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        if (accept == null)
+            return MediaType.APPLICATION_JSON;
+
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(Arrays.asList(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+
+        List<MediaType> compatible = new ArrayList<>();
+        for (MediaType acceptedType : accepted)
+            for (MediaType representation : REPRESENTATIONS)
+                if (acceptedType.isCompatibleWith(representation))
+                    compatible.add(representation.copyQualityValue(acceptedType));
+        MimeTypeUtils.sortBySpecificity(compatible);
+
+        return compatible.isEmpty() ? MediaType.APPLICATION_JSON : compatible.get(0).removeQualityValue();
+    }
+}
@@ -0,0 +1,94 @@
+package ru.webrise.technicaltask.util;
+
+import jakarta.validation.ValidationException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Разбор параметра {@code fields=} для частичных ответов.
+ * <p>
+ * Поля перечисляются через запятую, вложенные поля - через точку ({@code subscriptionProvider.name}).
+ * Имя группы без точки ({@code subscriptionProvider}) раскрывается во все ее поля.
+ */
+public final class SparseFieldset {
+
+    private SparseFieldset() {}
+
+    /**
+     * Разбирает список полей и проверяет, что все они допустимы.
+     *
+     * @param fields Значение параметра {@code fields}
+     * @param allowed Допустимые поля в порядке вывода
+     * @return Запрошенные поля в порядке {@code allowed}
+     * @throws ValidationException если поле неизвестно или список пуст
+     */
+    public static Set<String> parse(String fields, List<String> allowed) {
+        Set<String> requested = new LinkedHashSet<>();
+
+        for (String token : fields.split(",")) {
+            String field = token.trim();
+            if (field.isEmpty())
+                continue;
+
+            if (allowed.contains(field)) {
+                requested.add(field);
+                continue;
+            }
+
+            List<String> group = allowed.stream().filter(name -> name.startsWith(field + '.')).toList();
+            if (group.isEmpty())
+                throw new ValidationException("Unknown field '" + field + "', allowed fields: " + String.join(", ", allowed));
+            requested.addAll(group);
+        }
+
+        if (requested.isEmpty())
+            throw new ValidationException("Parameter 'fields' must not be empty");
+
+        Set<String> ordered = new LinkedHashSet<>(allowed);
+        ordered.retainAll(requested);
+        return ordered;
+    }
+
+    /**
+     * Отбирает поля с указанным префиксом и отрезает его.
+     *
+     * @param fields Поля
+     * @param prefix Префикс без точки
+     * @return Поля без префикса
+     */
+    public static Set<String> nested(Collection<String> fields, String prefix) {
+        Set<String> nested = new LinkedHashSet<>();
+        for (String field : fields)
+            if (field.startsWith(prefix + '.'))
+                nested.add(field.substring(prefix.length() + 1));
+        return nested;
+    }
+
+    /**
+     * Собирает значения полей в объект ответа, раскладывая вложенные поля по вложенным объектам.
+     *
+     * @param fields Поля в порядке вывода
+     * @param values Значения в том же порядке
+     * @return Объект ответа
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toObject(Collection<String> fields, Object[] values) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        int index = 0;
+
+        for (String field : fields) {
+            Map<String, Object> target = object;
+            String[] path = field.split("\\.");
+            for (int i = 0; i < path.length - 1; i++)
+                target = (Map<String, Object>) target.computeIfAbsent(path[i], key -> new LinkedHashMap<>());
+            target.put(path[path.length - 1], values[index++]);
+        }
+
+        return object;
+    }
+}
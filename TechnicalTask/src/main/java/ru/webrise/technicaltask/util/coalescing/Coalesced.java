@@ -0,0 +1,23 @@
+package ru.webrise.technicaltask.util.coalescing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает метод чтения, одновременные вызовы которого с одинаковыми аргументами
+ * объединяются в одну загрузку (см. {@link CoalescingAspect}).
+ * <p>
+ * Результат такого метода передается нескольким вызывающим потокам, поэтому
+ * вызывающий код не должен его изменять.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+
+    /**
+     * Имя операции для ключа объединения и тега {@code operation} в метриках.
+     */
+    String value();
+}
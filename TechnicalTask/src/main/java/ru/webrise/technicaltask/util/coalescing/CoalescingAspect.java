@@ -0,0 +1,97 @@
+package ru.webrise.technicaltask.util.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Объединяет одновременные вызовы методов {@link Coalesced} с одинаковыми аргументами (single-flight).
+ * <p>
+ * Первый вызов с данным ключом выполняет загрузку, остальные вызовы, пришедшие до ее завершения,
+ * ждут и получают тот же результат или то же исключение. Завершенные загрузки не кешируются.
+ * <p>
+ * Аспект выполняется снаружи транзакционного прокси. Вызовы внутри уже открытой транзакции
+ * не объединяются: сущности, загруженные в чужом persistence context, нельзя использовать
+ * в пишущей транзакции вызывающего кода.
+ * <p>
+ * Публикует метрику {@code coalescing.requests} с тегами {@code operation} и
+ * {@code outcome} ({@code leader}, {@code collapsed}, {@code bypassed}).
+ */
+@Aspect
+@Component
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class CoalescingAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Around("@annotation(ru.webrise.technicaltask.util.coalescing.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = AopUtils.getMostSpecificMethod(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint.getTarget().getClass());
+        String operation = method.getAnnotation(Coalesced.class).value();
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            count(operation, "bypassed");
+            return joinPoint.proceed();
+        }
+
+        Key key = new Key(operation, Arrays.asList(joinPoint.getArgs()));
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            count(operation, "collapsed");
+            log.trace("Joined in-flight {} call for {}", operation, key.args());
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        }
+
+        count(operation, "leader");
+        try {
+            Object result = joinPoint.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        counters.computeIfAbsent(operation + ':' + outcome, name -> Counter.builder("coalescing.requests")
+                .description("Number of coalesced read calls by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)).increment();
+    }
+
+    private record Key(String operation, List<Object> args) {}
+}
@@ -0,0 +1,184 @@
+package ru.webrise.technicaltask.util.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кэш готовых ответов для {@link PrecompressedResponseFilter}: тело хранится уже сериализованным
+ * и, если оно не меньше {@code server.compression.min-response-size}, еще и сжатым gzip.
+ * <p>
+ * Записи живут не дольше {@code responses.precompressed.ttl} и вытесняются по LRU при превышении
+ * {@code responses.precompressed.max-entries}. Изменения провайдеров и активности подписок,
+ * пришедшие через {@link SubscriptionChangeListener}, удаляют затронутые записи сразу.
+ * Ответ, вычисленный до такого удаления, в кэш не попадает (проверяется поколение кэша).
+ * События принимаются сразу после фиксации, минуя outbox, чтобы клиент не увидел устаревший ответ на свою запись.
+ */
+@Component
+@ConditionalOnProperty(prefix = "responses.precompressed", name = "enabled", matchIfMissing = true)
+public class PrecompressedResponseCache implements SubscriptionChangeListener {
+
+    static final String PROVIDER_PATH = "/subscription-provider/";
+    static final String TOP_PATH = "/subscriptions/top";
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long compressionThreshold;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Key, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrecompressedResponseCache(
+            @Value("${responses.precompressed.ttl:PT30S}") Duration ttl,
+            @Value("${responses.precompressed.max-entries:1000}") int maxEntries,
+            @Value("${server.compression.min-response-size:2KB}") DataSize compressionThreshold,
+            MeterRegistry meterRegistry
+    ) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.compressionThreshold = compressionThreshold.toBytes();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > PrecompressedResponseCache.this.maxEntries;
+            }
+        };
+
+        hits = Counter.builder("responses.precompressed.requests")
+                .description("Requests served by the precompressed response cache")
+                .tag("outcome", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("responses.precompressed.requests")
+                .description("Requests served by the precompressed response cache")
+                .tag("outcome", "miss")
+                .register(meterRegistry);
+        Gauge.builder("responses.precompressed.bytes", this, PrecompressedResponseCache::getSizeInBytes)
+                .description("Raw and gzip bodies held by the precompressed response cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает актуальную запись или {@code null}.
+     *
+     * @param key Ключ ответа
+     * @return Запись кэша
+     */
+    public Entry get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        (entry == null ? misses : hits).increment();
+        return entry;
+    }
+
+    /**
+     * Возвращает текущее поколение кэша. Его нужно получить до вычисления ответа
+     * и передать в {@link #put(Key, long, String, String, byte[])}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Сохраняет ответ, если с момента получения {@code generation} кэш не инвалидировался.
+     *
+     * @param key Ключ ответа
+     * @param generation Поколение кэша на момент начала вычисления ответа
+     * @param contentType Тип содержимого ответа
+     * @param eTag ETag ответа (может быть {@code null})
+     * @param body Сериализованное тело ответа
+     */
+    public void put(Key key, long generation, String contentType, String eTag, byte[] body) {
+        byte[] gzipBody = body.length >= compressionThreshold ? gzip(body) : null;
+        Entry entry = new Entry(contentType, eTag, body, gzipBody, System.currentTimeMillis() + ttlMillis);
+
+        synchronized (entries) {
+            if (this.generation.get() == generation)
+                entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void onSubscriptionActivated(long userId, long providerId) {
+        invalidate(key -> key.path().equals(TOP_PATH));
+    }
+
+    @Override
+    public void onSubscriptionDeactivated(long userId, long providerId) {
+        invalidate(key -> key.path().equals(TOP_PATH));
+    }
+
+    @Override
+    public void onProviderUpdated(long providerId) {
+        invalidate(key -> key.path().equals(TOP_PATH) || key.path().equals(PROVIDER_PATH + providerId));
+    }
+
+    @Override
+    public void onProviderRemoved(long providerId) {
+        invalidate(key -> key.path().equals(TOP_PATH) || key.path().equals(PROVIDER_PATH + providerId));
+    }
+
+    @Override
+    public boolean isImmediate() {
+        return true;
+    }
+
+    private void invalidate(Predicate<Key> affected) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.keySet().removeIf(affected);
+        }
+    }
+
+    private double getSizeInBytes() {
+        synchronized (entries) {
+            return entries.values().stream()
+                    .mapToLong(entry -> entry.body().length + (entry.gzipBody() == null ? 0 : entry.gzipBody().length))
+                    .sum();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Ключ ответа: путь, строка запроса и заголовок {@code Accept}.
+     */
+    public record Key(String path, String query, String accept) {}
+
+    /**
+     * Готовый ответ. {@code gzipBody} равен {@code null}, если тело меньше порога сжатия.
+     */
+    public record Entry(String contentType, String eTag, byte[] body, byte[] gzipBody, long expiresAt) {}
+}
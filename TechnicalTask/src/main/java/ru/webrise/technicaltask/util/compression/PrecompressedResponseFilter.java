@@ -0,0 +1,92 @@
+package ru.webrise.technicaltask.util.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Отдает кэшируемые GET-ответы из {@link PrecompressedResponseCache}, минуя контроллер,
+ * сериализацию и сжатие на лету.
+ * <p>
+ * При промахе запрос обрабатывается как обычно, а успешный ответ сохраняется в кэш.
+ * При попадании клиенту, принимающему gzip, отдается заранее сжатое тело с {@code Content-Encoding: gzip}
+ * (Tomcat не сжимает такой ответ повторно), остальным - исходное. {@code If-None-Match}
+ * обрабатывается по сохраненному ETag.
+ * <p>
+ * Кэшируются только {@code GET /subscription-provider/{id}} и {@code GET /subscriptions/top}: для них
+ * {@link PrecompressedResponseCache} получает события об изменениях. Остальные пути под тем же шаблоном URL
+ * (например, статус фоновой задачи {@code /subscription-provider/jobs/{jobId}}) проходят мимо кэша.
+ */
+@RequiredArgsConstructor
+public class PrecompressedResponseFilter extends OncePerRequestFilter {
+
+    private static final Pattern CACHEABLE_PATH = Pattern.compile("^/subscription-provider/\\d+$|^/subscriptions/top$");
+
+    private final PrecompressedResponseCache cache;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !HttpMethod.GET.matches(request.getMethod()) || !CACHEABLE_PATH.matcher(path).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        PrecompressedResponseCache.Key key = new PrecompressedResponseCache.Key(
+                request.getRequestURI(), request.getQueryString(), request.getHeader(HttpHeaders.ACCEPT));
+
+        PrecompressedResponseCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            write(entry, request, response);
+            return;
+        }
+
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && wrapper.getContentType() != null)
+            cache.put(key, generation, wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                    wrapper.getContentAsByteArray());
+        wrapper.copyBodyToResponse();
+    }
+
+    private void write(PrecompressedResponseCache.Entry entry, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.eTag() != null && new ServletWebRequest(request, response).checkNotModified(entry.eTag()))
+            return;
+
+        byte[] body = entry.body();
+        if (entry.gzipBody() != null && acceptsGzip(request)) {
+            body = entry.gzipBody();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.contentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.trim().toLowerCase(Locale.ROOT))
+                .anyMatch(coding -> coding.equals("gzip") || coding.startsWith("gzip;") && !coding.matches("gzip;\\s*q=0(\\.0*)?"));
+    }
+}
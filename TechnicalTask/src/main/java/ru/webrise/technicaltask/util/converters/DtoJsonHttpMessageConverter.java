@@ -0,0 +1,81 @@
+package ru.webrise.technicaltask.util.converters;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.TypeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Быстрый путь записи JSON для DTO ответов API (record-классы пакета {@code dto} и их коллекции).
+ * <p>
+ * Для каждого типа ответа один раз строится {@link ObjectWriter} с уже найденным корневым сериализатором,
+ * дальше он берется из кэша. DTO не содержат ссылок между объектами и прокси Hibernate, поэтому
+ * обходятся без {@code @JsonIdentityInfo} и {@code @JsonManagedReference}. Остальные типы
+ * (сущности, сообщения об ошибках, {@code Map}) записывает стандартный конвертер.
+ */
+public class DtoJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final String DTO_PACKAGE = "ru.webrise.technicaltask.dto";
+
+    private final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public DtoJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected boolean canRead(@Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType))
+            return false;
+        if (isDto(clazz))
+            return true;
+        if (!Collection.class.isAssignableFrom(clazz) || type == null)
+            return false;
+
+        Class<?> elementType = ResolvableType.forType(type).asCollection().resolveGeneric(0);
+        return elementType != null && isDto(elementType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+        return canWrite(null, clazz, mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        JavaType javaType = type != null && TypeUtils.isAssignable(type, object.getClass())
+                ? getJavaType(type, null)
+                : getObjectMapper().constructType(object.getClass());
+
+        writers.computeIfAbsent(javaType, getObjectMapper()::writerFor)
+                .writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+    }
+
+    private static boolean isDto(Class<?> clazz) {
+        return clazz.isRecord() && clazz.getPackageName().equals(DTO_PACKAGE);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.webrise.technicaltask.util.converters;
+
+import com.google.protobuf.Message;
+import ru.webrise.technicaltask.dto.ProviderResponseDTO;
+import ru.webrise.technicaltask.dto.SubscriptionResponseDTO;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.proto.SubscriptionStatsList;
+import ru.webrise.technicaltask.proto.UserSubscription;
+import ru.webrise.technicaltask.proto.UserSubscriptionList;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Преобразование ответов API в сообщения Protobuf по схеме {@code api.proto}.
+ */
+public final class ProtobufMapper {
+
+    private ProtobufMapper() {}
+
+    /**
+     * Проверяет, есть ли для типа ответа представление в схеме.
+     *
+     * @param type Тип тела ответа или тип элемента списка
+     * @return {@code true}, если тип можно закодировать
+     */
+    public static boolean supports(Class<?> type) {
+        return UserResponseDTO.class.isAssignableFrom(type)
+                || UserSubscriptionsDTO.class.isAssignableFrom(type)
+                || SubscriptionStats.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Преобразует тело ответа в сообщение Protobuf.
+     *
+     * @param body Пользователь или список подписок / статистики
+     * @return Сообщение Protobuf
+     * @throws IllegalArgumentException если для тела ответа нет представления в схеме
+     */
+    public static Message toMessage(Object body) {
+        if (body instanceof UserResponseDTO user)
+            return toMessage(user);
+
+        if (body instanceof List<?> list) {
+            if (list.stream().allMatch(UserSubscriptionsDTO.class::isInstance)) {
+                UserSubscriptionList.Builder message = UserSubscriptionList.newBuilder();
+                list.forEach(item -> message.addSubscriptions(toMessage((UserSubscriptionsDTO) item)));
+                return message.build();
+            }
+            if (list.stream().allMatch(SubscriptionStats.class::isInstance)) {
+                SubscriptionStatsList.Builder message = SubscriptionStatsList.newBuilder();
+                list.forEach(item -> message.addStats(toMessage((SubscriptionStats) item)));
+                return message.build();
+            }
+        }
+
+        throw new IllegalArgumentException("No protobuf representation for " + body.getClass().getName());
+    }
+
+    public static ru.webrise.technicaltask.proto.User toMessage(UserResponseDTO user) {
+        ru.webrise.technicaltask.proto.User.Builder message = ru.webrise.technicaltask.proto.User.newBuilder()
+                .setId(user.id())
+                .setUsername(user.username())
+                .setEmail(user.email())
+                .setCreatedAt(toEpochMilli(user.createdAt()))
+                .setUpdatedAt(toEpochMilli(user.updatedAt()));
+        if (user.fullName() != null)
+            message.setFullName(user.fullName());
+        if (user.subscriptions() != null)
+            user.subscriptions().forEach(subscription -> message.addSubscriptions(toMessage(subscription, user.id())));
+        return message.build();
+    }
+
+    public static UserSubscription toMessage(UserSubscriptionsDTO subscription) {
+        UserSubscription.Builder message = UserSubscription.newBuilder()
+                .setId(subscription.id())
+                .setStartDate(toEpochMilli(subscription.startDate()))
+                .setActive(subscription.active())
+                .setUserId(subscription.userId())
+                .setSubscriptionProvider(toMessage(subscription.subscriptionProvider()));
+        if (subscription.endDate() != null)
+            message.setEndDate(toEpochMilli(subscription.endDate()));
+        return message.build();
+    }
+
+    public static ru.webrise.technicaltask.proto.SubscriptionStats toMessage(SubscriptionStats stats) {
+        return ru.webrise.technicaltask.proto.SubscriptionStats.newBuilder()
+                .setProviderName(stats.providerName())
+                .setSubscriptionCount(stats.subscriptionCount())
+                .build();
+    }
+
+    private static UserSubscription toMessage(SubscriptionResponseDTO subscription, long userId) {
+        UserSubscription.Builder message = UserSubscription.newBuilder()
+                .setId(subscription.id())
+                .setStartDate(toEpochMilli(subscription.startDate()))
+                .setActive(subscription.active())
+                .setUserId(userId)
+                .setSubscriptionProvider(toMessage(subscription.subscriptionProvider()));
+        if (subscription.endDate() != null)
+            message.setEndDate(toEpochMilli(subscription.endDate()));
+        return message.build();
+    }
+
+    private static ru.webrise.technicaltask.proto.SubscriptionProvider toMessage(SubscriptionProvider provider) {
+        return toMessage(ProviderResponseDTO.from(provider));
+    }
+
+    private static ru.webrise.technicaltask.proto.SubscriptionProvider toMessage(ProviderResponseDTO provider) {
+        return ru.webrise.technicaltask.proto.SubscriptionProvider.newBuilder()
+                .setId(provider.id())
+                .setName(provider.name())
+                .setPrice(provider.price().toPlainString())
+                .build();
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,18 @@
+package ru.webrise.technicaltask.util.exceptions;
+
+public class ProviderJobNotFoundException extends RuntimeException {
+
+    public ProviderJobNotFoundException(String message) {
+        super(message);
+    }
+
+    public ProviderJobNotFoundException() {}
+
+    public ProviderJobNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ProviderJobNotFoundException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,256 @@
+package ru.webrise.technicaltask.util.existence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.exceptions.NonUniqueEmailException;
+import ru.webrise.technicaltask.util.exceptions.NonUniqueUsernameException;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Фильтры Блума по всем {@code username} и {@code email} пользователей для проверки уникальности
+ * без обращения к БД.
+ * <p>
+ * Если фильтр отвечает, что значения точно нет, запрос {@code exists} в БД не выполняется.
+ * При положительном ответе (значение занято или ложное срабатывание) уникальность проверяется в БД как раньше.
+ * Окончательной гарантией остаются уникальные ограничения таблицы {@code users}.
+ * <p>
+ * Фильтры строятся при старте приложения потоковым чтением таблицы {@code users}, пополняются
+ * при создании и изменении пользователей и периодически перестраиваются целиком: удаленные
+ * и замененные значения из фильтра Блума не удаляются, а значения, записанные другими узлами, нужно добавить.
+ * Во время перестройки новые значения пишутся и в текущие, и в строящиеся фильтры. До первой
+ * перестройки и при {@code users.existence-filter.enabled=false} все проверки идут в БД.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code users.existence-filter.checks} с тегами {@code field} и {@code outcome}
+ *     ({@code skipped}, {@code taken}, {@code false_positive}, {@code bypassed})</li>
+ *     <li>{@code users.existence-filter.bytes} - память битовых массивов</li>
+ *     <li>{@code users.existence-filter.expected-fpp} с тегом {@code field} - оценка доли ложных срабатываний
+ *     по заполненности фильтра</li>
+ *     <li>{@code users.existence-filter.rebuild} - время перестройки</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class UserExistenceFilter {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean enabled;
+    private final long minExpectedInsertions;
+    private final double falsePositiveRate;
+
+    private final Map<Field, Map<String, Counter>> checks = new EnumMap<>(Field.class);
+    private final Timer rebuildTimer;
+
+    private volatile Filters filters;
+    private volatile Filters building;
+
+    public UserExistenceFilter(
+            UserRepository userRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${users.existence-filter.enabled:true}") boolean enabled,
+            @Value("${users.existence-filter.expected-insertions:100000}") long minExpectedInsertions,
+            @Value("${users.existence-filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.userRepository = userRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+
+        for (Field field : Field.values()) {
+            Map<String, Counter> outcomes = new HashMap<>();
+            for (String outcome : new String[]{"skipped", "taken", "false_positive", "bypassed"})
+                outcomes.put(outcome, Counter.builder("users.existence-filter.checks")
+                        .description("Username and email uniqueness checks by existence filter outcome")
+                        .tag("field", field.tag)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            checks.put(field, outcomes);
+
+            Gauge.builder("users.existence-filter.expected-fpp", this, filter -> filter.expectedFalsePositiveRate(field))
+                    .description("Estimated false positive rate of the existence filter")
+                    .tag("field", field.tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("users.existence-filter.bytes", this, UserExistenceFilter::getSizeInBytes)
+                .description("Memory used by the username and email existence filters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("users.existence-filter.rebuild")
+                .description("Time to rebuild the username and email existence filters")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Строит фильтры при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled)
+            rebuild();
+    }
+
+    /**
+     * Периодически перестраивает фильтры из БД.
+     * <p>
+     * Период задается свойством {@code users.existence-filter.rebuild-interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${users.existence-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${users.existence-filter.rebuild-interval:PT6H}"
+    )
+    public void scheduledRebuild() {
+        if (!enabled)
+            return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild user existence filter", e);
+        }
+    }
+
+    /**
+     * Перестраивает фильтры, потоково читая все пары {@code username}, {@code email}.
+     * <p>
+     * Размер фильтров рассчитывается на удвоенное текущее количество пользователей,
+     * но не меньше {@code users.existence-filter.expected-insertions}.
+     * </p>
+     */
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Filters rebuilt = rebuildTimer.record(() -> {
+            long expected = Math.max(minExpectedInsertions, userRepository.count() * 2);
+            Filters next = new Filters(BloomFilter.create(expected, falsePositiveRate),
+                    BloomFilter.create(expected, falsePositiveRate));
+            building = next;
+            try {
+                readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = userRepository.streamUsernamesAndEmails()) {
+                        rows.forEach(row -> next.add((String) row[0], (String) row[1]));
+                    }
+                });
+            } finally {
+                building = null;
+            }
+            return next;
+        });
+
+        filters = rebuilt;
+        log.info("Rebuilt user existence filter for {} users ({} bytes) in {} ms",
+                rebuilt.usernames().insertions(), rebuilt.sizeInBytes(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Добавляет значения созданного или измененного пользователя. {@code null} пропускается.
+     * <p>
+     * Вызывается до фиксации транзакции: при откате в фильтре остается лишнее значение,
+     * что приводит только к лишней проверке в БД.
+     * </p>
+     */
+    public void add(String username, String email) {
+        Filters current = filters;
+        if (current != null)
+            current.add(username, email);
+        Filters next = building;
+        if (next != null)
+            next.add(username, email);
+    }
+
+    /**
+     * Проверяет, что имя пользователя не занято.
+     *
+     * @throws NonUniqueUsernameException если имя уже занято
+     */
+    public void checkUsernameUnique(String username) {
+        check(Field.USERNAME, username, Filters::usernames, () -> userRepository.checkUsernameUnique(username));
+    }
+
+    /**
+     * Проверяет, что email не используется.
+     *
+     * @throws NonUniqueEmailException если email уже используется
+     */
+    public void checkEmailUnique(String email) {
+        check(Field.EMAIL, email, Filters::emails, () -> userRepository.checkEmailUnique(email));
+    }
+
+    private void check(Field field, String value, Function<Filters, BloomFilter> filter, Runnable databaseCheck) {
+        if (value == null)
+            return;
+
+        Filters current = enabled ? filters : null;
+        if (current == null) {
+            checks.get(field).get("bypassed").increment();
+            databaseCheck.run();
+            return;
+        }
+        if (!filter.apply(current).mightContain(value)) {
+            checks.get(field).get("skipped").increment();
+            return;
+        }
+
+        try {
+            databaseCheck.run();
+        } catch (RuntimeException e) {
+            checks.get(field).get("taken").increment();
+            throw e;
+        }
+        checks.get(field).get("false_positive").increment();
+    }
+
+    private double expectedFalsePositiveRate(Field field) {
+        Filters current = filters;
+        if (current == null)
+            return Double.NaN;
+        return (field == Field.USERNAME ? current.usernames() : current.emails()).expectedFalsePositiveRate();
+    }
+
+    private double getSizeInBytes() {
+        Filters current = filters;
+        return current == null ? 0 : current.sizeInBytes();
+    }
+
+    private enum Field {
+        USERNAME("username"), EMAIL("email");
+
+        private final String tag;
+
+        Field(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+
+        void add(String username, String email) {
+            if (username != null)
+                usernames.add(username);
+            if (email != null)
+                emails.add(email);
+        }
+
+        long sizeInBytes() {
+            return usernames.sizeInBytes() + emails.sizeInBytes();
+        }
+    }
+}
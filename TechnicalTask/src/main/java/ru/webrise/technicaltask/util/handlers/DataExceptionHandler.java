@@ -30,7 +30,7 @@ public class DataExceptionHandler {
 
     @ExceptionHandler({
             SubscriptionNotFoundException.class, SubscriptionProviderNotFoundException.class,
-            UserNotFoundException.class
+            UserNotFoundException.class, ProviderJobNotFoundException.class
     })
     @ResponseBody
     public ResponseEntity<DataErrorResponse> handleNotFoundDataException(RuntimeException exception) {
@@ -0,0 +1,133 @@
+package ru.webrise.technicaltask.util.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.webrise.technicaltask.repositories.IdempotencyKeyRepository;
+import ru.webrise.technicaltask.repositories.IdempotencyKeyRepository.StoredRequest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище ответов на запросы с заголовком {@code Idempotency-Key}.
+ * <p>
+ * Источником истины служит таблица {@code idempotency_keys}: она общая для всех узлов и переживает перезапуск.
+ * Завершенные ответы дополнительно хранятся в ограниченном LRU-кэше узла ({@code idempotency.local.max-entries}),
+ * поэтому повтор, пришедший на тот же узел, не обращается к БД.
+ * <p>
+ * Публикует метрику {@code idempotency.requests} с тегом {@code outcome}
+ * ({@code claimed}, {@code replayed}, {@code in_progress}, {@code mismatch}).
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    private final IdempotencyKeyRepository repository;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Map<String, LocalEntry> local;
+    private final Map<Outcome, Counter> counters = new LinkedHashMap<>();
+
+    public IdempotencyKeyStore(
+            IdempotencyKeyRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${idempotency.lock-timeout:PT1M}") Duration lockTimeout,
+            @Value("${idempotency.local.max-entries:10000}") int maxEntries
+    ) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.local = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        for (Outcome outcome : Outcome.values())
+            counters.put(outcome, Counter.builder("idempotency.requests")
+                    .description("Requests with an Idempotency-Key header by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+    }
+
+    /**
+     * Занимает ключ под выполнение запроса или возвращает сохраненный результат.
+     *
+     * @param key Значение заголовка {@code Idempotency-Key}
+     * @param requestHash Хэш метода, пути и тела запроса
+     * @return Результат: ключ занят, готовый ответ, запрос еще выполняется или ключ использован с другим запросом
+     */
+    public Claim claim(String key, String requestHash) {
+        LocalEntry entry = getLocal(key);
+        if (entry != null)
+            return record(entry.requestHash().equals(requestHash)
+                    ? new Claim(Outcome.REPLAYED, entry.response())
+                    : new Claim(Outcome.MISMATCH, null));
+
+        if (repository.claim(key, requestHash, ttl, lockTimeout))
+            return record(new Claim(Outcome.CLAIMED, null));
+
+        Optional<StoredRequest> stored = repository.find(key);
+        if (stored.isEmpty())
+            // строку успели удалить между попытками - считаем запрос выполняющимся, клиент повторит
+            return record(new Claim(Outcome.IN_PROGRESS, null));
+
+        StoredRequest request = stored.get();
+        if (!request.requestHash().equals(requestHash))
+            return record(new Claim(Outcome.MISMATCH, null));
+        if (request.status() == null)
+            return record(new Claim(Outcome.IN_PROGRESS, null));
+
+        StoredResponse response = new StoredResponse(request.status(), request.contentType(), request.body());
+        putLocal(key, new LocalEntry(requestHash, response, System.currentTimeMillis() + ttl.toMillis()));
+        return record(new Claim(Outcome.REPLAYED, response));
+    }
+
+    /**
+     * Сохраняет ответ на запрос, занявший ключ.
+     */
+    public void complete(String key, String requestHash, StoredResponse response) {
+        repository.complete(key, requestHash, response.status(), response.contentType(), response.body());
+        putLocal(key, new LocalEntry(requestHash, response, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    /**
+     * Освобождает ключ, если запрос завершился ошибкой сервера: повтор выполнит его заново.
+     */
+    public void release(String key, String requestHash) {
+        repository.release(key, requestHash);
+    }
+
+    private synchronized LocalEntry getLocal(String key) {
+        LocalEntry entry = local.get(key);
+        if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+            local.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void putLocal(String key, LocalEntry entry) {
+        local.put(key, entry);
+    }
+
+    private Claim record(Claim claim) {
+        counters.get(claim.outcome()).increment();
+        return claim;
+    }
+
+    public enum Outcome {
+        CLAIMED, REPLAYED, IN_PROGRESS, MISMATCH
+    }
+
+    public record Claim(Outcome outcome, StoredResponse response) {}
+
+    public record StoredResponse(int status, String contentType, byte[] body) {}
+
+    private record LocalEntry(String requestHash, StoredResponse response, long expiresAt) {}
+}
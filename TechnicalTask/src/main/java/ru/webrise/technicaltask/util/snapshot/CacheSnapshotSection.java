@@ -0,0 +1,67 @@
+package ru.webrise.technicaltask.util.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Кэш в памяти, состояние которого сохраняется в снимок {@link CacheSnapshotStore}
+ * и восстанавливается из него при старте приложения.
+ * <p>
+ * Кэш, восстановленный из снимка, не перестраивается сам при старте: перестройку из БД
+ * выполняет {@link CacheSnapshotStore} в фоне через {@link #reconcile()}.
+ */
+public interface CacheSnapshotSection {
+
+    /**
+     * Имя раздела в файле снимка. Используется также как тег метрик.
+     */
+    String snapshotSectionName();
+
+    /**
+     * Возвращает {@code true}, если кэш построен и его состояние можно записать в снимок.
+     */
+    boolean isSnapshotReady();
+
+    /**
+     * Записывает текущее состояние кэша.
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException;
+
+    /**
+     * Восстанавливает состояние кэша из раздела снимка.
+     *
+     * @param in Содержимое раздела (отображенная в память часть файла)
+     */
+    void restoreSnapshot(ByteBuffer in) throws IOException;
+
+    /**
+     * Перестраивает кэш из БД и сравнивает результат с состоянием до перестройки.
+     *
+     * @return Количество расхождений (добавленных, удаленных и измененных записей)
+     */
+    long reconcile();
+
+    /**
+     * Записывает строку (допускается {@code null}) в формате, читаемом {@link #readString(ByteBuffer)}.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,302 @@
+package ru.webrise.technicaltask.util.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимки кэшей в памяти ({@link CacheSnapshotSection}) для быстрого прогрева после перезапуска.
+ * <p>
+ * Раз в {@code caches.snapshot.interval} и при остановке приложения состояние всех построенных кэшей
+ * записывается во временный файл, который затем атомарно заменяет {@code caches.snapshot.path}.
+ * Формат: заголовок (сигнатура, версия, время создания, количество разделов), затем разделы -
+ * имя, длина, CRC32C и содержимое.
+ * <p>
+ * При создании бина файл отображается в память ({@link MappedByteBuffer}), и каждый раздел с верной
+ * контрольной суммой передается своему кэшу - до старта веб-сервера, поэтому первые запросы обслуживаются
+ * прогретыми кэшами. Снимок старше {@code caches.snapshot.max-age}, поврежденный или другой версии игнорируется,
+ * и кэши строятся из БД как обычно. После старта восстановленные кэши перестраиваются из БД в фоновом потоке,
+ * расхождение со снимком публикуется метрикой.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *     <li>{@code caches.snapshot.age} - возраст последнего записанного или восстановленного снимка</li>
+ *     <li>{@code caches.snapshot.bytes} - размер файла снимка</li>
+ *     <li>{@code caches.snapshot.drift} с тегом {@code section} - количество записей, исправленных сверкой с БД</li>
+ *     <li>{@code caches.snapshot.write} и {@code caches.snapshot.restore} - время записи и восстановления</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class CacheSnapshotStore {
+
+    private static final int MAGIC = 0x57524353;
+    private static final int VERSION = 1;
+
+    private final Map<String, CacheSnapshotSection> sections = new LinkedHashMap<>();
+    private final boolean enabled;
+    private final Path path;
+    private final Duration maxAge;
+
+    private final Timer writeTimer;
+    private final Timer restoreTimer;
+    private final AtomicLong createdAt = new AtomicLong(-1);
+    private final AtomicLong sizeInBytes = new AtomicLong();
+    private final Map<String, AtomicLong> drift = new HashMap<>();
+    private final List<CacheSnapshotSection> restored = new ArrayList<>();
+
+    public CacheSnapshotStore(
+            List<CacheSnapshotSection> sections,
+            MeterRegistry meterRegistry,
+            @Value("${caches.snapshot.enabled:true}") boolean enabled,
+            @Value("${caches.snapshot.path:data/cache-snapshot.bin}") Path path,
+            @Value("${caches.snapshot.max-age:PT24H}") Duration maxAge
+    ) {
+        sections.forEach(section -> this.sections.put(section.snapshotSectionName(), section));
+        this.enabled = enabled;
+        this.path = path;
+        this.maxAge = maxAge;
+
+        Gauge.builder("caches.snapshot.age", createdAt,
+                        time -> time.get() < 0 ? Double.NaN : (System.currentTimeMillis() - time.get()) / 1000.0)
+                .description("Age of the last written or restored cache snapshot")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("caches.snapshot.bytes", sizeInBytes, AtomicLong::get)
+                .description("Size of the cache snapshot file")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (String name : this.sections.keySet()) {
+            AtomicLong sectionDrift = new AtomicLong(-1);
+            drift.put(name, sectionDrift);
+            Gauge.builder("caches.snapshot.drift", sectionDrift, value -> value.get() < 0 ? Double.NaN : value.get())
+                    .description("Entries corrected by reconciling a restored cache with the database")
+                    .tag("section", name)
+                    .register(meterRegistry);
+        }
+        this.writeTimer = Timer.builder("caches.snapshot.write")
+                .description("Time to write the cache snapshot")
+                .register(meterRegistry);
+        this.restoreTimer = Timer.builder("caches.snapshot.restore")
+                .description("Time to restore caches from the snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Восстанавливает кэши из снимка при создании бина.
+     */
+    @PostConstruct
+    public void onStartup() {
+        if (!enabled)
+            return;
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to restore caches from snapshot {}, caches will be built from the database", path, e);
+        }
+    }
+
+    /**
+     * Запускает фоновую сверку восстановленных кэшей с БД.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        synchronized (this) {
+            if (restored.isEmpty())
+                return;
+        }
+        Thread reconciler = new Thread(this::reconcileRestored, "cache-snapshot-reconciler");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+
+    /**
+     * Периодически записывает снимок.
+     * <p>
+     * Период задается свойством {@code caches.snapshot.interval}.
+     * </p>
+     */
+    @Scheduled(
+            fixedDelayString = "${caches.snapshot.interval:PT5M}",
+            initialDelayString = "${caches.snapshot.interval:PT5M}"
+    )
+    public void scheduledWrite() {
+        if (!enabled)
+            return;
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write cache snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Записывает снимок при остановке приложения, чтобы следующий запуск начинался с актуального состояния.
+     */
+    @PreDestroy
+    public void onShutdown() {
+        scheduledWrite();
+    }
+
+    /**
+     * Записывает снимок всех построенных кэшей.
+     */
+    public synchronized void write() throws IOException {
+        long startedAt = System.nanoTime();
+        long now = System.currentTimeMillis();
+
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (CacheSnapshotSection section : sections.values()) {
+            if (!section.isSnapshotReady())
+                continue;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                section.writeSnapshot(out);
+            }
+            contents.put(section.snapshotSectionName(), bytes.toByteArray());
+        }
+        if (contents.isEmpty())
+            return;
+
+        if (path.toAbsolutePath().getParent() != null)
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(now);
+            out.writeInt(contents.size());
+            CRC32C crc = new CRC32C();
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                CacheSnapshotSection.writeString(out, entry.getKey());
+                crc.reset();
+                crc.update(entry.getValue());
+                out.writeInt(entry.getValue().length);
+                out.writeInt((int) crc.getValue());
+                out.write(entry.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        createdAt.set(now);
+        sizeInBytes.set(Files.size(path));
+        long elapsed = System.nanoTime() - startedAt;
+        writeTimer.record(Duration.ofNanos(elapsed));
+        log.info("Wrote cache snapshot {} with sections {} ({} bytes) in {} ms",
+                path, contents.keySet(), sizeInBytes.get(), elapsed / 1_000_000);
+    }
+
+    /**
+     * Восстанавливает кэши из отображенного в память файла снимка.
+     *
+     * @return Имена восстановленных разделов (пустой список, если снимок отсутствует или не подходит)
+     */
+    public synchronized List<String> restore() throws IOException {
+        if (!Files.exists(path))
+            return List.of();
+
+        long startedAt = System.nanoTime();
+        List<String> restoredNames = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring cache snapshot {}: unknown format", path);
+                return List.of();
+            }
+            long snapshotCreatedAt = buffer.getLong();
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - snapshotCreatedAt);
+            if (age.compareTo(maxAge) >= 0) {
+                log.warn("Ignoring cache snapshot {}: {} old, maximum is {}", path, age, maxAge);
+                return List.of();
+            }
+
+            int count = buffer.getInt();
+            CRC32C crc = new CRC32C();
+            for (int i = 0; i < count; i++) {
+                String name = CacheSnapshotSection.readString(buffer);
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                ByteBuffer content = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                crc.reset();
+                crc.update(content.duplicate());
+                CacheSnapshotSection section = sections.get(name);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Skipping cache snapshot section {}: checksum mismatch", name);
+                } else if (section != null) {
+                    section.restoreSnapshot(content);
+                    restored.add(section);
+                    restoredNames.add(name);
+                }
+            }
+            createdAt.set(snapshotCreatedAt);
+            sizeInBytes.set(channel.size());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            log.warn("Ignoring truncated cache snapshot {}", path);
+        }
+
+        long elapsed = System.nanoTime() - startedAt;
+        restoreTimer.record(Duration.ofNanos(elapsed));
+        log.info("Restored caches {} from snapshot {} in {} ms", restoredNames, path, elapsed / 1_000_000);
+        return restoredNames;
+    }
+
+    /**
+     * Перестраивает из БД кэши, восстановленные последним вызовом {@link #restore()}, и сохраняет расхождения в метрики.
+     * Выполняется в вызывающем потоке.
+     */
+    public void reconcileRestored() {
+        List<CacheSnapshotSection> toReconcile;
+        synchronized (this) {
+            toReconcile = List.copyOf(restored);
+            restored.clear();
+        }
+
+        for (CacheSnapshotSection section : toReconcile) {
+            try {
+                long corrected = section.reconcile();
+                drift.get(section.snapshotSectionName()).set(corrected);
+                log.info("Reconciled cache {} restored from snapshot: {} entries differed from the database",
+                        section.snapshotSectionName(), corrected);
+            } catch (RuntimeException e) {
+                log.error("Failed to reconcile cache {} restored from snapshot", section.snapshotSectionName(), e);
+            }
+        }
+    }
+}
@@ -1,14 +1,17 @@
 create table if not exists public.users
 (
-    id         bigint generated by default as identity
+    id                    bigint generated by default as identity
         primary key,
-    username   varchar(50)             not null
+    username              varchar(50)             not null
         unique,
-    email      varchar(100)            not null
+    email                 varchar(100)            not null
         unique,
-    full_name  varchar(100),
-    created_at timestamp default now() not null,
-    updated_at timestamp default now() not null
+    full_name             varchar(100),
+    created_at            timestamp default now() not null,
+    updated_at            timestamp default now() not null,
+    subscriptions_version bigint    default 0     not null,
+    active_subscription_count integer default 0   not null,
+    monthly_spend         numeric(12, 2) default 0 not null
 );
 
 create table if not exists public.subscription_providers
@@ -39,6 +42,260 @@ create table if not exists public.subscriptions
         unique (user_id, service_id)
 );
 
+create index if not exists idx_subscriptions_active_end_date
+    on public.subscriptions (end_date)
+    where active = true and end_date is not null;
+
+create index if not exists idx_subscriptions_inactive_last_date
+    on public.subscriptions (coalesce(end_date, start_date))
+    where active = false;
+
+create table if not exists public.subscriptions_archive
+(
+    id          bigint                  not null
+        primary key,
+    user_id     bigint                  not null
+        constraint fk_subscriptions_archive_user
+            references public.users
+            on delete cascade,
+    service_id  bigint                  not null
+        constraint fk_subscriptions_archive_service
+            references public.subscription_providers
+            on delete cascade,
+    start_date  timestamp               not null,
+    end_date    timestamp,
+    active      boolean   default false,
+    archived_at timestamp default now() not null
+);
+
+create index if not exists idx_subscriptions_archive_user_id
+    on public.subscriptions_archive (user_id);
+
+create index if not exists idx_subscriptions_service_id
+    on public.subscriptions (service_id);
+
+create index if not exists idx_subscriptions_archive_service_id
+    on public.subscriptions_archive (service_id);
+
+create table if not exists public.subscription_revenue_daily
+(
+    day        date             not null,
+    service_id bigint           not null
+        constraint fk_subscription_revenue_daily_service
+            references public.subscription_providers
+            on delete cascade,
+    started    bigint default 0 not null,
+    ended      bigint default 0 not null,
+    constraint pk_subscription_revenue_daily
+        primary key (day, service_id)
+);
+
+create table if not exists public.subscription_revenue_current
+(
+    service_id           bigint                  not null
+        primary key
+        constraint fk_subscription_revenue_current_service
+            references public.subscription_providers
+            on delete cascade,
+    active_subscriptions bigint    default 0     not null,
+    refreshed_at         timestamp default now() not null
+);
+
+create table if not exists public.subscription_rollup_dirty_days
+(
+    day date not null
+        primary key
+);
+
+create table if not exists public.subscription_change_outbox
+(
+    id          bigint generated by default as identity
+        primary key,
+    event_type  varchar(32)             not null,
+    user_id     bigint,
+    provider_id bigint,
+    created_at  timestamp default now() not null,
+    tx_id       bigint    default (pg_current_xact_id()::text::bigint) not null
+);
+
+create index if not exists idx_subscription_change_outbox_position
+    on public.subscription_change_outbox (tx_id, id);
+
+create table if not exists public.subscription_change_outbox_consumers
+(
+    node_id    varchar(64)             not null
+        primary key,
+    last_tx_id bigint                  not null,
+    last_id    bigint                  not null,
+    updated_at timestamp default now() not null
+);
+
+create table if not exists public.idempotency_keys
+(
+    idempotency_key varchar(100)            not null
+        primary key,
+    request_hash    varchar(64)             not null,
+    status          integer,
+    content_type    varchar(255),
+    body            bytea,
+    created_at      timestamp default now() not null,
+    expires_at      timestamp               not null
+);
+
+create index if not exists idx_idempotency_keys_expires_at
+    on public.idempotency_keys (expires_at);
+
+create extension if not exists pg_trgm;
+
+create index if not exists idx_users_username_trgm
+    on public.users using gin (username gin_trgm_ops);
+
+create index if not exists idx_users_email_trgm
+    on public.users using gin (email gin_trgm_ops);
+
+create index if not exists idx_users_full_name_trgm
+    on public.users using gin (full_name gin_trgm_ops);
+
+create index if not exists idx_subscriptions_start_day
+    on public.subscriptions ((start_date::date));
+
+create index if not exists idx_subscriptions_end_day
+    on public.subscriptions ((end_date::date));
+
+create index if not exists idx_subscriptions_archive_start_day
+    on public.subscriptions_archive ((start_date::date));
+
+create index if not exists idx_subscriptions_archive_end_day
+    on public.subscriptions_archive ((end_date::date));
+
+create or replace function public.mark_subscription_rollup_days() returns trigger as $$
+begin
+    if tg_op <> 'INSERT' then
+        insert into public.subscription_rollup_dirty_days (day)
+        select d from (values (old.start_date::date), (old.end_date::date)) as v(d)
+        where d is not null
+        on conflict do nothing;
+    end if;
+    if tg_op <> 'DELETE' then
+        insert into public.subscription_rollup_dirty_days (day)
+        select d from (values (new.start_date::date), (new.end_date::date)) as v(d)
+        where d is not null
+        on conflict do nothing;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger trg_subscriptions_rollup_insert_delete
+    after insert or delete on public.subscriptions
+    for each row execute function public.mark_subscription_rollup_days();
+
+create trigger trg_subscriptions_rollup_update
+    after update on public.subscriptions
+    for each row
+    when (old.start_date is distinct from new.start_date
+        or old.end_date is distinct from new.end_date
+        or old.active is distinct from new.active
+        or old.service_id is distinct from new.service_id)
+    execute function public.mark_subscription_rollup_days();
+
+create trigger trg_subscriptions_archive_rollup
+    after insert or delete on public.subscriptions_archive
+    for each row execute function public.mark_subscription_rollup_days();
+
+create or replace function public.bump_user_subscriptions_version() returns trigger as $$
+begin
+    update public.users
+    set subscriptions_version = subscriptions_version + 1
+    where id = case when tg_op = 'DELETE' then old.user_id else new.user_id end;
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger trg_subscriptions_user_version_insert_delete
+    after insert or delete on public.subscriptions
+    for each row execute function public.bump_user_subscriptions_version();
+
+create trigger trg_subscriptions_user_version_update
+    after update on public.subscriptions
+    for each row
+    when (old.* is distinct from new.*)
+    execute function public.bump_user_subscriptions_version();
+
+create or replace function public.refresh_user_subscription_summary(target_user_id bigint) returns void as $$
+begin
+    update public.users u
+    set active_subscription_count = a.active_count,
+        monthly_spend = a.spend
+    from (
+        select count(sp.id) as active_count, coalesce(sum(sp.price), 0) as spend
+        from public.subscriptions s
+        join public.subscription_providers sp on sp.id = s.service_id
+        where s.user_id = target_user_id and s.active = true
+    ) a
+    where u.id = target_user_id;
+end;
+$$ language plpgsql;
+
+create or replace function public.apply_user_subscription_summary() returns trigger as $$
+declare
+    provider_price numeric;
+begin
+    if tg_op <> 'INSERT' and old.active then
+        select price into provider_price from public.subscription_providers where id = old.service_id;
+        if found then
+            update public.users
+            set active_subscription_count = active_subscription_count - 1,
+                monthly_spend = monthly_spend - provider_price
+            where id = old.user_id;
+        else
+            perform public.refresh_user_subscription_summary(old.user_id);
+        end if;
+    end if;
+    if tg_op <> 'DELETE' and new.active then
+        update public.users u
+        set active_subscription_count = active_subscription_count + 1,
+            monthly_spend = monthly_spend + sp.price
+        from public.subscription_providers sp
+        where u.id = new.user_id and sp.id = new.service_id;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger trg_subscriptions_user_summary_insert_delete
+    after insert or delete on public.subscriptions
+    for each row execute function public.apply_user_subscription_summary();
+
+create trigger trg_subscriptions_user_summary_update
+    after update on public.subscriptions
+    for each row
+    when (old.active is distinct from new.active
+        or old.service_id is distinct from new.service_id
+        or old.user_id is distinct from new.user_id)
+    execute function public.apply_user_subscription_summary();
+
+create or replace function public.apply_provider_price_to_user_summary() returns trigger as $$
+begin
+    update public.users u
+    set monthly_spend = u.monthly_spend + (new.price - old.price) * c.active_count
+    from (
+        select user_id, count(*) as active_count
+        from public.subscriptions
+        where service_id = new.id and active = true
+        group by user_id
+    ) c
+    where u.id = c.user_id;
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger trg_subscription_providers_user_summary_price
+    after update of price on public.subscription_providers
+    for each row
+    when (old.price is distinct from new.price)
+    execute function public.apply_provider_price_to_user_summary();
+
 INSERT INTO public.users (username, email, full_name, created_at, updated_at)
 VALUES
     ('user1', 'user1@example.com', 'John Doe', '2023-01-01 10:00:00', '2023-01-01 10:00:00'),
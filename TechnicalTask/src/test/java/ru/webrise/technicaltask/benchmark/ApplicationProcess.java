@@ -0,0 +1,148 @@
+package ru.webrise.technicaltask.benchmark;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Приложение, запущенное отдельным процессом из собранного jar, для бенчмарков старта и потребления памяти.
+ * <p>
+ * Jar распаковывается ({@code jarmode=tools extract}) в отдельный каталог для каждого режима, как в Dockerfile.
+ * Процесс получает переменные окружения текущего ({@code POSTGRES_*}) и слушает порт {@link #PORT}.
+ */
+final class ApplicationProcess implements AutoCloseable {
+
+    static final Path JAR = Path.of("target/TechnicalTask-0.0.1-SNAPSHOT.jar");
+    static final int PORT = 18080;
+    static final URI TOP_SUBSCRIPTIONS = URI.create("http://localhost:" + PORT + "/subscriptions/top");
+
+    private static final Path WORK_DIRECTORY = Path.of("target/startup-benchmark");
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/ru/webrise/technicaltask/TechnicalTaskApplication__ApplicationContextInitializer.class";
+
+    private final Process process;
+
+    private ApplicationProcess(Process process) {
+        this.process = process;
+    }
+
+    /**
+     * Распаковывает jar в пустой каталог режима (содержимое от предыдущего запуска удаляется).
+     *
+     * @param mode Имя режима (каталог внутри {@code target/startup-benchmark})
+     * @param requireAot Требовать, чтобы jar был собран с профилем {@code aot}
+     * @return Рабочий каталог режима, содержащий {@code application/app.jar}
+     */
+    static Path extract(String mode, boolean requireAot) throws IOException, InterruptedException {
+        if (!Files.exists(JAR))
+            throw new IllegalStateException(JAR + " not found, run mvn package -DskipTests first");
+        if (requireAot) {
+            try (ZipFile jar = new ZipFile(JAR.toFile())) {
+                if (jar.getEntry(AOT_INITIALIZER) == null)
+                    throw new IllegalStateException(JAR + " is not AOT-processed, run mvn -Paot package -DskipTests first");
+            }
+        }
+
+        Path directory = WORK_DIRECTORY.resolve(mode);
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(file);
+            }
+        }
+        Files.createDirectories(directory);
+        run(directory, List.of("java", "-Djarmode=tools", "-jar", JAR.toAbsolutePath().toString(),
+                "extract", "--destination", "application"));
+        Files.move(directory.resolve("application/" + JAR.getFileName()), directory.resolve("application/app.jar"));
+        return directory;
+    }
+
+    /**
+     * Формирует команду запуска распакованного приложения.
+     *
+     * @param jvmOptions Параметры JVM
+     * @param production Запускать с профилем {@code production}
+     */
+    static List<String> command(List<String> jvmOptions, boolean production) {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", "application/app.jar", "--server.port=" + PORT, "--caches.snapshot.enabled=false"));
+        if (production)
+            command.add("--spring.profiles.active=production");
+        return command;
+    }
+
+    /**
+     * Выполняет команду в каталоге и ждет ее успешного завершения.
+     */
+    static void run(Path directory, List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0)
+            throw new IllegalStateException("Command failed: " + command);
+    }
+
+    static ApplicationProcess start(Path directory, List<String> command) throws IOException {
+        return new ApplicationProcess(new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start());
+    }
+
+    /**
+     * Опрашивает {@code GET /subscriptions/top}, пока не получит 200.
+     *
+     * @throws IllegalStateException если процесс завершился или ответа нет дольше двух минут
+     */
+    void awaitFirstResponse(HttpClient client) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(TOP_SUBSCRIPTIONS).build();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (process.isAlive() && System.nanoTime() < deadline) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                    return;
+            } catch (ConnectException e) {
+                // Сервер еще не слушает порт
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException(process.isAlive()
+                ? "No successful response within " + TIMEOUT
+                : "Application exited with code " + process.exitValue() + " before the first response");
+    }
+
+    /**
+     * Возвращает резидентную память процесса ({@code VmRSS} из {@code /proc/<pid>/status}, только Linux).
+     */
+    long residentSetBytes() throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/" + process.pid() + "/status")))
+            if (line.startsWith("VmRSS:"))
+                return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+        throw new IllegalStateException("VmRSS not found for process " + process.pid());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS))
+            process.destroyForcibly().waitFor();
+    }
+}
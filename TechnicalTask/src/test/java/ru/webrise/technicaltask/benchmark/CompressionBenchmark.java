@@ -0,0 +1,81 @@
+package ru.webrise.technicaltask.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Стоимость ответа со списком подписок на один запрос: сериализация без сжатия, сериализация
+ * со сжатием gzip (как при сжатии на лету в Tomcat, уровень по умолчанию) и отдача заранее сжатого тела из кэша.
+ * <p>
+ * Размер тела до и после сжатия печатается перед прогревом.
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CompressionBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"50", "500", "5000"})
+    private int size;
+
+    private List<UserSubscriptionsDTO> body;
+    private ObjectMapper objectMapper;
+    private byte[] precompressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<SubscriptionProvider> providers = IntStream.range(0, 20)
+                .mapToObj(i -> new SubscriptionProvider((long) i, "Provider " + i, BigDecimal.valueOf(199 + i * 10L, 2)))
+                .toList();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        body = IntStream.range(0, size)
+                .mapToObj(i -> new UserSubscriptionsDTO((long) i, start.plusHours(i), i % 3 == 0 ? null : start.plusDays(30 + i),
+                        i % 2 == 0, 42L, providers.get(i % providers.size())))
+                .toList();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        byte[] raw = serialize();
+        precompressed = gzip(raw);
+        System.out.printf("%nsubscriptions/%d: %d bytes raw, %d bytes gzip%n", size, raw.length, precompressed.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzip() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(body));
+    }
+
+    @Benchmark
+    public byte[] precompressedHit() {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(precompressed.length);
+        response.writeBytes(precompressed);
+        return response.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+}
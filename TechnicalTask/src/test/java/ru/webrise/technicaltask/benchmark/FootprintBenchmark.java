@@ -0,0 +1,70 @@
+package ru.webrise.technicaltask.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность ({@code GET /subscriptions/top} в секунду) и резидентная память процесса приложения
+ * в обычном режиме JVM и в режиме Spring AOT, оба с профилем {@code production}.
+ * <p>
+ * Приложение запускается один раз на режим; после каждой итерации печатается его RSS, поэтому первое значение
+ * после итераций прогрева - память прогретого приложения. Время старта сравнивает {@link StartupBenchmark}.
+ * Требует jar, собранный с профилем {@code aot}, и доступную PostgreSQL с примененными миграциями:
+ * {@code mvn -Paot package -DskipTests && mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FootprintBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class FootprintBenchmark {
+
+    @Param({"production", "production-aot"})
+    private String mode;
+
+    @Param({"-Xmx512m"})
+    private String heap;
+
+    private ApplicationProcess application;
+    private HttpClient client;
+    private HttpRequest request;
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        boolean aot = mode.equals("production-aot");
+        Path directory = ApplicationProcess.extract(mode, aot);
+        List<String> jvmOptions = aot ? List.of(heap, "-Dspring.aot.enabled=true") : List.of(heap);
+
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        request = HttpRequest.newBuilder(ApplicationProcess.TOP_SUBSCRIPTIONS).build();
+        application = ApplicationProcess.start(directory, ApplicationProcess.command(jvmOptions, true));
+        application.awaitFirstResponse(client);
+        System.out.printf("%n%s: RSS after first response %d MB%n", mode, application.residentSetBytes() >> 20);
+    }
+
+    @Benchmark
+    public int topSubscriptions() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printResidentSet() throws IOException {
+        System.out.printf("%n%s: RSS after iteration %d %d MB%n", mode, ++iteration, application.residentSetBytes() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        application.close();
+    }
+}
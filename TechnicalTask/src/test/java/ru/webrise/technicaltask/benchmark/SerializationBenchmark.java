@@ -0,0 +1,94 @@
+package ru.webrise.technicaltask.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.proto.SubscriptionStatsList;
+import ru.webrise.technicaltask.proto.UserSubscriptionList;
+import ru.webrise.technicaltask.util.converters.ProtobufMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сравнение форматов ответа API: размер тела и стоимость кодирования/декодирования
+ * JSON, CBOR, Smile и Protobuf на списке подписок пользователя и топе провайдеров.
+ * <p>
+ * Размер тела для каждой комбинации печатается перед прогревом.
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SerializationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"subscriptions", "top"})
+    private String payload;
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    private String format;
+
+    @Param({"500"})
+    private int size;
+
+    private List<?> body;
+    private ObjectMapper objectMapper;
+    private JavaType bodyType;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<SubscriptionProvider> providers = IntStream.range(0, 20)
+                .mapToObj(i -> new SubscriptionProvider((long) i, "Provider " + i, BigDecimal.valueOf(199 + i * 10L, 2)))
+                .toList();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+        body = payload.equals("subscriptions")
+                ? IntStream.range(0, size)
+                        .mapToObj(i -> new UserSubscriptionsDTO((long) i, start.plusHours(i), i % 3 == 0 ? null : start.plusDays(30 + i),
+                                i % 2 == 0, 42L, providers.get(i % providers.size())))
+                        .toList()
+                : IntStream.range(0, Math.min(size, 100))
+                        .mapToObj(i -> new SubscriptionStats("Provider " + i, 100_000L - i * 97L))
+                        .toList();
+
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        bodyType = objectMapper.getTypeFactory().constructCollectionType(List.class,
+                payload.equals("subscriptions") ? UserSubscriptionsDTO.class : SubscriptionStats.class);
+
+        encoded = encode();
+        System.out.printf("%n%s/%s/%d: %d bytes%n", payload, format, size, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return format.equals("protobuf")
+                ? ProtobufMapper.toMessage(body).toByteArray()
+                : objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        if (!format.equals("protobuf"))
+            return objectMapper.readValue(encoded, bodyType);
+        return payload.equals("subscriptions")
+                ? UserSubscriptionList.parseFrom(encoded)
+                : SubscriptionStatsList.parseFrom(encoded);
+    }
+}
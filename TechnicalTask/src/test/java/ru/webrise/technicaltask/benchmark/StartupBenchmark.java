@@ -0,0 +1,69 @@
+package ru.webrise.technicaltask.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время от запуска процесса приложения до первого успешного ответа {@code GET /subscriptions/top}.
+ * <p>
+ * Режимы:
+ * <ul>
+ *     <li>{@code default} - профили по умолчанию: миграции Liquibase и проверка схемы на каждом старте</li>
+ *     <li>{@code production} - профиль {@code production}: без миграций, проверки схемы и чтения метаданных JDBC</li>
+ *     <li>{@code production-cds} - то же с архивом классов AppCDS, записанным пробным запуском, как в Dockerfile</li>
+ *     <li>{@code production-aot} - то же с кодом инициализации контекста, сгенерированным Spring AOT
+ *     (требует сборки с профилем {@code aot})</li>
+ * </ul>
+ * Требует собранный jar и доступную PostgreSQL с примененными миграциями (переменные {@code POSTGRES_*}):
+ * {@code mvn -Paot package -DskipTests && mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StartupBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"default", "production", "production-cds", "production-aot"})
+    private String mode;
+
+    private Path directory;
+    private List<String> command;
+    private HttpClient client;
+    private ApplicationProcess application;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        directory = ApplicationProcess.extract(mode, mode.equals("production-aot"));
+        command = ApplicationProcess.command(switch (mode) {
+            case "production-cds" -> List.of("-XX:SharedArchiveFile=application.jsa");
+            case "production-aot" -> List.of("-Dspring.aot.enabled=true");
+            default -> List.of();
+        }, !mode.equals("default"));
+
+        if (mode.equals("production-cds"))
+            ApplicationProcess.run(directory, ApplicationProcess.command(
+                    List.of("-XX:ArchiveClassesAtExit=application.jsa", "-Dspring.context.exit=onRefresh"), true));
+
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+    }
+
+    @Benchmark
+    public void timeToFirstRequest() throws IOException, InterruptedException {
+        application = ApplicationProcess.start(directory, command);
+        application.awaitFirstResponse(client);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (application != null)
+            application.close();
+    }
+}
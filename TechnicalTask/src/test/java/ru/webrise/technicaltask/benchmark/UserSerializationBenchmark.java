@@ -0,0 +1,89 @@
+package ru.webrise.technicaltask.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.models.Subscription;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.models.User;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сериализация пользователя с 20 подписками: сущность с {@code @JsonIdentityInfo} и
+ * {@code @JsonManagedReference}, DTO через {@link ObjectMapper}, DTO через закэшированный
+ * {@link ObjectWriter} и DTO через закэшированный {@link ObjectWriter} с модулем Blackbird
+ * (путь {@code DtoJsonHttpMessageConverter}). Время DTO-вариантов включает построение DTO из сущности.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=UserSerializationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSerializationBenchmark {
+
+    private User user;
+    private ObjectMapper objectMapper;
+    private ObjectWriter dtoWriter;
+    private ObjectWriter blackbirdDtoWriter;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        user = User.builder()
+                .id(42L)
+                .username("benchmark_user")
+                .email("benchmark@example.com")
+                .fullName("Benchmark User")
+                .createdAt(start)
+                .updatedAt(start.plusDays(3))
+                .build();
+        user.setSubscriptions(IntStream.range(0, 20)
+                .mapToObj(i -> Subscription.builder()
+                        .id((long) i)
+                        .startDate(start.plusDays(i))
+                        .endDate(i % 2 == 0 ? null : start.plusDays(30 + i))
+                        .active(i % 3 != 0)
+                        .subscriptionProvider(new SubscriptionProvider((long) i, "Provider " + i, BigDecimal.valueOf(199 + i * 10L, 2)))
+                        .user(user)
+                        .build())
+                .toList());
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        dtoWriter = objectMapper.writerFor(UserResponseDTO.class);
+        blackbirdDtoWriter = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new BlackbirdModule())
+                .build()
+                .writerFor(UserResponseDTO.class);
+    }
+
+    @Benchmark
+    public byte[] entity() throws IOException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] dto() throws IOException {
+        return objectMapper.writeValueAsBytes(UserResponseDTO.from(user));
+    }
+
+    @Benchmark
+    public byte[] dtoCachedWriter() throws IOException {
+        return dtoWriter.writeValueAsBytes(UserResponseDTO.from(user));
+    }
+
+    @Benchmark
+    public byte[] dtoCachedWriterBlackbird() throws IOException {
+        return blackbirdDtoWriter.writeValueAsBytes(UserResponseDTO.from(user));
+    }
+}
@@ -26,7 +26,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         properties = {
                 "spring.liquibase.enabled=false",
                 "spring.jpa.hibernate.ddl-auto=validate",
-                "spring.profiles.active="
+                "spring.profiles.active=",
+                "caches.snapshot.enabled=false"
         },
         classes = TechnicalTaskApplication.class
 )
@@ -0,0 +1,280 @@
+package ru.webrise.technicaltask.integration;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.webrise.technicaltask.TechnicalTaskApplication;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Testcontainers
+@SpringBootTest(
+        properties = {
+                "spring.liquibase.enabled=false",
+                "spring.jpa.hibernate.ddl-auto=validate",
+                "spring.profiles.active=",
+                "caches.snapshot.enabled=false",
+                "subscriptions.expiry.enabled=false",
+                "subscriptions.provider-jobs.batch-size=2"
+        },
+        classes = TechnicalTaskApplication.class
+)
+@AutoConfigureMockMvc
+public class UserSubscriptionSummaryIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Container
+    @SuppressWarnings("resource")
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:17")
+                    .withInitScript("db/testcontainers-migration/postgresql/schema.sql");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    void seedData_ShouldHaveSummaryFromInsertTriggers() throws Exception {
+        expectSummary(1L, 2, "21.98");
+        expectSummary(2L, 3, "22.97");
+        expectSummary(3L, 3, "28.97");
+    }
+
+    @Test
+    void insertActiveFlipAndDelete_ShouldUpdateSummary() throws Exception {
+        long userId = createUser("summary_flip");
+        long first = createProvider("Summary Flip A", "10.00");
+        long second = createProvider("Summary Flip B", "5.50");
+
+        long firstSubscription = addSubscription(userId, first, true);
+        expectSummary(userId, 1, "10.00");
+
+        long secondSubscription = addSubscription(userId, second, false);
+        expectSummary(userId, 1, "10.00");
+
+        updateSubscription(userId, secondSubscription, second, true);
+        expectSummary(userId, 2, "15.50");
+
+        updateSubscription(userId, firstSubscription, first, false);
+        expectSummary(userId, 1, "5.50");
+
+        mockMvc.perform(delete("/users/" + userId + "/subscriptions/" + secondSubscription))
+                .andExpect(status().isOk());
+        expectSummary(userId, 0, "0.00");
+
+        mockMvc.perform(delete("/users/" + userId + "/subscriptions/" + firstSubscription))
+                .andExpect(status().isOk());
+        expectSummary(userId, 0, "0.00");
+    }
+
+    @Test
+    void providerAndUserMove_ShouldMoveSummary() throws Exception {
+        long userId = createUser("summary_move");
+        long otherUserId = createUser("summary_move_other");
+        long cheap = createProvider("Summary Move Cheap", "3.00");
+        long expensive = createProvider("Summary Move Expensive", "12.00");
+
+        long subscription = addSubscription(userId, cheap, true);
+        expectSummary(userId, 1, "3.00");
+
+        updateSubscription(userId, subscription, expensive, true);
+        expectSummary(userId, 1, "12.00");
+
+        jdbcTemplate.update("UPDATE subscriptions SET user_id = ? WHERE id = ?", otherUserId, subscription);
+        expectSummary(userId, 0, "0.00");
+        expectSummary(otherUserId, 1, "12.00");
+
+        jdbcTemplate.update("UPDATE subscriptions SET user_id = ?, service_id = ?, active = false WHERE id = ?",
+                userId, cheap, subscription);
+        expectSummary(userId, 0, "0.00");
+        expectSummary(otherUserId, 0, "0.00");
+    }
+
+    @Test
+    void providerPriceChange_ShouldShiftSpendOfActiveSubscribers() throws Exception {
+        long activeUserId = createUser("summary_price_active");
+        long inactiveUserId = createUser("summary_price_inactive");
+        long provider = createProvider("Summary Price", "4.00");
+        long other = createProvider("Summary Price Other", "1.00");
+        addSubscription(activeUserId, provider, true);
+        addSubscription(activeUserId, other, true);
+        addSubscription(inactiveUserId, provider, false);
+
+        mockMvc.perform(put("/subscription-provider/" + provider)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"name": "Summary Price", "price": 6.25}
+                        """))
+                .andExpect(status().isOk());
+
+        expectSummary(activeUserId, 2, "7.25");
+        expectSummary(inactiveUserId, 0, "0.00");
+    }
+
+    @Test
+    void providerCascadeDelete_ShouldRecomputeSummary() throws Exception {
+        long userId = createUser("summary_cascade");
+        long kept = createProvider("Summary Cascade Kept", "2.00");
+        long removed = createProvider("Summary Cascade Removed", "8.00");
+        addSubscription(userId, kept, true);
+        addSubscription(userId, removed, true);
+        expectSummary(userId, 2, "10.00");
+
+        mockMvc.perform(delete("/subscription-provider/" + removed))
+                .andExpect(status().isOk());
+
+        expectSummary(userId, 1, "2.00");
+    }
+
+    @Test
+    void subscriptionBatch_ShouldUpdateSummary() throws Exception {
+        long userId = createUser("summary_batch");
+        long first = createProvider("Summary Batch A", "1.50");
+        long second = createProvider("Summary Batch B", "2.50");
+        long third = createProvider("Summary Batch C", "4.00");
+        long toUpdate = addSubscription(userId, first, true);
+        long toDelete = addSubscription(userId, second, true);
+        expectSummary(userId, 2, "4.00");
+
+        mockMvc.perform(post("/users/" + userId + "/subscriptions:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                              "operations": [
+                                {"op": "create", "subscription": %s},
+                                {"op": "update", "subscriptionId": %d, "subscription": %s},
+                                {"op": "delete", "subscriptionId": %d}
+                              ]
+                            }
+                        """.formatted(subscriptionJson(third, true), toUpdate, subscriptionJson(first, false), toDelete)))
+                .andExpect(status().isOk());
+
+        expectSummary(userId, 1, "4.00");
+    }
+
+    @Test
+    void providerJobs_ShouldUpdateSummary() throws Exception {
+        long provider = createProvider("Summary Job", "3.00");
+        long kept = createProvider("Summary Job Kept", "1.00");
+        long[] userIds = new long[5];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = createUser("summary_job_" + i);
+            addSubscription(userIds[i], provider, true);
+            addSubscription(userIds[i], kept, true);
+        }
+        expectSummary(userIds[0], 2, "4.00");
+
+        runJob(provider, "DEACTIVATE");
+        for (long userId : userIds)
+            expectSummary(userId, 1, "1.00");
+
+        updateSubscription(userIds[0], subscriptionId(userIds[0], provider), provider, true);
+        expectSummary(userIds[0], 2, "4.00");
+
+        runJob(provider, "DELETE");
+        for (long userId : userIds)
+            expectSummary(userId, 1, "1.00");
+    }
+
+    private void expectSummary(long userId, int activeSubscriptionCount, String monthlySpend) throws Exception {
+        mockMvc.perform(get("/users/" + userId + "/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activeSubscriptionCount").value(activeSubscriptionCount))
+                .andExpect(jsonPath("$.monthlySpend").value(new BigDecimal(monthlySpend).doubleValue()));
+
+        Object[] stored = jdbcTemplate.queryForObject(
+                "SELECT active_subscription_count, monthly_spend FROM users WHERE id = ?",
+                (rs, rowNum) -> new Object[]{rs.getInt(1), rs.getBigDecimal(2)}, userId);
+        assertEquals(activeSubscriptionCount, stored[0]);
+        assertEquals(new BigDecimal(monthlySpend), stored[1]);
+    }
+
+    private long createUser(String username) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, email) VALUES (?, ?) RETURNING id",
+                Long.class, username, username + "@example.com");
+    }
+
+    private long createProvider(String name, String price) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO subscription_providers (name, price) VALUES (?, ?) RETURNING id",
+                Long.class, name, new BigDecimal(price));
+    }
+
+    private long subscriptionId(long userId, long providerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT id FROM subscriptions WHERE user_id = ? AND service_id = ?", Long.class, userId, providerId);
+    }
+
+    private long addSubscription(long userId, long providerId, boolean active) throws Exception {
+        String response = mockMvc.perform(post("/users/" + userId + "/subscriptions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(subscriptionJson(providerId, active)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(JsonPath.read(response, "$.id"));
+    }
+
+    private void updateSubscription(long userId, long subscriptionId, long providerId, boolean active) throws Exception {
+        mockMvc.perform(put("/users/" + userId + "/subscriptions/" + subscriptionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(subscriptionJson(providerId, active)))
+                .andExpect(status().isOk());
+    }
+
+    private void runJob(long providerId, String operation) throws Exception {
+        String response = mockMvc.perform(post("/subscription-provider/" + providerId + "/jobs")
+                        .param("operation", operation))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        UUID jobId = UUID.fromString(JsonPath.read(response, "$.id"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            String job = mockMvc.perform(get("/subscription-provider/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            String status = JsonPath.read(job, "$.status");
+            if ("completed".equals(status))
+                return;
+            if ("failed".equals(status))
+                fail("Provider job failed: " + job);
+            Thread.sleep(50);
+        }
+        fail("Provider job " + jobId + " did not complete in time");
+    }
+
+    private static String subscriptionJson(long providerId, boolean active) {
+        return """
+            {
+              "startDate": "2024-02-20T10:00:00",
+              "active": %s,
+              "subscriptionProvider": {"id": %d}
+            }
+        """.formatted(active, providerId);
+    }
+}
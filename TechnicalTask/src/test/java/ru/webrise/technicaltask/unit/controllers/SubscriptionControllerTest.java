@@ -21,6 +21,7 @@ import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -123,7 +124,7 @@ public class SubscriptionControllerTest {
         UserSubscriptionsDTO subscription2 = new UserSubscriptionsDTO(2L, LocalDateTime.now(), LocalDateTime.now(), true, 1L, SubscriptionProvider.builder().id(2L).build());
         List<UserSubscriptionsDTO> subscriptions = List.of(subscription1, subscription2);
 
-        Mockito.when(subscriptionService.getSubscriptionByUserId(1L))
+        Mockito.when(subscriptionService.getSubscriptionByUserId(1L, false))
                 .thenReturn(subscriptions);
 
         mockMvc.perform(get("/users/1/subscriptions"))
@@ -133,6 +134,35 @@ public class SubscriptionControllerTest {
                 .andExpect(jsonPath("$[1].subscriptionProvider.id").value("2"));
     }
 
+    @Test
+    void getSubscriptions_IncludeArchived_ShouldReturnHistory() throws Exception {
+        UserSubscriptionsDTO active = new UserSubscriptionsDTO(1L, LocalDateTime.now(), null, true, 1L, SubscriptionProvider.builder().id(1L).build());
+        UserSubscriptionsDTO archived = new UserSubscriptionsDTO(2L, LocalDateTime.now(), LocalDateTime.now(), false, 1L, SubscriptionProvider.builder().id(2L).build());
+
+        Mockito.when(subscriptionService.getSubscriptionByUserId(1L, true))
+                .thenReturn(List.of(active, archived));
+
+        mockMvc.perform(get("/users/1/subscriptions?includeArchived=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].active").value(false));
+
+        Mockito.verify(subscriptionService).getSubscriptionByUserId(1L, true);
+    }
+
+    @Test
+    void getSubscriptions_WithFields_ShouldReturnOnlyRequestedFields() throws Exception {
+        Mockito.when(subscriptionService.getSubscriptionFieldsByUserId(1L, false, "id,subscriptionProvider.name"))
+                .thenReturn(List.of(Map.of("id", 1L, "subscriptionProvider", Map.of("name", "Netflix"))));
+
+        mockMvc.perform(get("/users/1/subscriptions?fields=id,subscriptionProvider.name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].subscriptionProvider.name").value("Netflix"))
+                .andExpect(jsonPath("$[0].startDate").doesNotExist());
+
+        Mockito.verify(subscriptionService, Mockito.never()).getSubscriptionByUserId(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
     @Test
     void deleteSubscription_ShouldReturnSuccess() throws Exception {
         mockMvc.perform(delete("/users/1/subscriptions/1"))
@@ -1,20 +1,31 @@
 package ru.webrise.technicaltask.unit.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.webrise.technicaltask.TechnicalTaskApplication;
 import ru.webrise.technicaltask.controllers.TopSubscriptionsController;
 import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.proto.SubscriptionStatsList;
 import ru.webrise.technicaltask.services.SubscriptionService;
+import ru.webrise.technicaltask.services.TopSubscriptionsStreamService;
+import ru.webrise.technicaltask.services.TrendingService;
+import ru.webrise.technicaltask.util.converters.ProtobufResponseHttpMessageConverter;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +39,12 @@ public class TopSubscriptionsControllerTest {
     @MockBean
     private SubscriptionService subscriptionService;
 
+    @MockBean
+    private TrendingService trendingService;
+
+    @MockBean
+    private TopSubscriptionsStreamService topSubscriptionsStreamService;
+
     @Test
     void getTopSubscriptions_DefaultLimit_ShouldReturn3Items() throws Exception {
         List<SubscriptionStats> mockStats = List.of(
@@ -74,4 +91,70 @@ public class TopSubscriptionsControllerTest {
 
         Mockito.verifyNoInteractions(subscriptionService);
     }
+
+    @Test
+    void getTopSubscriptions_WithWindow_ShouldReturnTrending() throws Exception {
+        Mockito.when(trendingService.getTrendingSubscriptions("24h", "new", 3))
+                .thenReturn(List.of(new SubscriptionStats("Spotify", 12L)));
+
+        mockMvc.perform(get("/subscriptions/top?window=24h&by=new"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].providerName").value("Spotify"))
+                .andExpect(jsonPath("$[0].subscriptionCount").value(12));
+
+        Mockito.verifyNoInteractions(subscriptionService);
+    }
+
+    @Test
+    void getTopSubscriptions_AcceptProtobuf_ShouldReturnProtobuf() throws Exception {
+        Mockito.when(subscriptionService.getTopSubscriptions(3))
+                .thenReturn(List.of(new SubscriptionStats("Netflix", 150L)));
+
+        byte[] body = mockMvc.perform(get("/subscriptions/top").accept(ProtobufResponseHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProtobufResponseHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        SubscriptionStatsList stats = SubscriptionStatsList.parseFrom(body);
+        assertEquals("Netflix", stats.getStats(0).getProviderName());
+        assertEquals(150L, stats.getStats(0).getSubscriptionCount());
+    }
+
+    @Test
+    void getTopSubscriptions_AcceptCbor_ShouldReturnCbor() throws Exception {
+        Mockito.when(subscriptionService.getTopSubscriptions(3))
+                .thenReturn(List.of(new SubscriptionStats("Netflix", 150L)));
+
+        byte[] body = mockMvc.perform(get("/subscriptions/top").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode stats = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals("Netflix", stats.get(0).get("providerName").asText());
+    }
+
+    @Test
+    void getTopSubscriptions_DifferentRepresentations_ShouldHaveDifferentETagsAndVaryByAccept() throws Exception {
+        Mockito.when(subscriptionService.getTopSubscriptions(3))
+                .thenReturn(List.of(new SubscriptionStats("Netflix", 150L)));
+
+        String jsonETag = mockMvc.perform(get("/subscriptions/top").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn().getResponse().getHeader("ETag");
+        String cborETag = mockMvc.perform(get("/subscriptions/top").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(jsonETag, cborETag);
+
+        mockMvc.perform(get("/subscriptions/top").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", jsonETag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/subscriptions/top").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")));
+    }
 }
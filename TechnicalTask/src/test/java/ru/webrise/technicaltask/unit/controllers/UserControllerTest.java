@@ -14,11 +14,19 @@ import ru.webrise.technicaltask.TechnicalTaskApplication;
 import ru.webrise.technicaltask.controllers.UserController;
 import ru.webrise.technicaltask.dto.UpdateUserDTO;
 import ru.webrise.technicaltask.dto.UserDTO;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.dto.UserSummaryDTO;
+import ru.webrise.technicaltask.models.Subscription;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.models.User;
 import ru.webrise.technicaltask.services.UserService;
 import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
 import ru.webrise.technicaltask.util.handlers.BindingResultErrorHandler;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -92,25 +100,81 @@ public class UserControllerTest {
         mockUser.setUsername("testuser");
         mockUser.setEmail("test@example.com");
 
-        Mockito.when(userService.getUserInfo(1L))
-                .thenReturn(mockUser);
+        Mockito.when(userService.getUserVersion(1L))
+                .thenReturn("v1");
+        Mockito.when(userService.getUserResponse(1L))
+                .thenReturn(UserResponseDTO.from(mockUser));
 
         mockMvc.perform(get("/users/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1-json\""))
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.email").value("test@example.com"));
     }
 
+    @Test
+    void getUser_WithSubscriptions_ShouldReturnSubscriptionsWithoutBackReference() throws Exception {
+        User mockUser = new User();
+        mockUser.setId(1L);
+        mockUser.setUsername("testuser");
+        mockUser.setEmail("test@example.com");
+        mockUser.setSubscriptions(List.of(Subscription.builder()
+                .id(5L)
+                .startDate(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .subscriptionProvider(new SubscriptionProvider(2L, "Netflix", new BigDecimal("9.99")))
+                .user(mockUser)
+                .build()));
+
+        Mockito.when(userService.getUserVersion(1L))
+                .thenReturn("v1");
+        Mockito.when(userService.getUserResponse(1L))
+                .thenReturn(UserResponseDTO.from(mockUser));
+
+        mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subscriptions[0].id").value(5))
+                .andExpect(jsonPath("$.subscriptions[0].startDate").value("2024-01-01T12:00:00"))
+                .andExpect(jsonPath("$.subscriptions[0].active").value(true))
+                .andExpect(jsonPath("$.subscriptions[0].subscriptionProvider.name").value("Netflix"))
+                .andExpect(jsonPath("$.subscriptions[0].user").doesNotExist());
+    }
+
     @Test
     void getUser_NotFound_ShouldReturnNotFound() throws Exception {
-        Mockito.when(userService.getUserInfo(999L))
+        Mockito.when(userService.getUserResponse(999L))
                 .thenThrow(new UserNotFoundException("User not found"));
 
         mockMvc.perform(get("/users/999"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getUserSummary_ShouldReturnDenormalizedSummary() throws Exception {
+        Mockito.when(userService.getUserSummary(1L))
+                .thenReturn(new UserSummaryDTO(1L, 2, new BigDecimal("24.98")));
+
+        mockMvc.perform(get("/users/1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.activeSubscriptionCount").value(2))
+                .andExpect(jsonPath("$.monthlySpend").value(24.98));
+
+        Mockito.verify(userService, Mockito.never()).getUserResponse(Mockito.anyLong());
+    }
+
+    @Test
+    void getUser_MatchingETag_ShouldReturnNotModifiedWithoutLoading() throws Exception {
+        Mockito.when(userService.getUserVersion(1L))
+                .thenReturn("v1");
+
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"v1-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1-json\""));
+
+        Mockito.verify(userService, Mockito.never()).getUserResponse(Mockito.anyLong());
+    }
+
     @Test
     void updateUser_ShouldReturnOk() throws Exception {
         String updateJson = """
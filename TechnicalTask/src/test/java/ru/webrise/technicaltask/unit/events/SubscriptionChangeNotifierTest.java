@@ -0,0 +1,99 @@
+package ru.webrise.technicaltask.unit.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent.Type;
+import ru.webrise.technicaltask.events.SubscriptionChangeListener;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionChangeNotifierTest {
+
+    @Mock
+    private ObjectProvider<SubscriptionChangeListener> listeners;
+
+    @Mock
+    private SubscriptionChangeOutboxRepository outboxRepository;
+
+    @Mock
+    private SubscriptionChangeListener immediateListener;
+
+    @Mock
+    private SubscriptionChangeListener asyncListener;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("Outbox - события транзакции записываются одним пакетом перед фиксацией")
+    void dispatch_OutboxEnabled_ShouldWriteOneBatchAndNotifyOnlyImmediateListeners() {
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.of(immediateListener, asyncListener));
+        when(immediateListener.isImmediate()).thenReturn(true);
+        when(asyncListener.isImmediate()).thenReturn(false);
+        SubscriptionChangeNotifier notifier = new SubscriptionChangeNotifier(listeners, outboxRepository, true);
+
+        notifier.subscriptionCreated(1L, 2L);
+        notifier.subscriptionActivated(1L, 2L);
+        notifier.userUpdated(1L);
+        verifyNoInteractions(outboxRepository);
+
+        commit();
+
+        verify(outboxRepository).insert(List.of(
+                new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 2L),
+                new SubscriptionChangeEvent(Type.SUBSCRIPTION_ACTIVATED, 1L, 2L),
+                new SubscriptionChangeEvent(Type.USER_UPDATED, 1L, null)
+        ));
+        verify(immediateListener).onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_ACTIVATED, 1L, 2L));
+        verify(asyncListener, never()).onChange(any());
+    }
+
+    @Test
+    @DisplayName("Outbox выключен - все получатели вызываются после фиксации")
+    void dispatch_OutboxDisabled_ShouldNotifyAllListenersAfterCommit() {
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.of(immediateListener, asyncListener));
+        SubscriptionChangeNotifier notifier = new SubscriptionChangeNotifier(listeners, outboxRepository, false);
+
+        notifier.subscriptionDeactivated(1L, 2L);
+        verify(asyncListener, never()).onChange(any());
+
+        commit();
+
+        SubscriptionChangeEvent deactivated = new SubscriptionChangeEvent(Type.SUBSCRIPTION_DEACTIVATED, 1L, 2L);
+        verify(immediateListener).onChange(deactivated);
+        verify(asyncListener).onChange(deactivated);
+        verify(outboxRepository, never()).insert(anyList());
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,128 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.analytics.ProviderAudienceIndex;
+import ru.webrise.technicaltask.dto.AudienceDTO;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.AudienceService;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AudienceServiceTest {
+
+    private static final long NETFLIX = 1L;
+    private static final long SPOTIFY = 2L;
+    private static final long DISNEY = 3L;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProviderAudienceIndex index;
+    private AudienceService audienceService;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProviderAudienceIndex(
+                subscriptionRepository, new TransactionTemplate(transactionManager), event -> {}, new SimpleMeterRegistry());
+
+        index.onSubscriptionActivated(10L, NETFLIX);
+        index.onSubscriptionActivated(10L, SPOTIFY);
+        index.onSubscriptionActivated(10L, DISNEY);
+        index.onSubscriptionActivated(20L, NETFLIX);
+        index.onSubscriptionActivated(30L, NETFLIX);
+        index.onSubscriptionActivated(30L, SPOTIFY);
+        index.onSubscriptionActivated(40L, SPOTIFY);
+        index.onSubscriptionDeactivated(40L, SPOTIFY);
+
+        audienceService = new AudienceService(index);
+    }
+
+    @Test
+    @DisplayName("Аудитория - подписчики одного провайдера без другого")
+    void getAudience_AndNot_ShouldExcludeSubscribers() {
+        AudienceDTO result = audienceService.getAudience("1 ANDNOT 2", null, 0, 100, false);
+
+        assertEquals(1, result.count());
+        assertEquals(List.of(20L), result.userIds());
+        assertNull(result.nextAfterUserId());
+    }
+
+    @Test
+    @DisplayName("Аудитория - приоритет операций и скобки")
+    void getAudience_Precedence_ShouldBindAndTighterThanOr() {
+        assertEquals(List.of(10L, 30L), audienceService.getAudience("3 or 1 and 2", null, 0, 100, false).userIds());
+        assertEquals(List.of(10L), audienceService.getAudience("(3 OR 1) AND 2 AND 3", null, 0, 100, false).userIds());
+    }
+
+    @Test
+    @DisplayName("Аудитория - минимальное количество провайдеров и постраничная выдача")
+    void getAudience_MinProviders_ShouldPage() {
+        AudienceDTO firstPage = audienceService.getAudience(null, 2, 0, 1, false);
+
+        assertEquals(2, firstPage.count());
+        assertEquals(List.of(10L), firstPage.userIds());
+        assertEquals(10L, firstPage.nextAfterUserId());
+
+        AudienceDTO secondPage = audienceService.getAudience(null, 2, firstPage.nextAfterUserId(), 1, false);
+        assertEquals(List.of(30L), secondPage.userIds());
+        assertNull(secondPage.nextAfterUserId());
+
+        assertEquals(1, audienceService.getAudience("2", 3, 0, 100, true).count());
+    }
+
+    @Test
+    @DisplayName("Аудитория - порог больше количества провайдеров дает пустой результат")
+    void getAudience_MinProvidersAboveProviderCount_ShouldReturnEmpty() {
+        AudienceDTO result = audienceService.getAudience(null, Integer.MAX_VALUE, 0, 100, false);
+
+        assertEquals(0, result.count());
+        assertEquals(List.of(), result.userIds());
+        assertNull(result.nextAfterUserId());
+        assertEquals(0, audienceService.getAudience("1", 4, 0, 100, true).count());
+    }
+
+    @Test
+    @DisplayName("Аудитория - изменения во время перестройки индекса не теряются")
+    void rebuild_ChangesDuringRebuild_ShouldBeReplayed() {
+        when(subscriptionRepository.streamActiveUserProviderPairs()).thenAnswer(invocation -> {
+            index.onSubscriptionActivated(50L, DISNEY);
+            index.onSubscriptionDeactivated(10L, SPOTIFY);
+            return Stream.<Object[]>of(
+                    new Object[]{10L, NETFLIX},
+                    new Object[]{10L, SPOTIFY},
+                    new Object[]{20L, NETFLIX}
+            );
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(50L), audienceService.getAudience(String.valueOf(DISNEY), null, 0, 100, false).userIds());
+        assertEquals(0, audienceService.getAudience(String.valueOf(SPOTIFY), null, 0, 100, true).count());
+        assertEquals(List.of(10L, 20L), audienceService.getAudience(String.valueOf(NETFLIX), null, 0, 100, false).userIds());
+    }
+
+    @Test
+    @DisplayName("Аудитория - некорректное выражение")
+    void getAudience_InvalidExpression_ShouldThrowException() {
+        assertThrows(ValidationException.class, () -> audienceService.getAudience("1 AND (2", null, 0, 100, false));
+        assertThrows(ValidationException.class, () -> audienceService.getAudience("1 XOR 2", null, 0, 100, false));
+        assertThrows(ValidationException.class, () -> audienceService.getAudience(" ", null, 0, 100, false));
+    }
+}
@@ -0,0 +1,168 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.analytics.AudienceIndexRebuiltEvent;
+import ru.webrise.technicaltask.analytics.ProviderAffinityMatrix;
+import ru.webrise.technicaltask.analytics.ProviderAudienceIndex;
+import ru.webrise.technicaltask.dto.ProviderAffinityDTO;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.ProviderAffinityService;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProviderAffinityServiceTest {
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionProviderRepository subscriptionProviderRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProviderAudienceIndex index;
+    private ProviderAffinityMatrix matrix;
+    private ProviderAffinityService affinityService;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProviderAudienceIndex(
+                subscriptionRepository, new TransactionTemplate(transactionManager), event -> {}, new SimpleMeterRegistry());
+        matrix = new ProviderAffinityMatrix(index);
+        affinityService = new ProviderAffinityService(matrix, index, subscriptionProviderRepository);
+    }
+
+    private void activate(long userId, long providerId) {
+        index.onSubscriptionActivated(userId, providerId);
+    }
+
+    private void deactivate(long userId, long providerId) {
+        index.onSubscriptionDeactivated(userId, providerId);
+    }
+
+    @Test
+    @DisplayName("Совместные подписки - инкрементальное обновление совпадает с перестройкой")
+    void getAffinity_IncrementalUpdates_ShouldMatchRebuild() {
+        when(subscriptionProviderRepository.findAllById(any())).thenReturn(List.of(
+                new SubscriptionProvider(1L, "Netflix", null),
+                new SubscriptionProvider(2L, "Spotify", null)
+        ));
+
+        activate(1L, 1L);
+        activate(1L, 2L);
+        activate(2L, 1L);
+        activate(2L, 2L);
+        activate(3L, 2L);
+        activate(4L, 3L);
+        deactivate(2L, 2L);
+
+        ProviderAffinityDTO incremental = affinityService.getAffinity(1L, 2L);
+        assertEquals(1, incremental.overlap());
+        assertEquals(2, incremental.firstSubscribers());
+        assertEquals(2, incremental.secondSubscribers());
+        assertEquals(1.0 / 3, incremental.jaccard(), 1e-9);
+        assertEquals(1.0 * 4 / (2 * 2), incremental.lift(), 1e-9);
+
+        matrix.onAudienceIndexRebuilt(new AudienceIndexRebuiltEvent(index));
+        assertEquals(incremental, affinityService.getAffinity(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Совместные подписки - параллельные изменения одного пользователя не теряют пересечений")
+    void getOverlap_ConcurrentUpdatesOfSameUser_ShouldMatchRebuild() throws InterruptedException {
+        int providers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(providers);
+        try {
+            for (long userId = 1; userId <= 200; userId++) {
+                long user = userId;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (long providerId = 1; providerId <= providers; providerId++) {
+                    long provider = providerId;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        activate(user, provider);
+                        if (provider % 2 == 0)
+                            deactivate(user, provider);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures)
+                    future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long[][] incremental = new long[providers + 1][providers + 1];
+        for (int first = 1; first <= providers; first++)
+            for (int second = 1; second <= providers; second++)
+                incremental[first][second] = matrix.getOverlap(first, second);
+
+        matrix.onAudienceIndexRebuilt(new AudienceIndexRebuiltEvent(index));
+        for (int first = 1; first <= providers; first++)
+            for (int second = 1; second <= providers; second++)
+                assertEquals(matrix.getOverlap(first, second), incremental[first][second]);
+        assertEquals(200, matrix.getOverlap(1L, 3L));
+        assertEquals(0, matrix.getOverlap(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Совместные подписки - топ пар по пересечению")
+    void getTopAffinities_ShouldOrderByOverlap() {
+        when(subscriptionProviderRepository.findAllById(any())).thenReturn(List.of(
+                new SubscriptionProvider(1L, "Netflix", null),
+                new SubscriptionProvider(2L, "Spotify", null),
+                new SubscriptionProvider(3L, "Disney+", null)
+        ));
+
+        activate(1L, 1L);
+        activate(1L, 2L);
+        activate(1L, 3L);
+        activate(2L, 1L);
+        activate(2L, 3L);
+
+        List<ProviderAffinityDTO> top = affinityService.getTopAffinities(1, "overlap");
+
+        assertEquals(1, top.size());
+        assertEquals(2, top.get(0).overlap());
+        assertEquals("Netflix", top.get(0).firstProviderName());
+        assertEquals("Disney+", top.get(0).secondProviderName());
+    }
+
+    @Test
+    @DisplayName("Совместные подписки - провайдер не найден")
+    void getAffinity_UnknownProvider_ShouldThrowException() {
+        when(subscriptionProviderRepository.findAllById(any()))
+                .thenReturn(List.of(new SubscriptionProvider(1L, "Netflix", null)));
+
+        assertThrows(SubscriptionProviderNotFoundException.class, () -> affinityService.getAffinity(1L, 99L));
+    }
+}
@@ -0,0 +1,194 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.dto.ProviderJobDTO;
+import ru.webrise.technicaltask.dto.ProviderJobOperation;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.ArchivedSubscriptionRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.ProviderJobService;
+import ru.webrise.technicaltask.util.exceptions.ProviderJobNotFoundException;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProviderJobServiceTest {
+
+    private static final long PROVIDER_ID = 3L;
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private ArchivedSubscriptionRepository archivedSubscriptionRepository;
+
+    @Mock
+    private SubscriptionProviderRepository subscriptionProviderRepository;
+
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private ProviderJobService providerJobService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        providerJobService = new ProviderJobService(
+                subscriptionRepository,
+                archivedSubscriptionRepository,
+                subscriptionProviderRepository,
+                subscriptionChangeNotifier,
+                new TransactionTemplate(transactionManager),
+                meterRegistry,
+                queued::add,
+                BATCH_SIZE,
+                Duration.ZERO,
+                10
+        );
+    }
+
+    @Test
+    @DisplayName("Деактивация подписок провайдера - пачки до пустой")
+    void startJob_Deactivate_ShouldRunBatchesUntilEmpty() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(true);
+        when(subscriptionRepository.countBySubscriptionProvider_IdAndActiveTrue(PROVIDER_ID)).thenReturn(3L, 0L);
+        when(subscriptionRepository.deactivateProviderBatch(PROVIDER_ID, BATCH_SIZE))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(5L))
+                .thenReturn(List.of());
+
+        ProviderJobDTO queuedJob = providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DEACTIVATE);
+        assertEquals("queued", queuedJob.status());
+
+        queued.forEach(Runnable::run);
+
+        ProviderJobDTO job = providerJobService.getJob(queuedJob.id());
+        assertEquals("completed", job.status());
+        assertEquals(3, job.total());
+        assertEquals(3, job.processed());
+        assertNotNull(job.finishedAt());
+        verify(subscriptionRepository, times(3)).deactivateProviderBatch(PROVIDER_ID, BATCH_SIZE);
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(5L, PROVIDER_ID);
+        verify(subscriptionChangeNotifier, times(3)).subscriptionDeactivated(anyLong(), eq(PROVIDER_ID));
+        assertEquals(3.0, meterRegistry.get("subscriptions.provider-jobs.processed")
+                .tag("operation", "deactivate").counter().count());
+        assertEquals(0.0, meterRegistry.get("subscriptions.provider-jobs.active").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Деактивация подписок провайдера - заблокированные строки обрабатываются повторной пачкой")
+    void startJob_Deactivate_LockedRows_ShouldRetryUntilNoneRemain() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(true);
+        when(subscriptionRepository.countBySubscriptionProvider_IdAndActiveTrue(PROVIDER_ID)).thenReturn(3L, 1L, 1L, 0L);
+        when(subscriptionRepository.deactivateProviderBatch(PROVIDER_ID, BATCH_SIZE))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of())
+                .thenReturn(List.of())
+                .thenReturn(List.of(5L))
+                .thenReturn(List.of());
+
+        UUID jobId = providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DEACTIVATE).id();
+        queued.forEach(Runnable::run);
+
+        ProviderJobDTO job = providerJobService.getJob(jobId);
+        assertEquals("completed", job.status());
+        assertEquals(3, job.processed());
+        verify(subscriptionRepository, times(5)).deactivateProviderBatch(PROVIDER_ID, BATCH_SIZE);
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(5L, PROVIDER_ID);
+    }
+
+    @Test
+    @DisplayName("Удаление провайдера - подписки, архив, затем сам провайдер")
+    void startJob_Delete_ShouldRemoveProviderAfterSubscriptions() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(true);
+        when(subscriptionRepository.countBySubscriptionProvider_Id(PROVIDER_ID)).thenReturn(2L, 0L);
+        when(archivedSubscriptionRepository.countBySubscriptionProvider_Id(PROVIDER_ID)).thenReturn(1L, 0L);
+        when(subscriptionRepository.deleteProviderBatch(PROVIDER_ID, BATCH_SIZE))
+                .thenReturn(List.of(new Object[]{1L, true}, new Object[]{2L, false}))
+                .thenReturn(List.of());
+        when(archivedSubscriptionRepository.deleteProviderBatch(PROVIDER_ID, BATCH_SIZE)).thenReturn(1, 0);
+
+        UUID jobId = providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DELETE).id();
+        queued.forEach(Runnable::run);
+
+        ProviderJobDTO job = providerJobService.getJob(jobId);
+        assertEquals("completed", job.status());
+        assertEquals(3, job.processed());
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(1L, PROVIDER_ID);
+        verify(subscriptionChangeNotifier, never()).subscriptionDeactivated(2L, PROVIDER_ID);
+
+        InOrder inOrder = inOrder(archivedSubscriptionRepository, subscriptionProviderRepository, subscriptionChangeNotifier);
+        inOrder.verify(archivedSubscriptionRepository, times(2)).deleteProviderBatch(PROVIDER_ID, BATCH_SIZE);
+        inOrder.verify(subscriptionProviderRepository).deleteById(PROVIDER_ID);
+        inOrder.verify(subscriptionChangeNotifier).providerRemoved(PROVIDER_ID);
+    }
+
+    @Test
+    @DisplayName("Задача провайдера - ошибка пачки завершает задачу со статусом failed")
+    void startJob_BatchFails_ShouldMarkJobFailed() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(true);
+        when(subscriptionRepository.countBySubscriptionProvider_IdAndActiveTrue(PROVIDER_ID)).thenReturn(4L);
+        when(subscriptionRepository.deactivateProviderBatch(PROVIDER_ID, BATCH_SIZE))
+                .thenReturn(List.of(1L, 2L))
+                .thenThrow(new IllegalStateException("Connection is closed"));
+
+        UUID jobId = providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DEACTIVATE).id();
+        queued.forEach(Runnable::run);
+
+        ProviderJobDTO job = providerJobService.getJob(jobId);
+        assertEquals("failed", job.status());
+        assertEquals(2, job.processed());
+        assertEquals("Connection is closed", job.error());
+    }
+
+    @Test
+    @DisplayName("Задача провайдера - повторный запуск возвращает выполняющуюся задачу")
+    void startJob_AlreadyRunning_ShouldReturnSameJobOrReject() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(true);
+
+        UUID jobId = providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DEACTIVATE).id();
+
+        assertEquals(jobId, providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DEACTIVATE).id());
+        assertThrows(ValidationException.class,
+                () -> providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DELETE));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    @DisplayName("Задача провайдера - провайдер или задача не найдены")
+    void startJob_NotFound_ShouldThrow() {
+        when(subscriptionProviderRepository.existsById(PROVIDER_ID)).thenReturn(false);
+
+        assertThrows(SubscriptionProviderNotFoundException.class,
+                () -> providerJobService.startJob(PROVIDER_ID, ProviderJobOperation.DELETE));
+        assertThrows(ProviderJobNotFoundException.class, () -> providerJobService.getJob(UUID.randomUUID()));
+        assertTrue(queued.isEmpty());
+    }
+}
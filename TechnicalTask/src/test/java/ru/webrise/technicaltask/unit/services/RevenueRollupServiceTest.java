@@ -0,0 +1,81 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.RevenueRollupRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.RevenueRollupService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevenueRollupServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RevenueRollupService revenueRollupService;
+
+    @BeforeEach
+    void setUp() {
+        revenueRollupService = new RevenueRollupService(
+                subscriptionRepository,
+                revenueRollupRepository,
+                new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry(),
+                BATCH_SIZE,
+                10
+        );
+    }
+
+    @Test
+    @DisplayName("Агрегаты выручки - текущие агрегаты обновляются один раз после всех пачек")
+    void refreshRollups_ShouldRefreshCurrentRollupsOncePerRun() {
+        List<Object> first = List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2));
+        List<Object> second = List.of(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 4));
+        List<Object> third = List.of(LocalDate.of(2024, 1, 5));
+        when(subscriptionRepository.tryAdvisoryXactLock(anyLong())).thenReturn(true);
+        when(revenueRollupRepository.claimDirtyDays(BATCH_SIZE)).thenReturn(first).thenReturn(second).thenReturn(third);
+
+        assertEquals(5, revenueRollupService.refreshRollups());
+
+        InOrder inOrder = inOrder(revenueRollupRepository);
+        inOrder.verify(revenueRollupRepository).insertDailyRollups(first);
+        inOrder.verify(revenueRollupRepository).insertDailyRollups(second);
+        inOrder.verify(revenueRollupRepository).insertDailyRollups(third);
+        inOrder.verify(revenueRollupRepository).refreshCurrentRollups();
+        verify(revenueRollupRepository, times(1)).refreshCurrentRollups();
+    }
+
+    @Test
+    @DisplayName("Агрегаты выручки - без затронутых дней текущие агрегаты не пересчитываются")
+    void refreshRollups_NoDirtyDays_ShouldSkipCurrentRollups() {
+        when(subscriptionRepository.tryAdvisoryXactLock(anyLong())).thenReturn(true);
+        when(revenueRollupRepository.claimDirtyDays(BATCH_SIZE)).thenReturn(List.of());
+
+        assertEquals(0, revenueRollupService.refreshRollups());
+
+        verify(revenueRollupRepository, never()).refreshCurrentRollups();
+    }
+}
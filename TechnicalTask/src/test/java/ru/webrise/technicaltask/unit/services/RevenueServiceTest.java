@@ -0,0 +1,79 @@
+package ru.webrise.technicaltask.unit.services;
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.webrise.technicaltask.dto.DailyRevenueDTO;
+import ru.webrise.technicaltask.dto.RevenueDTO;
+import ru.webrise.technicaltask.repositories.RevenueRollupRepository;
+import ru.webrise.technicaltask.services.RevenueService;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionProviderNotFoundException;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RevenueServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 3);
+
+    @Mock
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @InjectMocks
+    private RevenueService revenueService;
+
+    @Test
+    @DisplayName("Отчет по выручке - MRR по провайдерам и накопленный дневной ряд")
+    void getRevenue_ShouldSumProvidersAndAccumulateSeries() {
+        when(revenueRollupRepository.findProviderRevenue(null)).thenReturn(List.of(
+                new Object[]{1L, "Netflix", new BigDecimal("9.99"), 2L, null},
+                new Object[]{2L, "Spotify", new BigDecimal("4.99"), 1L, null}
+        ));
+        when(revenueRollupRepository.findDailyRevenueDeltas(TO, null)).thenReturn(List.of(
+                new Object[]{Date.valueOf("2024-02-10"), 2L, 0L, new BigDecimal("19.98")},
+                new Object[]{Date.valueOf("2024-03-02"), 1L, 1L, new BigDecimal("-5.00")}
+        ));
+
+        RevenueDTO revenue = revenueService.getRevenue(FROM, TO, null);
+
+        assertEquals(new BigDecimal("24.97"), revenue.totalMrr());
+        assertEquals(3, revenue.activeSubscriptions());
+        assertEquals(2, revenue.providers().size());
+
+        List<DailyRevenueDTO> daily = revenue.daily();
+        assertEquals(3, daily.size());
+        assertEquals(new DailyRevenueDTO(FROM, 0, 0, 2, new BigDecimal("19.98")), daily.get(0));
+        assertEquals(new DailyRevenueDTO(FROM.plusDays(1), 1, 1, 2, new BigDecimal("14.98")), daily.get(1));
+        assertEquals(new DailyRevenueDTO(TO, 0, 0, 2, new BigDecimal("14.98")), daily.get(2));
+    }
+
+    @Test
+    @DisplayName("Отчет по выручке - провайдер не найден")
+    void getRevenue_ProviderNotFound_ShouldThrowException() {
+        when(revenueRollupRepository.findProviderRevenue(99L)).thenReturn(List.of());
+
+        assertThrows(SubscriptionProviderNotFoundException.class,
+                () -> revenueService.getRevenue(FROM, TO, 99L));
+    }
+
+    @Test
+    @DisplayName("Отчет по выручке - некорректный период")
+    void getRevenue_InvalidPeriod_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> revenueService.getRevenue(TO, FROM, null));
+        assertThrows(ValidationException.class, () -> revenueService.getRevenue(FROM, FROM.plusYears(2), null));
+        verifyNoInteractions(revenueRollupRepository);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.webrise.technicaltask.unit.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.webrise.technicaltask.dto.SubscriptionBatchResultDTO;
+import ru.webrise.technicaltask.dto.SubscriptionDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationDTO;
+import ru.webrise.technicaltask.dto.SubscriptionOperationType;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.SubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.services.SubscriptionBatchService;
+import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionBatchServiceTest {
+
+    private static final long USER_ID = 1L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionProviderRepository subscriptionProviderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    @InjectMocks
+    private SubscriptionBatchService subscriptionBatchService;
+
+    @Test
+    @DisplayName("Пакет операций - смена провайдеров одним запросом")
+    void applyBatch_PlanMigration_ShouldWriteThreeJdbcBatches() {
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+        when(subscriptionRepository.lockSubscriptionStatesByUserId(USER_ID)).thenReturn(List.of(
+                new Object[]{10L, 2L, true},
+                new Object[]{11L, 3L, true}
+        ));
+        when(subscriptionProviderRepository.findExistingIds(Set.of(2L, 4L))).thenReturn(Set.of(2L, 4L));
+        when(subscriptionRepository.insertSubscriptions(eq(USER_ID), anyList())).thenReturn(List.of(20L));
+
+        SubscriptionBatchResultDTO result = subscriptionBatchService.applyBatch(USER_ID, List.of(
+                new SubscriptionOperationDTO(SubscriptionOperationType.DELETE, 11L, null),
+                new SubscriptionOperationDTO(SubscriptionOperationType.UPDATE, 10L, subscription(2L, false)),
+                new SubscriptionOperationDTO(SubscriptionOperationType.CREATE, null, subscription(4L, true))
+        ));
+
+        assertTrue(result.applied());
+        assertEquals(List.of("deleted", "updated", "created"), result.results().stream().map(r -> r.status()).toList());
+        assertEquals(20L, result.results().get(2).subscriptionId());
+
+        verify(subscriptionRepository).deleteSubscriptions(USER_ID, List.of(11L));
+        verify(subscriptionRepository).updateSubscriptions(USER_ID, List.of(new SubscriptionRow(10L, 2L, START, null, false)));
+        verify(subscriptionRepository).insertSubscriptions(USER_ID, List.of(new SubscriptionRow(null, 4L, START, null, true)));
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(USER_ID, 3L);
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(USER_ID, 2L);
+        verify(subscriptionChangeNotifier).subscriptionCreated(USER_ID, 4L);
+        verify(subscriptionChangeNotifier).subscriptionActivated(USER_ID, 4L);
+    }
+
+    @Test
+    @DisplayName("Пакет операций - ошибка в одной операции отменяет весь пакет")
+    void applyBatch_InvalidOperation_ShouldNotWriteAnything() {
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+        when(subscriptionRepository.lockSubscriptionStatesByUserId(USER_ID)).thenReturn(List.<Object[]>of(new Object[]{10L, 2L, true}));
+        when(subscriptionProviderRepository.findExistingIds(Set.of(2L, 5L))).thenReturn(Set.of(2L));
+
+        SubscriptionBatchResultDTO result = subscriptionBatchService.applyBatch(USER_ID, List.of(
+                new SubscriptionOperationDTO(SubscriptionOperationType.DELETE, 10L, null),
+                new SubscriptionOperationDTO(SubscriptionOperationType.CREATE, null, subscription(2L, true)),
+                new SubscriptionOperationDTO(SubscriptionOperationType.CREATE, null, subscription(5L, true)),
+                new SubscriptionOperationDTO(SubscriptionOperationType.UPDATE, 99L, subscription(2L, true))
+        ));
+
+        assertFalse(result.applied());
+        assertEquals(List.of("not_applied", "not_applied", "failed", "failed"),
+                result.results().stream().map(r -> r.status()).toList());
+        assertEquals("SubscriptionProvider with that id was not found", result.results().get(2).message());
+        assertEquals("No subscriptions was found for this user", result.results().get(3).message());
+        verify(subscriptionRepository, never()).deleteSubscriptions(anyLong(), anyList());
+        verify(subscriptionRepository, never()).insertSubscriptions(anyLong(), anyList());
+        verifyNoInteractions(subscriptionChangeNotifier);
+    }
+
+    @Test
+    @DisplayName("Пакет операций - второй экземпляр подписки на провайдера отклоняется")
+    void applyBatch_DuplicateProvider_ShouldFail() {
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+        when(subscriptionRepository.lockSubscriptionStatesByUserId(USER_ID)).thenReturn(List.of());
+        when(subscriptionProviderRepository.findExistingIds(Set.of(2L))).thenReturn(Set.of(2L));
+
+        SubscriptionBatchResultDTO result = subscriptionBatchService.applyBatch(USER_ID, List.of(
+                new SubscriptionOperationDTO(SubscriptionOperationType.CREATE, null, subscription(2L, true)),
+                new SubscriptionOperationDTO(SubscriptionOperationType.CREATE, null, subscription(2L, true))
+        ));
+
+        assertFalse(result.applied());
+        assertEquals("This subscription already exists", result.results().get(1).message());
+    }
+
+    @Test
+    @DisplayName("Пакет операций - пользователь не найден")
+    void applyBatch_UserNotFound_ShouldThrow() {
+        when(userRepository.existsById(USER_ID)).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () -> subscriptionBatchService.applyBatch(USER_ID, List.of(
+                new SubscriptionOperationDTO(SubscriptionOperationType.DELETE, 10L, null))));
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    private static SubscriptionDTO subscription(long providerId, boolean active) {
+        return new SubscriptionDTO(START, null, active, new SubscriptionProvider(providerId, null, null));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.SubscriptionExpiryService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionExpiryServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SubscriptionExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        expiryService = new SubscriptionExpiryService(
+                subscriptionRepository,
+                subscriptionChangeNotifier,
+                new TransactionTemplate(transactionManager),
+                meterRegistry,
+                BATCH_SIZE,
+                10
+        );
+    }
+
+    @Test
+    @DisplayName("Деактивация истекших подписок - пачки до неполной")
+    void expireSubscriptions_ShouldRunBatchesUntilPartialBatch() {
+        when(subscriptionRepository.tryAdvisoryXactLock(anyLong())).thenReturn(true);
+        when(subscriptionRepository.expireBatch(BATCH_SIZE))
+                .thenReturn(List.of(new Object[]{1L, 1L}, new Object[]{2L, 1L}))
+                .thenReturn(List.of(new Object[]{3L, 2L}, new Object[]{4L, 2L}))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, 3L}));
+        when(subscriptionRepository.countExpiredBacklog()).thenReturn(0L);
+
+        int expired = expiryService.expireSubscriptions();
+
+        assertEquals(5, expired);
+        verify(subscriptionRepository, times(3)).expireBatch(BATCH_SIZE);
+        assertEquals(5.0, meterRegistry.get("subscriptions.expiry.expired").counter().count());
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(5L, 3L);
+        verify(subscriptionChangeNotifier, times(5)).subscriptionDeactivated(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Деактивация истекших подписок - блокировка занята другим узлом")
+    void expireSubscriptions_LockHeldByAnotherNode_ShouldSkipRun() {
+        when(subscriptionRepository.tryAdvisoryXactLock(anyLong())).thenReturn(false);
+        when(subscriptionRepository.countExpiredBacklog()).thenReturn(7L);
+
+        int expired = expiryService.expireSubscriptions();
+
+        assertEquals(0, expired);
+        verify(subscriptionRepository, never()).expireBatch(anyInt());
+        assertEquals(7.0, meterRegistry.get("subscriptions.expiry.backlog").gauge().value());
+    }
+}
@@ -0,0 +1,124 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.webrise.technicaltask.events.SubscriptionChangeBus;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent.Type;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Entry;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Position;
+import ru.webrise.technicaltask.services.SubscriptionOutboxRelayService;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionOutboxRelayServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final String NODE_ID = "node-a";
+    private static final Position START = new Position(100L, 0L);
+
+    @Mock
+    private SubscriptionChangeOutboxRepository outboxRepository;
+
+    @Mock
+    private SubscriptionChangeBus subscriptionChangeBus;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SubscriptionOutboxRelayService relayService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relayService = new SubscriptionOutboxRelayService(
+                outboxRepository,
+                subscriptionChangeBus,
+                meterRegistry,
+                NODE_ID,
+                BATCH_SIZE,
+                10,
+                Duration.ZERO
+        );
+    }
+
+    @Test
+    @DisplayName("Ретрансляция outbox - узел читает пачки со своей позиции и сохраняет ее")
+    void relayEvents_ShouldReadBatchesAfterOwnPosition() throws InterruptedException {
+        Entry created = entry(101L, 7L, Type.SUBSCRIPTION_CREATED);
+        Entry activated = entry(101L, 8L, Type.SUBSCRIPTION_ACTIVATED);
+        Entry deleted = entry(103L, 6L, Type.USER_DELETED);
+        when(outboxRepository.registerConsumer(NODE_ID)).thenReturn(START);
+        when(subscriptionChangeBus.remainingCapacity()).thenReturn(100);
+        when(outboxRepository.readBatch(START, BATCH_SIZE)).thenReturn(List.of(created, activated));
+        when(outboxRepository.readBatch(activated.position(), BATCH_SIZE)).thenReturn(List.of(deleted));
+
+        int relayed = relayService.relayEvents();
+
+        assertEquals(3, relayed);
+        verify(subscriptionChangeBus).publish(List.of(created.event(), activated.event()));
+        verify(subscriptionChangeBus).publish(List.of(deleted.event()));
+        verify(outboxRepository).savePosition(NODE_ID, deleted.position());
+        assertEquals(3.0, meterRegistry.get("events.outbox.relayed").counter().count());
+
+        relayService.relayEvents();
+
+        verify(outboxRepository, times(1)).registerConsumer(NODE_ID);
+        verify(outboxRepository).readBatch(deleted.position(), BATCH_SIZE);
+    }
+
+    @Test
+    @DisplayName("Ретрансляция outbox - заполненная шина оставляет события в таблице")
+    void relayEvents_BusFull_ShouldNotReadOutbox() throws InterruptedException {
+        when(outboxRepository.registerConsumer(NODE_ID)).thenReturn(START);
+        when(subscriptionChangeBus.remainingCapacity()).thenReturn(1);
+        when(outboxRepository.countBacklog(START)).thenReturn(42L);
+
+        int relayed = relayService.relayEvents();
+
+        assertEquals(0, relayed);
+        verify(outboxRepository, never()).readBatch(any(), anyInt());
+        verify(subscriptionChangeBus, never()).publish(anyList());
+        assertEquals(1.0, meterRegistry.get("events.outbox.backpressure").counter().count());
+        assertEquals(42.0, meterRegistry.get("events.outbox.backlog").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Ретрансляция outbox - неопубликованная пачка читается повторно")
+    void relayEvents_PublishInterrupted_ShouldNotAdvancePosition() throws InterruptedException {
+        Entry created = entry(101L, 7L, Type.SUBSCRIPTION_CREATED);
+        when(outboxRepository.registerConsumer(NODE_ID)).thenReturn(START);
+        when(subscriptionChangeBus.remainingCapacity()).thenReturn(100);
+        when(outboxRepository.readBatch(START, BATCH_SIZE)).thenReturn(List.of(created));
+        doThrow(new InterruptedException()).doNothing().when(subscriptionChangeBus).publish(anyList());
+
+        try {
+            assertEquals(0, relayService.relayEvents());
+            assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        verify(outboxRepository).savePosition(NODE_ID, START);
+
+        assertEquals(1, relayService.relayEvents());
+        verify(outboxRepository, times(2)).readBatch(START, BATCH_SIZE);
+        verify(outboxRepository).savePosition(NODE_ID, created.position());
+    }
+
+    private static Entry entry(long txId, long id, Type type) {
+        return new Entry(new Position(txId, id), new SubscriptionChangeEvent(type, id, 2L));
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
 import ru.webrise.technicaltask.dto.SubscriptionProviderDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
 import ru.webrise.technicaltask.services.SubscriptionProviderService;
@@ -27,6 +28,9 @@ class SubscriptionProviderServiceTest {
     @Mock
     private SubscriptionProviderRepository subscriptionProviderRepository;
 
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
     @Mock
     private ModelMapper modelMapper;
 
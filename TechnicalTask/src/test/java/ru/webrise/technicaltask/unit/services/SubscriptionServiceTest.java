@@ -5,18 +5,25 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.webrise.technicaltask.dto.SubscriptionDTO;
 import ru.webrise.technicaltask.dto.SubscriptionStats;
 import ru.webrise.technicaltask.dto.UserSubscriptionsDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.Subscription;
 import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.models.User;
+import ru.webrise.technicaltask.repositories.ArchivedSubscriptionRepository;
 import ru.webrise.technicaltask.repositories.SubscriptionRepository;
 import ru.webrise.technicaltask.services.SubscriptionProviderService;
 import ru.webrise.technicaltask.services.SubscriptionService;
+import ru.webrise.technicaltask.services.SubscriptionUpdateGroupCommitter;
 import ru.webrise.technicaltask.services.UserService;
 import ru.webrise.technicaltask.util.exceptions.NonUniqueUserAndSubscriptionProvider;
 
@@ -34,12 +41,24 @@ class SubscriptionServiceTest {
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    private ArchivedSubscriptionRepository archivedSubscriptionRepository;
+
     @Mock
     private UserService userService;
 
     @Mock
     private SubscriptionProviderService subscriptionProviderService;
 
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    @Mock
+    private ObjectProvider<SubscriptionUpdateGroupCommitter> groupCommitter;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @Mock
     private ModelMapper modelMapper;
 
@@ -75,6 +94,7 @@ class SubscriptionServiceTest {
 
         assertEquals(subscriptionId, result);
         verify(subscriptionRepository).save(mockSubscription);
+        verify(subscriptionChangeNotifier).subscriptionActivated(userId, providerId);
     }
 
     @Test
@@ -117,6 +137,20 @@ class SubscriptionServiceTest {
         verify(subscriptionRepository).save(existingSubscription);
     }
 
+    @Test
+    @DisplayName("Обновление подписки - групповая фиксация")
+    void updateSubscription_GroupCommitEnabled_ShouldDelegateToCommitter() {
+        SubscriptionUpdateGroupCommitter committer = mock(SubscriptionUpdateGroupCommitter.class);
+        SubscriptionDTO subscriptionDTO = new SubscriptionDTO();
+        when(groupCommitter.getIfAvailable()).thenReturn(committer);
+        when(committer.update(1L, 2L, subscriptionDTO)).thenReturn(true);
+
+        subscriptionService.updateSubscription(1L, 2L, subscriptionDTO);
+
+        verifyNoInteractions(subscriptionRepository, userService);
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
     @Test
     @DisplayName("Удаление подписки - успешный сценарий")
     void deleteSubscription_ShouldDeleteSuccessfully() {
@@ -151,6 +185,40 @@ class SubscriptionServiceTest {
         assertEquals(1L, result.get(0).subscriptionProvider().getId());
     }
 
+    @Test
+    @DisplayName("Получение подписок пользователя вместе с архивом")
+    void getSubscriptionByUserId_IncludeArchived_ShouldMergeArchive() {
+        long userId = 1L;
+        UserSubscriptionsDTO hot = new UserSubscriptionsDTO(1L, LocalDateTime.now(), null, true, userId, SubscriptionProvider.builder().id(1L).build());
+        UserSubscriptionsDTO archived = new UserSubscriptionsDTO(2L, LocalDateTime.now(), LocalDateTime.now(), false, userId, SubscriptionProvider.builder().id(2L).build());
+
+        when(subscriptionRepository.findAllByUserId(userId)).thenReturn(List.of(hot));
+        when(archivedSubscriptionRepository.findByUserId(userId)).thenReturn(List.of(archived));
+
+        List<UserSubscriptionsDTO> result = subscriptionService.getSubscriptionByUserId(userId, true);
+
+        assertEquals(List.of(hot, archived), result);
+        verify(subscriptionRepository, never()).findByUserId(userId);
+    }
+
+    @Test
+    @DisplayName("Получение подписок пользователя вместе с архивом - история упорядочена по дате начала")
+    void getSubscriptionByUserId_IncludeArchived_ShouldOrderByStartDate() {
+        long userId = 1L;
+        SubscriptionProvider provider = SubscriptionProvider.builder().id(1L).build();
+        UserSubscriptionsDTO recent = new UserSubscriptionsDTO(5L, LocalDateTime.of(2025, 3, 1, 0, 0), null, true, userId, provider);
+        UserSubscriptionsDTO inactive = new UserSubscriptionsDTO(4L, LocalDateTime.of(2024, 6, 1, 0, 0), null, false, userId, provider);
+        UserSubscriptionsDTO oldest = new UserSubscriptionsDTO(1L, LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 2, 1, 0, 0), false, userId, provider);
+        UserSubscriptionsDTO archived = new UserSubscriptionsDTO(2L, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0), false, userId, provider);
+
+        when(subscriptionRepository.findAllByUserId(userId)).thenReturn(List.of(inactive, recent));
+        when(archivedSubscriptionRepository.findByUserId(userId)).thenReturn(List.of(oldest, archived));
+
+        List<UserSubscriptionsDTO> result = subscriptionService.getSubscriptionByUserId(userId, true);
+
+        assertEquals(List.of(oldest, archived, inactive, recent), result);
+    }
+
     @Test
     @DisplayName("Получение топ подписок - успешный сценарий")
     void getTopSubscriptions_ShouldReturnTopSubscriptions() {
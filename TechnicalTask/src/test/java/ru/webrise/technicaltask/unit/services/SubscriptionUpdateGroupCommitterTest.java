@@ -0,0 +1,142 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.dto.SubscriptionDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.SubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionBatchRepository.UserSubscriptionRow;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.services.SubscriptionUpdateGroupCommitter;
+import ru.webrise.technicaltask.services.SubscriptionUpdateGroupCommitter.PendingUpdate;
+import ru.webrise.technicaltask.util.exceptions.SubscriptionNotFoundException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionUpdateGroupCommitterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionProviderRepository subscriptionProviderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SubscriptionUpdateGroupCommitter committer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        committer = new SubscriptionUpdateGroupCommitter(
+                subscriptionRepository,
+                subscriptionProviderRepository,
+                userRepository,
+                subscriptionChangeNotifier,
+                new TransactionTemplate(transactionManager),
+                meterRegistry,
+                100,
+                Duration.ofMillis(5),
+                100,
+                Duration.ofMillis(50)
+        );
+    }
+
+    @Test
+    @DisplayName("Групповая фиксация - обновления разных пользователей одним UPDATE")
+    void flush_ShouldWriteValidUpdatesInOneStatement() {
+        PendingUpdate deactivate = new PendingUpdate(1L, 10L, subscription(2L, false));
+        PendingUpdate missing = new PendingUpdate(1L, 99L, subscription(2L, true));
+        PendingUpdate activate = new PendingUpdate(5L, 50L, subscription(3L, true));
+        when(subscriptionRepository.lockSubscriptionStatesByIds(Set.of(10L, 99L, 50L))).thenReturn(List.of(
+                new Object[]{10L, 1L, 2L, true},
+                new Object[]{50L, 5L, 3L, false}
+        ));
+        when(subscriptionProviderRepository.findExistingIds(Set.of(2L, 3L))).thenReturn(Set.of(2L, 3L));
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        committer.flush(List.of(deactivate, missing, activate));
+
+        verify(subscriptionRepository).updateSubscriptionsOfUsers(List.of(
+                new UserSubscriptionRow(1L, new SubscriptionRow(10L, 2L, START, null, false)),
+                new UserSubscriptionRow(5L, new SubscriptionRow(50L, 3L, START, null, true))
+        ));
+        assertTrue(deactivate.result().isDone() && !deactivate.result().isCompletedExceptionally());
+        assertTrue(activate.result().isDone() && !activate.result().isCompletedExceptionally());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> missing.result().get());
+        assertInstanceOf(SubscriptionNotFoundException.class, failure.getCause());
+        verify(subscriptionChangeNotifier).subscriptionDeactivated(1L, 2L);
+        verify(subscriptionChangeNotifier).subscriptionActivated(5L, 3L);
+        assertEquals(2.0, meterRegistry.get("subscriptions.update.group-commit.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Групповая фиксация - ошибка пачки повторяется по одному обновлению")
+    void flush_BatchFails_ShouldRetryEachUpdateSeparately() {
+        PendingUpdate first = new PendingUpdate(1L, 10L, subscription(2L, true));
+        PendingUpdate conflicting = new PendingUpdate(1L, 11L, subscription(2L, true));
+        when(subscriptionRepository.lockSubscriptionStatesByIds(anyCollection())).thenReturn(List.of(
+                new Object[]{10L, 1L, 2L, true},
+                new Object[]{11L, 1L, 3L, true}
+        ));
+        when(subscriptionProviderRepository.findExistingIds(anyCollection())).thenReturn(Set.of(2L));
+        DataIntegrityViolationException conflict = new DataIntegrityViolationException("uk_subscriptions_user_service");
+        when(subscriptionRepository.updateSubscriptionsOfUsers(anyList()))
+                .thenThrow(conflict)
+                .thenReturn(1)
+                .thenThrow(conflict);
+
+        committer.flush(List.of(first, conflicting));
+
+        verify(subscriptionRepository, times(3)).updateSubscriptionsOfUsers(anyList());
+        assertFalse(first.result().isCompletedExceptionally());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> conflicting.result().get());
+        assertSame(conflict, failure.getCause());
+        assertEquals(1.0, meterRegistry.get("subscriptions.update.group-commit.retried").counter().count());
+    }
+
+    @Test
+    @DisplayName("Групповая фиксация - обновление, не дождавшееся пачки, выполняется обычной транзакцией")
+    void update_NotFlushedInTime_ShouldFallBackToRegularTransaction() {
+        assertFalse(committer.update(1L, 10L, subscription(2L, true)));
+
+        assertEquals(1.0, meterRegistry.get("subscriptions.update.group-commit.rejected").counter().count());
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    private static SubscriptionDTO subscription(long providerId, boolean active) {
+        return new SubscriptionDTO(START, null, active, new SubscriptionProvider(providerId, null, null));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.services.SubscriptionService;
+import ru.webrise.technicaltask.services.TopSubscriptionsStreamService;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopSubscriptionsStreamServiceTest {
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TopSubscriptionsStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        streamService = new TopSubscriptionsStreamService(
+                subscriptionService, meterRegistry, Duration.ofMinutes(1), Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("Поток топа подписок - одно вычисление на всех подписчиков")
+    void publish_ShouldShareComputationBetweenSubscribers() {
+        when(subscriptionService.getTopSubscriptions(anyInt()))
+                .thenReturn(List.of(new SubscriptionStats("Netflix", 2L), new SubscriptionStats("Spotify", 1L)));
+
+        streamService.subscribe(2);
+        streamService.subscribe(1);
+        streamService.subscribe(2);
+        streamService.onSubscriptionDeactivated(1L, 1L);
+        streamService.publish();
+
+        verify(subscriptionService, times(2)).getTopSubscriptions(2);
+        verify(subscriptionService, times(2)).getTopSubscriptions(anyInt());
+        assertEquals(3.0, meterRegistry.get("subscriptions.top.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Поток топа подписок - без изменений пересчет не выполняется")
+    void publish_WithoutChanges_ShouldNotRecompute() {
+        when(subscriptionService.getTopSubscriptions(3)).thenReturn(List.of(new SubscriptionStats("Netflix", 2L)));
+
+        streamService.subscribe(3);
+        streamService.publish();
+        streamService.publish();
+        verify(subscriptionService, times(1)).getTopSubscriptions(3);
+
+        streamService.onSubscriptionActivated(1L, 1L);
+        streamService.publish();
+        verify(subscriptionService, times(2)).getTopSubscriptions(3);
+    }
+
+    @Test
+    @DisplayName("Поток топа подписок - без подписчиков пересчет не выполняется")
+    void publish_WithoutSubscribers_ShouldSkip() {
+        streamService.publish();
+
+        verifyNoInteractions(subscriptionService);
+    }
+}
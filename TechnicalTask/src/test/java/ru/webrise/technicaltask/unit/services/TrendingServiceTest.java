@@ -0,0 +1,117 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.analytics.TrendingCounters;
+import ru.webrise.technicaltask.dto.SubscriptionStats;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent;
+import ru.webrise.technicaltask.events.SubscriptionChangeEvent.Type;
+import ru.webrise.technicaltask.models.SubscriptionProvider;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionChangeOutboxRepository.Snapshot;
+import ru.webrise.technicaltask.repositories.SubscriptionProviderRepository;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.services.TrendingService;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingServiceTest {
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionProviderRepository subscriptionProviderRepository;
+
+    @Mock
+    private SubscriptionChangeOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TrendingCounters counters;
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setUp() {
+        counters = new TrendingCounters(
+                subscriptionRepository, outboxRepository, new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        trendingService = new TrendingService(counters, subscriptionProviderRepository);
+    }
+
+    private void record(long providerId, long minutesAgo, int times) {
+        for (int i = 0; i < times; i++)
+            counters.increment(providerId, TrendingCounters.currentMinute() - minutesAgo);
+    }
+
+    @Test
+    @DisplayName("Счетчики трендов - события транзакций из снимка заполнения не учитываются повторно")
+    void onChange_ShouldSkipEventsVisibleInSeedSnapshot() {
+        when(outboxRepository.currentSnapshot()).thenReturn(Snapshot.parse("100:105:102"));
+
+        counters.onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 1L, 99L));
+        counters.onApplicationReady();
+        counters.onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 1L, 103L));
+        counters.onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 1L, 102L));
+        counters.onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 1L, 105L));
+        counters.onChange(new SubscriptionChangeEvent(Type.SUBSCRIPTION_CREATED, 1L, 1L));
+
+        assertEquals(List.of(new TrendingCounters.ProviderCount(1L, 3L)),
+                counters.getTop(60, TrendingCounters.currentMinute(), 10));
+    }
+
+    @Test
+    @DisplayName("Трендовые подписки - учитываются только подписки внутри окна")
+    void getTrendingSubscriptions_ShouldCountOnlyWindow() {
+        record(1L, 5, 2);
+        record(2L, 30, 3);
+        record(2L, 2 * 60, 10);
+        when(subscriptionProviderRepository.findAllById(any())).thenReturn(List.of(
+                new SubscriptionProvider(1L, "Netflix", BigDecimal.ONE),
+                new SubscriptionProvider(2L, "Spotify", BigDecimal.ONE)
+        ));
+
+        List<SubscriptionStats> lastHour = trendingService.getTrendingSubscriptions("1h", "new", 10);
+        List<SubscriptionStats> lastDay = trendingService.getTrendingSubscriptions("24h", "new", 1);
+
+        assertEquals(List.of(new SubscriptionStats("Spotify", 3L), new SubscriptionStats("Netflix", 2L)), lastHour);
+        assertEquals(List.of(new SubscriptionStats("Spotify", 13L)), lastDay);
+        verify(subscriptionProviderRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Трендовые подписки - ячейка кольца переиспользуется для новой минуты")
+    void increment_ShouldResetSlotAfterWindow() {
+        long now = TrendingCounters.currentMinute();
+        counters.increment(1L, now - TrendingCounters.MAX_WINDOW_MINUTES);
+        counters.increment(1L, now);
+        counters.increment(1L, now - TrendingCounters.MAX_WINDOW_MINUTES);
+
+        assertEquals(List.of(new TrendingCounters.ProviderCount(1L, 1L)),
+                counters.getTop(TrendingCounters.MAX_WINDOW_MINUTES, now, 10));
+    }
+
+    @Test
+    @DisplayName("Трендовые подписки - некорректное окно")
+    void getTrendingSubscriptions_InvalidWindow_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> trendingService.getTrendingSubscriptions("2h", "new", 3));
+        assertThrows(ValidationException.class, () -> trendingService.getTrendingSubscriptions("1h", "total", 3));
+    }
+}
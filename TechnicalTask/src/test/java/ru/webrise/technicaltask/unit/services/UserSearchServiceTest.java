@@ -0,0 +1,134 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.analytics.UserPrefixIndex;
+import ru.webrise.technicaltask.dto.UserSearchDTO;
+import ru.webrise.technicaltask.dto.UserSearchResultDTO;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.repositories.UserSearchRepository;
+import ru.webrise.technicaltask.services.UserSearchService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserSearchRepository userSearchRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserPrefixIndex userPrefixIndex;
+    private UserSearchService userSearchService;
+
+    @BeforeEach
+    void setUp() {
+        userPrefixIndex = new UserPrefixIndex(
+                userRepository, new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), true);
+        userSearchService = new UserSearchService(userSearchRepository, userPrefixIndex);
+    }
+
+    @Test
+    @DisplayName("Поиск по префиксу - страницы по курсору, пользователь с двумя совпадениями выдается один раз")
+    void search_Prefix_ShouldPageThroughIndex() {
+        when(userRepository.streamSearchProjections()).thenReturn(Stream.of(
+                new Object[]{1L, "john_doe", "john@example.com", "John Doe"},
+                new Object[]{2L, "Johanna", "jo@example.com", null},
+                new Object[]{3L, "jane", "jane@example.com", "Jane"},
+                new Object[]{4L, "bob", "JOHNNY@example.com", "Bob"}
+        ));
+        userPrefixIndex.rebuild();
+
+        UserSearchDTO first = userSearchService.search("jo", "prefix", null, 2);
+        UserSearchDTO second = userSearchService.search("jo", "prefix", first.nextCursor(), 2);
+
+        assertEquals(List.of(2L, 1L), first.users().stream().map(UserSearchResultDTO::id).toList());
+        assertEquals(List.of(4L), second.users().stream().map(UserSearchResultDTO::id).toList());
+        assertNull(second.nextCursor());
+        verifyNoInteractions(userSearchRepository);
+    }
+
+    @Test
+    @DisplayName("Поиск по префиксу - индекс обновляется событиями о пользователях")
+    void search_Prefix_ShouldFollowUserEvents() {
+        when(userRepository.streamSearchProjections()).thenReturn(Stream.<Object[]>of(new Object[]{1L, "john", "john@example.com", null}));
+        when(userRepository.findSearchProjection(1L)).thenReturn(List.<Object[]>of(new Object[]{1L, "mike", "mike@example.com", null}));
+        userPrefixIndex.rebuild();
+
+        userPrefixIndex.onUserUpdated(1L);
+
+        assertTrue(userSearchService.search("jo", "prefix", null, 10).users().isEmpty());
+        assertEquals(1, userSearchService.search("MI", "prefix", null, 10).users().size());
+
+        userPrefixIndex.onUserDeleted(1L);
+        assertTrue(userSearchService.search("mi", "prefix", null, 10).users().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Поиск по префиксу - события во время перестройки попадают в новый индекс")
+    void search_Prefix_EventsDuringRebuild_ShouldBeReplayed() {
+        when(userRepository.streamSearchProjections()).thenAnswer(invocation -> {
+            userPrefixIndex.onUserUpdated(1L);
+            userPrefixIndex.onUserCreated(2L);
+            userPrefixIndex.onUserDeleted(3L);
+            return Stream.<Object[]>of(
+                    new Object[]{1L, "john", "john@example.com", null},
+                    new Object[]{3L, "jane", "jane@example.com", null}
+            );
+        });
+        when(userRepository.findSearchProjection(1L)).thenReturn(List.<Object[]>of(new Object[]{1L, "mike", "mike@example.com", null}));
+        when(userRepository.findSearchProjection(2L)).thenReturn(List.<Object[]>of(new Object[]{2L, "joe", "joe@example.com", null}));
+        when(userRepository.findSearchProjection(3L)).thenReturn(List.of());
+
+        userPrefixIndex.rebuild();
+
+        assertEquals(List.of(2L), userSearchService.search("j", "prefix", null, 10).users().stream()
+                .map(UserSearchResultDTO::id).toList());
+        assertEquals(1, userSearchService.search("mi", "prefix", null, 10).users().size());
+    }
+
+    @Test
+    @DisplayName("Поиск по подстроке - курсор передает ключ последней строки")
+    void search_Contains_ShouldUseKeysetCursor() {
+        UserSearchRepository.Key lastKey = new UserSearchRepository.Key(1, new BigDecimal("0.4500"), 7L);
+        when(userSearchRepository.search("doe", null, 1)).thenReturn(List.of(new UserSearchRepository.Match(
+                new UserSearchResultDTO(7L, "john_doe", "john@example.com", "John Doe"), lastKey)));
+        when(userSearchRepository.search("doe", lastKey, 1)).thenReturn(List.of());
+
+        UserSearchDTO first = userSearchService.search(" doe ", "contains", null, 1);
+        UserSearchDTO second = userSearchService.search("doe", "contains", first.nextCursor(), 1);
+
+        assertEquals(7L, first.users().get(0).id());
+        assertNotNull(first.nextCursor());
+        assertTrue(second.users().isEmpty());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Поиск - короткий запрос, неизвестный режим и чужой курсор отклоняются")
+    void search_InvalidInput_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> userSearchService.search("jo", "contains", null, 10));
+        assertThrows(ValidationException.class, () -> userSearchService.search("john", "fuzzy", null, 10));
+        assertThrows(ValidationException.class, () -> userSearchService.search("john", "contains", "not-a-cursor", 10));
+        verify(userSearchRepository, never()).search(anyString(), any(), anyInt());
+    }
+}
@@ -1,28 +1,41 @@
 package ru.webrise.technicaltask.unit.services;
 
+import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.webrise.technicaltask.dto.SubscriptionDTO;
 import ru.webrise.technicaltask.dto.UpdateUserDTO;
 import ru.webrise.technicaltask.dto.UserDTO;
+import ru.webrise.technicaltask.dto.UserResponseDTO;
+import ru.webrise.technicaltask.events.SubscriptionChangeNotifier;
 import ru.webrise.technicaltask.models.Subscription;
 import ru.webrise.technicaltask.models.SubscriptionProvider;
 import ru.webrise.technicaltask.models.User;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
 import ru.webrise.technicaltask.repositories.UserRepository;
 import ru.webrise.technicaltask.services.SubscriptionProviderService;
 import ru.webrise.technicaltask.services.UserService;
+import ru.webrise.technicaltask.util.exceptions.NonUniqueEmailException;
+import ru.webrise.technicaltask.util.exceptions.NonUniqueUsernameException;
 import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+import ru.webrise.technicaltask.util.existence.UserExistenceFilter;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,12 +44,21 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private SubscriptionChangeNotifier subscriptionChangeNotifier;
+
     @Mock
     private SubscriptionProviderService subscriptionProviderService;
 
+    @Mock
+    private UserExistenceFilter userExistenceFilter;
+
     @InjectMocks
     private UserService userService;
 
@@ -107,6 +129,51 @@ class UserServiceTest {
         verify(userRepository).save(existingUser);
     }
 
+    @Test
+    @DisplayName("Создание пользователя с именем, занятым через другой узел - NonUniqueUsernameException")
+    void saveUser_UsernameTakenOnAnotherNode_ShouldThrowNonUniqueUsername() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setUsername("testuser");
+        userDTO.setEmail("test@example.com");
+
+        User user = new User();
+        when(modelMapper.map(userDTO, User.class)).thenReturn(user);
+        when(userRepository.save(user)).thenThrow(uniqueViolation("users_username_key"));
+
+        assertThrows(NonUniqueUsernameException.class, () -> userService.saveUser(userDTO));
+        verify(userExistenceFilter, never()).add(any(), any());
+        verify(subscriptionChangeNotifier, never()).userCreated(anyLong());
+    }
+
+    @Test
+    @DisplayName("Обновление пользователя на email, занятый через другой узел - NonUniqueEmailException")
+    void updateUser_EmailTakenOnAnotherNode_ShouldThrowNonUniqueEmail() {
+        UpdateUserDTO updateDTO = new UpdateUserDTO();
+        updateDTO.setEmail("taken@example.com");
+
+        User existingUser = new User();
+        existingUser.setId(1L);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+        doThrow(uniqueViolation("users_email_key")).when(userRepository).flush();
+
+        assertThrows(NonUniqueEmailException.class, () -> userService.updateUser(1L, updateDTO));
+        verify(userExistenceFilter, never()).add(any(), any());
+    }
+
+    @Test
+    @DisplayName("Нарушение другого ограничения при создании пользователя - исключение пробрасывается")
+    void saveUser_OtherConstraintViolation_ShouldRethrow() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setUsername("testuser");
+
+        User user = new User();
+        when(modelMapper.map(userDTO, User.class)).thenReturn(user);
+        when(userRepository.save(user)).thenThrow(uniqueViolation("users_pkey"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.saveUser(userDTO));
+    }
+
     @Test
     @DisplayName("Удаление существующего пользователя - успех")
     void deleteUser_ExistingUser_ShouldDelete() {
@@ -130,6 +197,23 @@ class UserServiceTest {
         assertEquals(expectedUser, result);
     }
 
+    @Test
+    @DisplayName("Получение профиля пользователя - возвращается DTO, а не сущность")
+    void getUserResponse_ShouldReturnDto() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setSubscriptions(List.of());
+
+        when(userRepository.findByIdAndSubscriptionsActive(1L)).thenReturn(Optional.of(user));
+
+        UserResponseDTO result = userService.getUserResponse(1L);
+
+        assertEquals(1L, result.id());
+        assertEquals("testuser", result.username());
+        assertTrue(result.subscriptions().isEmpty());
+    }
+
     @Test
     @DisplayName("Получение информации о несуществующем пользователе - исключение")
     void getUserInfo_NonExistingUser_ShouldThrowException() {
@@ -137,4 +221,42 @@ class UserServiceTest {
 
         assertThrows(UserNotFoundException.class, () -> userService.getUserInfo(1L));
     }
+
+    @Test
+    @DisplayName("Получение профиля с частичным набором полей - подписки читаются только по запросу")
+    void getUserFields_ShouldSelectOnlyRequestedFields() {
+        Map<String, Object> row = new LinkedHashMap<>(Map.of("id", 1L));
+        row.put("username", "testuser");
+        row.put("subscriptionCount", 2L);
+        when(userRepository.findUserFields(1L, Set.of("id", "username", "subscriptionCount"))).thenReturn(Optional.of(row));
+
+        Map<String, Object> result = userService.getUserFields(1L, "subscriptionCount, username,id");
+
+        assertEquals(List.of("id", "username", "subscriptionCount"), List.copyOf(result.keySet()));
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    @Test
+    @DisplayName("Получение профиля с частичным набором полей - вложенные поля подписок")
+    void getUserFields_WithSubscriptionFields_ShouldLoadSubscriptions() {
+        when(userRepository.findUserFields(1L, Set.of("id"))).thenReturn(Optional.of(new LinkedHashMap<>(Map.of("id", 1L))));
+        when(subscriptionRepository.findSubscriptionFields(1L, false, Set.of("subscriptionProvider.id", "subscriptionProvider.name", "subscriptionProvider.price")))
+                .thenReturn(List.of(Map.of("subscriptionProvider", Map.of("id", 1L, "name", "Netflix"))));
+
+        Map<String, Object> result = userService.getUserFields(1L, "id,subscriptions.subscriptionProvider");
+
+        assertEquals(1, ((List<?>) result.get("subscriptions")).size());
+    }
+
+    @Test
+    @DisplayName("Получение профиля с частичным набором полей - неизвестное поле")
+    void getUserFields_UnknownField_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> userService.getUserFields(1L, "id,password"));
+        verifyNoInteractions(userRepository);
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key value violates unique constraint", null, constraintName));
+    }
 }
@@ -0,0 +1,65 @@
+package ru.webrise.technicaltask.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.services.UserSubscriptionSummaryCheckService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSubscriptionSummaryCheckServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserSubscriptionSummaryCheckService checkService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        checkService = new UserSubscriptionSummaryCheckService(
+                userRepository,
+                new TransactionTemplate(transactionManager),
+                meterRegistry,
+                BATCH_SIZE,
+                10
+        );
+    }
+
+    @Test
+    @DisplayName("Сверка сводки подписок - пачки по id, расхождения исправляются, затем проход начинается сначала")
+    void checkSummaries_ShouldRepairDriftAndWrapAround() {
+        when(userRepository.lockUsersForSummaryCheck(0L, BATCH_SIZE)).thenReturn(List.of(1L, 2L)).thenReturn(List.of(1L, 2L));
+        when(userRepository.lockUsersForSummaryCheck(2L, BATCH_SIZE)).thenReturn(List.of(5L));
+        when(userRepository.lockUsersForSummaryCheck(5L, BATCH_SIZE)).thenReturn(List.of());
+        when(userRepository.repairSubscriptionSummaries(List.of(1L, 2L))).thenReturn(List.of(2L)).thenReturn(List.of());
+        when(userRepository.repairSubscriptionSummaries(List.of(5L))).thenReturn(List.of());
+
+        int repaired = checkService.checkSummaries();
+
+        assertEquals(1, repaired);
+        assertEquals(3.0, meterRegistry.get("users.subscription-summary.checked").counter().count());
+        assertEquals(1.0, meterRegistry.get("users.subscription-summary.drift").counter().count());
+
+        assertEquals(0, checkService.checkSummaries());
+        verify(userRepository, times(2)).lockUsersForSummaryCheck(0L, BATCH_SIZE);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.webrise.technicaltask.unit.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.analytics.ProviderAffinityMatrix;
+import ru.webrise.technicaltask.analytics.ProviderAudienceIndex;
+import ru.webrise.technicaltask.repositories.SubscriptionRepository;
+import ru.webrise.technicaltask.util.snapshot.CacheSnapshotStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Снимок кэшей - индекс восстанавливается без БД и затем сверяется с ней")
+    void restore_ShouldWarmIndexAndReportDrift() throws IOException {
+        Path path = directory.resolve("snapshot.bin");
+        SubscriptionRepository original = repository(pairs(1L, 10L, 2L, 10L, 3L, 20L));
+        ProviderAudienceIndex writer = index(original);
+        writer.rebuild();
+        store(writer, new SimpleMeterRegistry(), path, Duration.ofHours(1)).write();
+
+        SubscriptionRepository current = repository(pairs(1L, 10L, 3L, 20L, 4L, 20L));
+        ProviderAudienceIndex restored = index(current);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CacheSnapshotStore store = store(restored, meterRegistry, path, Duration.ofHours(1));
+
+        assertEquals(List.of("provider-audience"), store.restore());
+        restored.onApplicationReady();
+        assertEquals(2, restored.getSubscriberCount(10L));
+        assertEquals(1, restored.getSubscriberCount(20L));
+        verify(current, never()).streamActiveUserProviderPairs();
+        assertTrue(meterRegistry.get("caches.snapshot.age").gauge().value() < 60);
+
+        store.reconcileRestored();
+
+        assertEquals(1, restored.getSubscriberCount(10L));
+        assertEquals(2, restored.getSubscriberCount(20L));
+        assertEquals(2.0, meterRegistry.get("caches.snapshot.drift").tag("section", "provider-audience").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Снимок кэшей - матрица совместных подписок строится из восстановленного индекса")
+    void restore_ShouldPopulateAffinityMatrix() throws IOException {
+        Path path = directory.resolve("snapshot.bin");
+        ProviderAudienceIndex writer = index(repository(pairs(1L, 10L, 1L, 20L, 2L, 10L, 2L, 20L, 3L, 20L)));
+        writer.rebuild();
+        store(writer, new SimpleMeterRegistry(), path, Duration.ofHours(1)).write();
+
+        CountDownLatch reconcileAllowed = new CountDownLatch(1);
+        SubscriptionRepository current = mock(SubscriptionRepository.class);
+        when(current.streamActiveUserProviderPairs()).thenAnswer(invocation -> {
+            reconcileAllowed.await();
+            return Stream.of(pairs(1L, 10L, 1L, 20L, 2L, 10L, 2L, 20L, 3L, 20L));
+        });
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(ProviderAudienceIndex.class, () -> index(current, context));
+            context.registerBean(ProviderAffinityMatrix.class);
+            context.registerBean(CacheSnapshotStore.class, () -> new CacheSnapshotStore(
+                    List.of(context.getBean(ProviderAudienceIndex.class)), new SimpleMeterRegistry(),
+                    true, path, Duration.ofHours(1)));
+            context.refresh();
+            context.publishEvent(new ApplicationReadyEvent(
+                    new SpringApplication(), new String[0], context, Duration.ZERO));
+
+            ProviderAffinityMatrix matrix = context.getBean(ProviderAffinityMatrix.class);
+            assertEquals(2, matrix.getOverlap(10L, 20L));
+            assertEquals(3, matrix.getSubscriberCount(20L));
+        } finally {
+            reconcileAllowed.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Снимок кэшей - поврежденный или устаревший снимок не восстанавливается")
+    void restore_CorruptedOrExpired_ShouldBeIgnored() throws IOException {
+        Path path = directory.resolve("snapshot.bin");
+        ProviderAudienceIndex writer = index(repository(pairs(1L, 10L)));
+        writer.rebuild();
+        store(writer, new SimpleMeterRegistry(), path, Duration.ofHours(1)).write();
+
+        assertEquals(List.of(), store(index(repository()), new SimpleMeterRegistry(), path, Duration.ZERO).restore());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), channel.size() - 1);
+        }
+        ProviderAudienceIndex corrupted = index(repository());
+        assertEquals(List.of(), store(corrupted, new SimpleMeterRegistry(), path, Duration.ofHours(1)).restore());
+        assertEquals(0, corrupted.getSubscriberCount(10L));
+    }
+
+    private static ProviderAudienceIndex index(SubscriptionRepository repository) {
+        return new ProviderAudienceIndex(repository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry());
+    }
+
+    private static ProviderAudienceIndex index(SubscriptionRepository repository, ApplicationEventPublisher publisher) {
+        return new ProviderAudienceIndex(repository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                publisher, new SimpleMeterRegistry());
+    }
+
+    private static CacheSnapshotStore store(ProviderAudienceIndex index, SimpleMeterRegistry meterRegistry,
+                                            Path path, Duration maxAge) {
+        return new CacheSnapshotStore(List.of(index), meterRegistry, true, path, maxAge);
+    }
+
+    private static SubscriptionRepository repository(Object[]... pairs) {
+        SubscriptionRepository repository = mock(SubscriptionRepository.class);
+        when(repository.streamActiveUserProviderPairs()).thenAnswer(invocation -> Stream.of(pairs));
+        return repository;
+    }
+
+    private static Object[][] pairs(Long... userAndProviderIds) {
+        Object[][] pairs = new Object[userAndProviderIds.length / 2][];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = new Object[]{userAndProviderIds[2 * i], userAndProviderIds[2 * i + 1]};
+        return pairs;
+    }
+}
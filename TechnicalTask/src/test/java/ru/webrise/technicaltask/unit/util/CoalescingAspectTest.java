@@ -0,0 +1,100 @@
+package ru.webrise.technicaltask.unit.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.webrise.technicaltask.util.coalescing.Coalesced;
+import ru.webrise.technicaltask.util.coalescing.CoalescingAspect;
+import ru.webrise.technicaltask.util.exceptions.UserNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CoalescingAspectTest {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SlowLoader loader;
+    private SlowLoader proxy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loader = new SlowLoader();
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(loader);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CoalescingAspect(meterRegistry));
+        proxy = factory.getProxy();
+    }
+
+    private double count(String outcome) {
+        Counter counter = meterRegistry.find("coalescing.requests").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    @DisplayName("Объединение запросов - одновременные вызовы с одним ключом выполняют одну загрузку")
+    void coalesce_ConcurrentCallsWithSameKey_ShouldShareOneLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++)
+                results.add(executor.submit(() -> proxy.load(1L)));
+
+            assertEquals(true, loader.started.await(5, TimeUnit.SECONDS));
+            while (count("collapsed") < CALLERS - 1)
+                Thread.onSpinWait();
+            loader.release.countDown();
+
+            for (Future<String> result : results)
+                assertEquals("user-1", result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loader.loads.get());
+        assertEquals(1.0, count("leader"));
+        assertEquals(CALLERS - 1.0, count("collapsed"));
+    }
+
+    @Test
+    @DisplayName("Объединение запросов - исключение загрузки получают все ожидающие")
+    void coalesce_LoadFails_ShouldPropagateException() {
+        loader.release.countDown();
+
+        assertThrows(UserNotFoundException.class, () -> proxy.load(-1L));
+        assertThrows(UserNotFoundException.class, () -> proxy.load(-1L));
+        assertEquals(2, loader.loads.get());
+    }
+
+    static class SlowLoader {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Coalesced("test.load")
+        public String load(Long id) throws InterruptedException {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            if (id < 0)
+                throw new UserNotFoundException("User with that id was not found");
+            return "user-" + id;
+        }
+    }
+}
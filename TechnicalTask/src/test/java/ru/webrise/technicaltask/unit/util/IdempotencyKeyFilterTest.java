@@ -0,0 +1,224 @@
+package ru.webrise.technicaltask.unit.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.webrise.technicaltask.repositories.IdempotencyKeyRepository;
+import ru.webrise.technicaltask.repositories.IdempotencyKeyRepository.StoredRequest;
+import ru.webrise.technicaltask.util.idempotency.IdempotencyKeyFilter;
+import ru.webrise.technicaltask.util.idempotency.IdempotencyKeyStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyKeyFilterTest {
+
+    private static final String KEY = "3f1c9a2e-retry";
+    private static final String REQUEST = "{\"username\":\"john_doe14\",\"email\":\"john.doe77@example.com\"}";
+    private static final String RESPONSE = "{\"id\":42,\"username\":\"john_doe14\"}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyKeyRepository repository;
+    private IdempotencyKeyFilter filter;
+    private AtomicInteger controllerCalls;
+    private int controllerStatus;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        repository = mock(IdempotencyKeyRepository.class);
+        IdempotencyKeyStore store = new IdempotencyKeyStore(
+                repository, meterRegistry, Duration.ofHours(24), Duration.ofMinutes(1), 100);
+        filter = new IdempotencyKeyFilter(store, new ObjectMapper().registerModule(new JavaTimeModule()));
+        controllerCalls = new AtomicInteger();
+        controllerStatus = HttpServletResponse.SC_CREATED;
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - повтор получает сохраненный ответ без вызова контроллера")
+    void retriedRequest_ShouldReplayStoredResponse() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(true);
+
+        MockHttpServletResponse first = perform("/users", KEY, REQUEST);
+        MockHttpServletResponse retry = perform("/users", KEY, REQUEST);
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(HttpServletResponse.SC_CREATED, first.getStatus());
+        assertEquals(HttpServletResponse.SC_CREATED, retry.getStatus());
+        assertEquals(RESPONSE, retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyKeyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyKeyFilter.REPLAYED_HEADER));
+        verify(repository).complete(eq(KEY), anyString(), eq(HttpServletResponse.SC_CREATED), eq("application/json"),
+                eq(RESPONSE.getBytes(StandardCharsets.UTF_8)));
+        verify(repository, times(1)).claim(any(), any(), any(), any());
+        assertEquals(1.0, meterRegistry.get("idempotency.requests").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - ответ, сохраненный другим узлом, читается из БД")
+    void requestCompletedOnAnotherNode_ShouldReplayFromDatabase() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(true, false);
+        perform("/users/7/subscriptions", KEY, REQUEST);
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        verify(repository).complete(eq(KEY), hash.capture(), anyInt(), any(), any());
+
+        IdempotencyKeyStore otherNode = new IdempotencyKeyStore(
+                repository, meterRegistry, Duration.ofHours(24), Duration.ofMinutes(1), 100);
+        filter = new IdempotencyKeyFilter(otherNode, new ObjectMapper());
+        when(repository.find(KEY)).thenReturn(Optional.of(new StoredRequest(
+                hash.getValue(), HttpServletResponse.SC_CREATED, "application/json", RESPONSE.getBytes(StandardCharsets.UTF_8))));
+
+        MockHttpServletResponse retry = perform("/users/7/subscriptions", KEY, REQUEST);
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(RESPONSE, retry.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - запрос еще выполняется - 409, ключ с другим телом - 422")
+    void concurrentOrDifferentRequest_ShouldBeRejected() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(false);
+        when(repository.find(KEY)).thenReturn(Optional.of(new StoredRequest("other", null, null, null)));
+
+        MockHttpServletResponse mismatch = perform("/users", KEY, REQUEST);
+
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        verify(repository).claim(eq(KEY), hash.capture(), any(), any());
+        when(repository.find(KEY)).thenReturn(Optional.of(new StoredRequest(hash.getValue(), null, null, null)));
+        MockHttpServletResponse inProgress = perform("/users", KEY, REQUEST);
+
+        assertEquals(0, controllerCalls.get());
+        assertEquals(422, mismatch.getStatus());
+        assertEquals(HttpServletResponse.SC_CONFLICT, inProgress.getStatus());
+        assertTrue(inProgress.getContentAsString().contains("still in progress"));
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - ошибка сервера освобождает ключ, запрос без заголовка не затрагивается")
+    void serverError_ShouldReleaseKey() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(true);
+        controllerStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+
+        perform("/users", KEY, REQUEST);
+        perform("/users", null, REQUEST);
+
+        assertEquals(2, controllerCalls.get());
+        verify(repository).release(eq(KEY), anyString());
+        verify(repository, never()).complete(any(), any(), anyInt(), any(), any());
+        verify(repository, times(1)).claim(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - слишком длинный ключ - 400")
+    void tooLongKey_ShouldReturnBadRequest() throws Exception {
+        MockHttpServletResponse response = perform("/users", "k".repeat(101), REQUEST);
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+        assertEquals(0, controllerCalls.get());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - путь сопоставляется без context path приложения")
+    void requestUnderContextPath_ShouldBeHandled() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(true);
+        MockHttpServletRequest request = request("/api/users/7/subscriptions", KEY, REQUEST);
+        request.setContextPath("/api");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(controller(REQUEST)));
+
+        assertEquals(HttpServletResponse.SC_CREATED, response.getStatus());
+        verify(repository).claim(eq(KEY), anyString(), any(), any());
+        verify(repository).complete(eq(KEY), anyString(), eq(HttpServletResponse.SC_CREATED), any(), any());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key - сохраненное тело читается неблокирующим ReadListener")
+    void cachedBody_ShouldSupportReadListener() throws Exception {
+        when(repository.claim(eq(KEY), anyString(), any(), any())).thenReturn(true);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+
+        HttpServlet asyncController = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                ServletInputStream input = req.getInputStream();
+                input.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        byte[] buffer = new byte[16];
+                        int read;
+                        while (input.isReady() && (read = input.read(buffer)) != -1)
+                            received.write(buffer, 0, read);
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        allDataRead.set(true);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        fail(t);
+                    }
+                });
+                resp.setStatus(HttpServletResponse.SC_CREATED);
+            }
+        };
+        filter.doFilter(request("/users", KEY, REQUEST), new MockHttpServletResponse(), new MockFilterChain(asyncController));
+
+        assertTrue(allDataRead.get());
+        assertEquals(REQUEST, received.toString(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse perform(String uri, String key, String body) throws Exception {
+        MockHttpServletRequest request = request(uri, key, body);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(controller(body)));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null)
+            request.addHeader(IdempotencyKeyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        return request;
+    }
+
+    private HttpServlet controller(String body) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                controllerCalls.incrementAndGet();
+                assertEquals(body, new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+                resp.setStatus(controllerStatus);
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package ru.webrise.technicaltask.unit.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import ru.webrise.technicaltask.util.compression.PrecompressedResponseCache;
+import ru.webrise.technicaltask.util.compression.PrecompressedResponseFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecompressedResponseFilterTest {
+
+    private static final String BODY = "[" + "{\"providerName\":\"Netflix\",\"subscriptionCount\":150},".repeat(40) + "{}]";
+
+    private SimpleMeterRegistry meterRegistry;
+    private PrecompressedResponseCache cache;
+    private PrecompressedResponseFilter filter;
+    private AtomicInteger controllerCalls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PrecompressedResponseCache(Duration.ofMinutes(1), 10, DataSize.ofBytes(1024), meterRegistry);
+        filter = new PrecompressedResponseFilter(cache);
+        controllerCalls = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Кэш сжатых ответов - повторный запрос отдается сжатым без вызова контроллера")
+    void repeatedRequest_ShouldBeServedPrecompressed() throws Exception {
+        MockHttpServletResponse first = perform("gzip, deflate", null);
+        MockHttpServletResponse second = perform("gzip, deflate", null);
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(BODY, first.getContentAsString());
+        assertEquals("gzip", second.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("application/json", second.getContentType());
+        assertEquals("\"v1\"", second.getHeader(HttpHeaders.ETAG));
+        assertEquals(BODY, gunzip(second.getContentAsByteArray()));
+        assertEquals(1.0, meterRegistry.get("responses.precompressed.requests").tag("outcome", "hit").counter().count());
+    }
+
+    @Test
+    @DisplayName("Кэш сжатых ответов - клиенту без gzip отдается исходное тело, ETag дает 304")
+    void cachedRequest_WithoutGzipOrWithETag_ShouldServeRawOrNotModified() throws Exception {
+        perform(null, null);
+
+        MockHttpServletResponse raw = perform("identity", null);
+        MockHttpServletResponse notModified = perform("gzip", "\"v1\"");
+
+        assertEquals(1, controllerCalls.get());
+        assertNull(raw.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, raw.getContentAsString());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+        assertEquals(0, notModified.getContentLength());
+    }
+
+    @Test
+    @DisplayName("Кэш сжатых ответов - изменение подписок сбрасывает топ")
+    void subscriptionChange_ShouldInvalidateTop() throws Exception {
+        perform("gzip", null);
+        cache.onSubscriptionActivated(1L, 2L);
+        perform("gzip", null);
+
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    @DisplayName("Кэш сжатых ответов - статус фоновой задачи провайдера не кэшируется")
+    void providerJobStatus_ShouldNotBeCached() throws Exception {
+        MockHttpServletResponse first = perform("/subscription-provider/jobs/42", "gzip", null);
+        MockHttpServletResponse second = perform("/subscription-provider/jobs/42", "gzip", null);
+
+        assertEquals(2, controllerCalls.get());
+        assertNotEquals(first.getContentAsString(), second.getContentAsString());
+        assertNull(second.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private MockHttpServletResponse perform(String acceptEncoding, String ifNoneMatch) throws Exception {
+        return perform("/subscriptions/top", acceptEncoding, ifNoneMatch);
+    }
+
+    private MockHttpServletResponse perform(String uri, String acceptEncoding, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setQueryString("limit=50");
+        if (acceptEncoding != null)
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        if (ifNoneMatch != null)
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                int call = controllerCalls.incrementAndGet();
+                resp.setContentType("application/json");
+                if (req.getRequestURI().contains("/jobs/")) {
+                    resp.getOutputStream().write(("{\"status\":\"running\",\"processed\":" + call * 500 + "}")
+                            .getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                resp.setHeader(HttpHeaders.ETAG, "\"v1\"");
+                resp.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+        return response;
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
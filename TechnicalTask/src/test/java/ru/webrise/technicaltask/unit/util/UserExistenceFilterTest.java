@@ -0,0 +1,83 @@
+package ru.webrise.technicaltask.unit.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.webrise.technicaltask.repositories.UserRepository;
+import ru.webrise.technicaltask.util.exceptions.NonUniqueUsernameException;
+import ru.webrise.technicaltask.util.existence.BloomFilter;
+import ru.webrise.technicaltask.util.existence.UserExistenceFilter;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExistenceFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserRepository userRepository;
+    private UserExistenceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userRepository = mock(UserRepository.class);
+        filter = new UserExistenceFilter(userRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                meterRegistry, true, 1000, 0.01);
+    }
+
+    @Test
+    @DisplayName("Фильтр существования - новое имя не проверяется в БД, занятое проверяется")
+    void check_ShouldSkipDatabaseForNewValues() {
+        when(userRepository.streamUsernamesAndEmails()).thenReturn(Stream.<Object[]>of(
+                new Object[]{"john_doe14", "john.doe77@example.com"}));
+        doThrow(new NonUniqueUsernameException("User with this username already exists"))
+                .when(userRepository).checkUsernameUnique("john_doe14");
+        filter.rebuild();
+
+        filter.checkUsernameUnique("jane_doe");
+        filter.checkEmailUnique("jane@example.com");
+        assertThrows(NonUniqueUsernameException.class, () -> filter.checkUsernameUnique("john_doe14"));
+
+        verify(userRepository, never()).checkUsernameUnique("jane_doe");
+        verify(userRepository, never()).checkEmailUnique(any());
+        assertEquals(1.0, meterRegistry.get("users.existence-filter.checks")
+                .tags("field", "username", "outcome", "taken").counter().count());
+        assertEquals(1.0, meterRegistry.get("users.existence-filter.checks")
+                .tags("field", "email", "outcome", "skipped").counter().count());
+        assertTrue(meterRegistry.get("users.existence-filter.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Фильтр существования - до построения и для добавленных значений проверка идет в БД")
+    void check_BeforeRebuildOrAfterAdd_ShouldQueryDatabase() {
+        filter.checkUsernameUnique("jane_doe");
+        verify(userRepository).checkUsernameUnique("jane_doe");
+
+        when(userRepository.streamUsernamesAndEmails()).thenReturn(Stream.empty());
+        filter.rebuild();
+        filter.add("jane_doe", "jane@example.com");
+        filter.checkUsernameUnique("jane_doe");
+
+        verify(userRepository, times(2)).checkUsernameUnique("jane_doe");
+        assertEquals(1.0, meterRegistry.get("users.existence-filter.checks")
+                .tags("field", "username", "outcome", "false_positive").counter().count());
+    }
+
+    @Test
+    @DisplayName("Фильтр Блума - нет ложноотрицательных ответов, доля ложных срабатываний близка к заданной")
+    void bloomFilter_ShouldKeepConfiguredFalsePositiveRate() {
+        BloomFilter bloomFilter = BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> bloomFilter.add("user" + i));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> bloomFilter.mightContain("user" + i)));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> bloomFilter.mightContain("other" + i)).count();
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertEquals(0.01, bloomFilter.expectedFalsePositiveRate(), 0.005);
+    }
+}